@@ -0,0 +1,186 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.parcel_delivery.models.assignment.AssignmentOptions;
+import com.example.parcel_delivery.models.assignment.DriverLoadLedger;
+import com.example.parcel_delivery.models.assignment.ParcelAssignmentPlan;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+import com.example.parcel_delivery.repositories.ParcelAssignmentJdbcRepo;
+
+/**
+ * Writing the result of the batch assignment for one city, on a real postgres
+ * (BENCHMARK_JDBC_URL, _USER, _PASSWORD; tables in the bench_assignment_flush
+ * schema). Every invocation starts from a freshly seeded city where all
+ * parcels wait for a driver, 4 parcels per driver, in one transaction:
+ * - perParcel: what the service did before, one UPDATE per parcel and one per
+ * driver, each its own round trip
+ * - batch: ParcelAssignmentJdbcRepo with write-mode batch, a JDBC batch of
+ * single row UPDATEs
+ * - set: ParcelAssignmentJdbcRepo with write-mode set, UPDATE ... FROM
+ * (VALUES ...) per driver type
+ *
+ * Scores are milliseconds per city.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssignmentFlushBenchmark {
+
+    private static final String SCHEMA = "bench_assignment_flush";
+
+    private static final int PARCELS_PER_DRIVER = 4;
+
+    @Param({ "1000", "10000", "50000" })
+    public int parcels;
+
+    @Param({ "perParcel", "batch", "set" })
+    public String writeMode;
+
+    private SingleConnectionDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ParcelAssignmentJdbcRepo parcelAssignmentJdbcRepo;
+
+    private ParcelAssignmentPlan plan;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                setting("BENCHMARK_JDBC_URL", "jdbc:postgresql://localhost:5432/tendrilex"),
+                setting("BENCHMARK_JDBC_USER", "postgres"),
+                setting("BENCHMARK_JDBC_PASSWORD", "postgres"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        // the unqualified tables of the repository statements are the scratch tables
+        jdbcTemplate.execute("SET search_path TO " + SCHEMA);
+        jdbcTemplate.execute("CREATE TABLE parcels (id bigint PRIMARY KEY, driver_id bigint, "
+                + "status varchar(255) NOT NULL, description text NOT NULL, width float8, height float8, "
+                + "depth float8, mass float8, updated_at timestamp, status_updated_at timestamp)");
+        jdbcTemplate.execute("CREATE INDEX ON parcels (status)");
+        jdbcTemplate.execute("CREATE INDEX ON parcels (driver_id, status)");
+        jdbcTemplate.execute("CREATE TABLE drivers (id bigint PRIMARY KEY, is_available boolean NOT NULL)");
+
+        parcelAssignmentJdbcRepo = new ParcelAssignmentJdbcRepo();
+        ReflectionTestUtils.setField(parcelAssignmentJdbcRepo, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(parcelAssignmentJdbcRepo, "namedParameterJdbcTemplate",
+                new NamedParameterJdbcTemplate(jdbcTemplate));
+        ReflectionTestUtils.setField(parcelAssignmentJdbcRepo, "writeMode", writeMode);
+
+        plan = newPlan();
+    }
+
+    @Setup(Level.Invocation)
+    public void seedCity() {
+        int drivers = driverCount();
+        jdbcTemplate.execute("TRUNCATE parcels, drivers");
+        jdbcTemplate.update("INSERT INTO parcels (id, status, description, width, height, depth, mass) "
+                + "SELECT i, 'AWAITING_INTRA_CITY_PICKUP', 'Benchmark parcel', 20, 20, 20, 2 "
+                + "FROM generate_series(1, ?) i", parcels);
+        jdbcTemplate.update("INSERT INTO drivers (id, is_available) SELECT i, true FROM generate_series(1, ?) i",
+                drivers);
+        jdbcTemplate.execute("ANALYZE parcels");
+        jdbcTemplate.execute("ANALYZE drivers");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public int flushCity() {
+        return transactionTemplate.execute(status -> "perParcel".equals(writeMode)
+                ? flushPerParcel()
+                : parcelAssignmentJdbcRepo.flush(plan).getStatements());
+    }
+
+    // what the service did before: a save per parcel, then one per loaded driver
+    private int flushPerParcel() {
+        int statements = 0;
+        for (var assignment : plan.getAssignments()) {
+            jdbcTemplate.update("UPDATE parcels SET driver_id = ?, status = ?, updated_at = now(), "
+                    + "status_updated_at = now() WHERE id = ?",
+                    assignment.getDriverId(), assignment.getStatus().name(), assignment.getParcelId());
+            statements++;
+        }
+        for (Long driverId : plan.getUnavailableDriverIds()) {
+            jdbcTemplate.update("UPDATE drivers SET is_available = false WHERE id = ?", driverId);
+            statements++;
+        }
+        return statements;
+    }
+
+    // every driver takes the next 4 parcels, as the count strategy does
+    private ParcelAssignmentPlan newPlan() {
+        List<Long> driverIds = new ArrayList<>();
+        for (long id = 1; id <= driverCount(); id++) {
+            driverIds.add(id);
+        }
+        ParcelAssignmentPlan cityPlan = new ParcelAssignmentPlan("Helsinki",
+                new AssignmentOptions("count", "greedy", false), new DriverLoadLedger(driverIds));
+
+        Driver driver = null;
+        for (int i = 0; i < parcels; i++) {
+            if (i % PARCELS_PER_DRIVER == 0) {
+                driver = new Driver();
+                driver.setId((long) i / PARCELS_PER_DRIVER + 1);
+                driver.setIsAvailable(true);
+                cityPlan.markUnavailable(driver);
+            }
+            Parcel parcel = new Parcel();
+            parcel.setId((long) i + 1);
+            parcel.setWidth(20.0);
+            parcel.setHeight(20.0);
+            parcel.setDepth(20.0);
+            parcel.setMass(2.0);
+            cityPlan.assign(parcel, driver, ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER);
+        }
+        return cityPlan;
+    }
+
+    private int driverCount() {
+        return (parcels + PARCELS_PER_DRIVER - 1) / PARCELS_PER_DRIVER;
+    }
+
+    // environment, since the benchmark runs in a JVM forked by exec:exec and JMH
+    private static String setting(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+
+}
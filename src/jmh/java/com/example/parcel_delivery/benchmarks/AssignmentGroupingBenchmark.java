@@ -0,0 +1,82 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parcel_delivery.models.assignment.AssignableParcel;
+import com.example.parcel_delivery.models.assignment.InterCityLaneIndex;
+import com.example.parcel_delivery.models.assignment.ParcelGrouping;
+import com.example.parcel_delivery.models.assignment.ParcelPriority;
+import com.example.parcel_delivery.models.entities.Parcel;
+
+/**
+ * The in-memory part of the batch assignment of one city: splitting the
+ * parcels between intra and inter-city drivers, urgency order, grouping by
+ * lane and the lane index of the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssignmentGroupingBenchmark {
+
+    @Param({ "small", "medium", "large" })
+    public String size;
+
+    private List<Parcel> parcels;
+
+    private List<Parcel> interCityParcels;
+
+    private List<AssignableParcel> assignableParcels;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticCity city = SyntheticCity.ofSize(size, 42);
+        parcels = city.mixedParcels(city.getParcels().size());
+        interCityParcels = parcels.stream().filter(ParcelGrouping::isForInterDriver).toList();
+        assignableParcels = interCityParcels.stream()
+                .map(parcel -> new AssignableParcel(parcel.getId(), parcel.getStatus(), parcel.getParcelType(),
+                        ParcelGrouping.currentCityOf(parcel), ParcelGrouping.hopCityOf(parcel),
+                        parcel.getSelectedLockerLocation().getId()))
+                .toList();
+    }
+
+    @Benchmark
+    public List<Parcel> intraCityMostUrgentFirst() {
+        return ParcelPriority.mostUrgentFirst(ParcelGrouping.forIntraDrivers(parcels));
+    }
+
+    @Benchmark
+    public Map<String, List<Parcel>> interCityByHop() {
+        return ParcelGrouping.forInterDriversByHop(parcels);
+    }
+
+    @Benchmark
+    public Map<String, List<Parcel>> returnParcelsByCurrentCity() {
+        return ParcelGrouping.byCurrentCity(interCityParcels);
+    }
+
+    @Benchmark
+    public InterCityLaneIndex laneIndex() {
+        InterCityLaneIndex laneIndex = new InterCityLaneIndex();
+        assignableParcels.forEach(laneIndex::add);
+        return laneIndex;
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.example.parcel_delivery.repositories.CabinetRepo;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Stress test of the cabinet claim: 32 threads send parcels to the same few
+ * lockers of a real postgres (BENCHMARK_JDBC_URL, _USER, _PASSWORD; tables in
+ * the bench_cabinet_claim schema). Every claimed cabinet id is recorded, a
+ * cabinet handed out twice is a collision.
+ * - skipLocked: CabinetRepo.CLAIM_CABINET_SQL, fails the iteration on any
+ * collision or when the claims and the OCCUPIED rows disagree
+ * - randomThenSave: the old random pick followed by a save, collisions are
+ * only counted to show the double bookings it makes
+ *
+ * Scores are claims per second, a locker running empty makes claims return
+ * nothing which also counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class CabinetClaimBenchmark {
+
+    private static final String SCHEMA = "bench_cabinet_claim";
+
+    private static final int LOCKERS = 4;
+
+    private static final int CABINETS_PER_LOCKER = 5_000;
+
+    @Param({ "skipLocked", "randomThenSave" })
+    public String claim;
+
+    private HikariDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder claims = new LongAdder();
+
+    private final LongAdder collisions = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(setting("BENCHMARK_JDBC_URL", "jdbc:postgresql://localhost:5432/tendrilex"));
+        config.setUsername(setting("BENCHMARK_JDBC_USER", "postgres"));
+        config.setPassword(setting("BENCHMARK_JDBC_PASSWORD", "postgres"));
+        config.setMaximumPoolSize(32);
+        // the unqualified cabinets of the repository query are the scratch table
+        config.setConnectionInitSql("SET search_path TO " + SCHEMA);
+        dataSource = new HikariDataSource(config);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SCHEMA + ".cabinets");
+        jdbcTemplate.execute("CREATE TABLE " + SCHEMA + ".cabinets (id bigserial PRIMARY KEY, "
+                + "status varchar(255) NOT NULL, parcel_locker_id bigint, "
+                + "width float8 NOT NULL, height float8 NOT NULL, depth float8 NOT NULL, size_class smallint, "
+                + "held_for_parcel_id bigint, hold_expires_at timestamp)");
+        jdbcTemplate.execute("CREATE INDEX ON " + SCHEMA + ".cabinets (parcel_locker_id, status, size_class, id)");
+    }
+
+    @Setup(Level.Iteration)
+    public void fillLockers() {
+        jdbcTemplate.execute("TRUNCATE " + SCHEMA + ".cabinets");
+        jdbcTemplate.update("INSERT INTO " + SCHEMA + ".cabinets "
+                + "(status, parcel_locker_id, width, height, depth, size_class) "
+                + "SELECT 'FREE', locker, 50, 50, 50, 2 FROM generate_series(1, ?) locker, generate_series(1, ?)",
+                LOCKERS, CABINETS_PER_LOCKER);
+        jdbcTemplate.execute("ANALYZE " + SCHEMA + ".cabinets");
+        claimed.clear();
+        claims.reset();
+        collisions.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void verify() {
+        long occupied = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + SCHEMA + ".cabinets WHERE status = 'OCCUPIED'", Long.class);
+        System.out.println("\n" + claim + ": " + claims.sum() + " claims, " + occupied + " occupied, "
+                + collisions.sum() + " collisions");
+
+        if ("skipLocked".equals(claim) && (collisions.sum() > 0 || occupied != claims.sum())) {
+            throw new IllegalStateException("Double booked cabinets: " + collisions.sum() + " collisions, "
+                    + claims.sum() + " claims for " + occupied + " occupied cabinets");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public long claimCabinet() {
+        long lockerId = ThreadLocalRandom.current().nextInt(LOCKERS) + 1;
+        Long cabinetId = "skipLocked".equals(claim) ? claimSkipLocked(lockerId) : claimRandomThenSave(lockerId);
+        if (cabinetId == null) {
+            return 0;
+        }
+        claims.increment();
+        if (!claimed.add(cabinetId)) {
+            collisions.increment();
+        }
+        return cabinetId;
+    }
+
+    private Long claimSkipLocked(long lockerId) {
+        List<Map<String, Object>> rows = namedJdbcTemplate.queryForList(CabinetRepo.CLAIM_CABINET_SQL,
+                new MapSqlParameterSource()
+                        .addValue("lockerId", lockerId)
+                        .addValue("fromStatus", "FREE")
+                        .addValue("toStatus", "OCCUPIED")
+                        .addValue("minSize", 0)
+                        .addValue("shortSide", 10.0)
+                        .addValue("middleSide", 10.0)
+                        .addValue("longSide", 10.0)
+                        .addValue("holdExpiresAt", LocalDateTime.now()));
+        return rows.isEmpty() ? null : ((Number) rows.get(0).get("id")).longValue();
+    }
+
+    // what the service did before: read a random free cabinet, then save it
+    private Long claimRandomThenSave(long lockerId) {
+        List<Long> free = jdbcTemplate.queryForList(
+                "SELECT id FROM cabinets WHERE parcel_locker_id = ? AND status = 'FREE' ORDER BY RANDOM() LIMIT 1",
+                Long.class, lockerId);
+        if (free.isEmpty()) {
+            return null;
+        }
+        jdbcTemplate.update("UPDATE cabinets SET status = 'OCCUPIED' WHERE id = ?", free.get(0));
+        return free.get(0);
+    }
+
+    // environment, since the benchmark runs in a JVM forked by exec:exec and JMH
+    private static String setting(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+
+}
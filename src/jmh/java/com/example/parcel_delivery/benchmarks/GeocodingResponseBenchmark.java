@@ -0,0 +1,68 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parcel_delivery.utils.LocationUtils;
+
+/**
+ * Parsing of a geocoding API answer (the HTTP call itself is left out)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeocodingResponseBenchmark {
+
+    private static final String ADDRESS = "Kauppurienkatu 12, 90100 Oulu, Finland";
+
+    // shape of a real answer, one result
+    private static final String RESPONSE = """
+            {
+              "results": [
+                {
+                  "address_components": [
+                    { "long_name": "12", "short_name": "12", "types": ["street_number"] },
+                    { "long_name": "Kauppurienkatu", "short_name": "Kauppurienkatu", "types": ["route"] },
+                    { "long_name": "Oulu", "short_name": "Oulu", "types": ["locality", "political"] },
+                    { "long_name": "Finland", "short_name": "FI", "types": ["country", "political"] },
+                    { "long_name": "90100", "short_name": "90100", "types": ["postal_code"] }
+                  ],
+                  "formatted_address": "Kauppurienkatu 12, 90100 Oulu, Finland",
+                  "geometry": {
+                    "location": { "lat": 65.0125, "lng": 25.4706 },
+                    "location_type": "ROOFTOP",
+                    "viewport": {
+                      "northeast": { "lat": 65.0138, "lng": 25.4719 },
+                      "southwest": { "lat": 65.0111, "lng": 25.4692 }
+                    }
+                  },
+                  "place_id": "ChIJsynthetic",
+                  "types": ["street_address"]
+                }
+              ],
+              "status": "OK"
+            }
+            """;
+
+    private final LocationUtils locationUtils = new LocationUtils();
+
+    @Benchmark
+    public Point parseGeocodingResponse() throws IOException {
+        return locationUtils.parseGeocodingResponse(RESPONSE, ADDRESS);
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parcel_delivery.config.IdSequenceConfig;
+
+/**
+ * Insert throughput with IDENTITY ids against pooled sequences, on a real
+ * postgres (BENCHMARK_JDBC_URL, _USER, _PASSWORD; temp tables only). It
+ * sends the statements Hibernate sends for each strategy:
+ * - identity: one INSERT ... RETURNING id round trip per row, no batching
+ * - pooled: one nextval per 50 ids, the rows of a flush as one JDBC batch
+ *
+ * parcelCreation is one send request (parcel, notification, cabinet update),
+ * lockerSeeding one locker with its 10 cabinets as the Loader saves them and
+ * parcelHistory 500 parcels in one transaction. Scores are rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertThroughputBenchmark {
+
+    private static final int CABINETS_PER_LOCKER = 10;
+
+    private static final int HISTORY_ROWS = 500;
+
+    @Param({ "identity", "pooled" })
+    public String idStrategy;
+
+    private Connection connection;
+
+    private final Map<String, long[]> pools = new HashMap<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                setting("BENCHMARK_JDBC_URL", "jdbc:postgresql://localhost:5432/tendrilex"),
+                setting("BENCHMARK_JDBC_USER", "postgres"),
+                setting("BENCHMARK_JDBC_PASSWORD", "postgres"));
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[] { "bench_lockers", "bench_cabinets", "bench_parcels",
+                    "bench_notifications" }) {
+                statement.execute("CREATE TEMP SEQUENCE " + table + "_seq START WITH "
+                        + IdSequenceConfig.ALLOCATION_SIZE + " INCREMENT BY " + IdSequenceConfig.ALLOCATION_SIZE);
+            }
+            String id = "id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY";
+            statement.execute("CREATE TEMP TABLE bench_lockers (" + id + ", name text NOT NULL, city text)");
+            statement.execute("CREATE TEMP TABLE bench_cabinets (" + id
+                    + ", status text NOT NULL, locker_id bigint, width float8, height float8, depth float8)");
+            statement.execute("CREATE TEMP TABLE bench_parcels (" + id + ", description text NOT NULL, "
+                    + "status text NOT NULL, mass float8, idempotency_key text UNIQUE, created_at timestamp)");
+            statement.execute("CREATE TEMP TABLE bench_notifications (" + id
+                    + ", parcel_id bigint, message text, created_at timestamp)");
+        }
+        connection.commit();
+
+        // one cabinet for the updates of parcelCreation
+        insertCabinets(1, 1);
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long parcelCreation() throws SQLException {
+        long parcelId = insertParcels(1);
+        long notificationId = insertRows("bench_notifications",
+                "INSERT INTO bench_notifications (id, parcel_id, message, created_at) VALUES (?, ?, ?, now())",
+                "INSERT INTO bench_notifications (parcel_id, message, created_at) VALUES (?, ?, now()) RETURNING id",
+                1, (statement, i, offset) -> {
+                    statement.setLong(offset, parcelId);
+                    statement.setString(offset + 1, "You have a new parcel");
+                });
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE bench_cabinets SET status = 'OCCUPIED' WHERE id = (SELECT min(id) FROM bench_cabinets)")) {
+            statement.executeUpdate();
+        }
+        connection.commit();
+        return parcelId + notificationId;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CABINETS_PER_LOCKER + 1)
+    public long lockerSeeding() throws SQLException {
+        long lockerId = insertRows("bench_lockers",
+                "INSERT INTO bench_lockers (id, name, city) VALUES (?, ?, ?)",
+                "INSERT INTO bench_lockers (name, city) VALUES (?, ?) RETURNING id",
+                1, (statement, i, offset) -> {
+                    statement.setString(offset, "Bench Locker");
+                    statement.setString(offset + 1, "Helsinki");
+                });
+        long last = insertCabinets(lockerId, CABINETS_PER_LOCKER);
+        connection.commit();
+        return last;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HISTORY_ROWS)
+    public long parcelHistory() throws SQLException {
+        long last = insertParcels(HISTORY_ROWS);
+        connection.commit();
+        return last;
+    }
+
+    private long insertParcels(int rows) throws SQLException {
+        return insertRows("bench_parcels",
+                "INSERT INTO bench_parcels (id, description, status, mass, idempotency_key, created_at) "
+                        + "VALUES (?, ?, ?, ?, gen_random_uuid()::text, now())",
+                "INSERT INTO bench_parcels (description, status, mass, idempotency_key, created_at) "
+                        + "VALUES (?, ?, ?, gen_random_uuid()::text, now()) RETURNING id",
+                rows, (statement, i, offset) -> {
+                    statement.setString(offset, "Benchmark parcel " + i);
+                    statement.setString(offset + 1, "CREATED");
+                    statement.setDouble(offset + 2, 1.5);
+                });
+    }
+
+    private long insertCabinets(long lockerId, int rows) throws SQLException {
+        return insertRows("bench_cabinets",
+                "INSERT INTO bench_cabinets (id, status, locker_id, width, height, depth) VALUES (?, ?, ?, 50, 50, 50)",
+                "INSERT INTO bench_cabinets (status, locker_id, width, height, depth) VALUES (?, ?, 50, 50, 50) "
+                        + "RETURNING id",
+                rows, (statement, i, offset) -> {
+                    statement.setString(offset, "FREE");
+                    statement.setLong(offset + 1, lockerId);
+                });
+    }
+
+    // inserts rows the way Hibernate does with the id strategy, returns the last id
+    private long insertRows(String table, String pooledSql, String identitySql, int rows, Binder binder)
+            throws SQLException {
+        long last = 0;
+        if ("identity".equals(idStrategy)) {
+            try (PreparedStatement statement = connection.prepareStatement(identitySql)) {
+                for (int i = 0; i < rows; i++) {
+                    binder.bind(statement, i, 1);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        rs.next();
+                        last = rs.getLong(1);
+                    }
+                }
+            }
+            return last;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(pooledSql)) {
+            for (int i = 0; i < rows; i++) {
+                last = nextId(table);
+                statement.setLong(1, last);
+                binder.bind(statement, i, 2);
+                statement.addBatch();
+                if ((i + 1) % IdSequenceConfig.ALLOCATION_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+        return last;
+    }
+
+    // pooled optimiser: a nextval of v covers v - 49 .. v
+    private long nextId(String table) throws SQLException {
+        long[] pool = pools.computeIfAbsent(table, t -> new long[] { 1, 0 });
+        if (pool[0] > pool[1]) {
+            try (Statement statement = connection.createStatement();
+                    ResultSet rs = statement.executeQuery("SELECT nextval('" + table + "_seq')")) {
+                rs.next();
+                pool[1] = rs.getLong(1);
+                pool[0] = pool[1] - IdSequenceConfig.ALLOCATION_SIZE + 1;
+            }
+        }
+        return pool[0]++;
+    }
+
+    // environment, since the benchmark runs in a JVM forked by exec:exec and JMH
+    private static String setting(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement statement, int row, int firstParameter) throws SQLException;
+    }
+
+}
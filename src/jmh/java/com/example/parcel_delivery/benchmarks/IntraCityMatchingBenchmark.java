@@ -0,0 +1,103 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parcel_delivery.models.assignment.VehicleLoad;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.services.impl.CountBasedAssignmentStrategy;
+import com.example.parcel_delivery.services.impl.MinCostParcelMatchingServiceImpl;
+import com.example.parcel_delivery.utils.GeoUtils;
+
+/**
+ * Greedy (drivers filled one after the other) against the min-cost solver on
+ * the intra-city Scenario 1 of the batch assignment. The parcels assigned and
+ * the total home -> pickup distance of both are printed once per trial; the
+ * km only compare when both assigned the same number of parcels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntraCityMatchingBenchmark {
+
+    private static final int PARCELS_PER_DRIVER = 4;
+
+    // parcels x drivers x lockers
+    @Param({ "500x50x40", "2000x200x150", "4000x400x300" })
+    public String city;
+
+    private SyntheticCity syntheticCity;
+
+    private final CountBasedAssignmentStrategy greedyStrategy = new CountBasedAssignmentStrategy();
+
+    private final MinCostParcelMatchingServiceImpl minCostMatching = new MinCostParcelMatchingServiceImpl();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] shape = city.split("x");
+        syntheticCity = new SyntheticCity(42, Integer.parseInt(shape[2]), Integer.parseInt(shape[1]),
+                Integer.parseInt(shape[0]));
+
+        List<List<Parcel>> greedy = greedy();
+        List<List<Parcel>> minCost = minCost();
+        System.out.printf("%n%s: greedy %d parcels %.0f km, min-cost %d parcels %.0f km%n", city,
+                assigned(greedy), totalKm(syntheticCity.getDrivers(), greedy),
+                assigned(minCost), totalKm(syntheticCity.getDrivers(), minCost));
+    }
+
+    @Benchmark
+    public List<List<Parcel>> greedy() {
+        List<Parcel> pending = syntheticCity.getParcels();
+        List<List<Parcel>> loads = new ArrayList<>();
+
+        for (Driver driver : syntheticCity.getDrivers()) {
+            if (pending.isEmpty())
+                break;
+            loads.add(greedyStrategy.nextLoad(driver, new VehicleLoad(), pending, PARCELS_PER_DRIVER));
+        }
+        return loads;
+    }
+
+    @Benchmark
+    public List<List<Parcel>> minCost() {
+        List<Driver> drivers = syntheticCity.getDrivers();
+        int[] freeSlots = new int[drivers.size()];
+        Arrays.fill(freeSlots, PARCELS_PER_DRIVER);
+
+        return minCostMatching.matchToDrivers(drivers, freeSlots, syntheticCity.getParcels());
+    }
+
+    private static int assigned(List<List<Parcel>> loads) {
+        return loads.stream().mapToInt(List::size).sum();
+    }
+
+    private static double totalKm(List<Driver> drivers, List<List<Parcel>> loads) {
+        double km = 0;
+        for (int d = 0; d < loads.size(); d++) {
+            for (Parcel parcel : loads.get(d)) {
+                km += GeoUtils.haversineKm(drivers.get(d).getUser().getUserPoint(), GeoUtils.firstStopOf(parcel));
+            }
+        }
+        return km;
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.parcel_delivery.utils.JWTUtils;
+
+/**
+ * Token work done on every authenticated request (parse + validate) and on
+ * every login (create).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private final JWTUtils jwtUtils = new JWTUtils();
+
+    private UserDetails userDetails;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ReflectionTestUtils.setField(jwtUtils, "secret", "benchmark-secret-benchmark-secret-benchmark-secret-0123");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpiry", 3600L);
+
+        userDetails = new User("driver@tendrilex.fi", "password", List.of());
+        token = jwtUtils.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return jwtUtils.createToken(new HashMap<>(), userDetails.getUsername());
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtUtils.extractUsername(token);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtils.validateToken(token, userDetails);
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.postgresql.util.PGobject;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.example.parcel_delivery.repositories.ParcelLockerRepo;
+
+/**
+ * Nearest available lockers as the locker count grows, on a real postgres with
+ * PostGIS (BENCHMARK_JDBC_URL, _USER, _PASSWORD; tables in the
+ * bench_nearest_lockers schema). Lockers are spread over 35 km around
+ * Helsinki with 10 cabinets each, 70% of them occupied.
+ * - joinAndCount: the previous query, joins and counts the free cabinets of
+ * every locker in range and sorts them all
+ * - knn: ParcelLockerRepo.NEAREST_AVAILABLE_LOCKERS_SQL on the maintained
+ * free_cabinet_count and the geography GiST index
+ *
+ * Scores are microseconds per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearestLockerBenchmark {
+
+    private static final String SCHEMA = "bench_nearest_lockers";
+
+    private static final String JOIN_AND_COUNT_SQL = "SELECT l.*, COUNT(c.id) as free_cabinets_count "
+            + "FROM parcel_lockers l JOIN cabinets c ON l.id = c.parcel_locker_id "
+            + "WHERE c.status = 'FREE' AND ST_DWithin(l.geo_location, :customerLocation, 20000) "
+            + "GROUP BY l.id ORDER BY ST_DistanceSphere(l.geo_location, :customerLocation) ASC";
+
+    private static final int QUERY_POINTS = 64;
+
+    @Param({ "1000", "10000", "100000" })
+    public int lockers;
+
+    private SingleConnectionDataSource dataSource;
+
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private final PGobject[] points = new PGobject[QUERY_POINTS];
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = new SingleConnectionDataSource(
+                setting("BENCHMARK_JDBC_URL", "jdbc:postgresql://localhost:5432/tendrilex"),
+                setting("BENCHMARK_JDBC_USER", "postgres"),
+                setting("BENCHMARK_JDBC_PASSWORD", "postgres"), true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("SET search_path TO " + SCHEMA + ", public");
+        jdbcTemplate.execute("CREATE TABLE parcel_lockers (id bigserial PRIMARY KEY, name text NOT NULL, "
+                + "city text, geo_location geometry(Point, 4326), free_cabinet_count integer NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE cabinets (id bigserial PRIMARY KEY, parcel_locker_id bigint, "
+                + "status varchar(255) NOT NULL)");
+
+        jdbcTemplate.execute("SELECT setseed(0.42)");
+        jdbcTemplate.update("INSERT INTO parcel_lockers (name, city, geo_location) "
+                + "SELECT 'Bench Locker ' || i, 'Helsinki', ST_SetSRID(ST_MakePoint("
+                + "24.9384 + (random() - 0.5) * 1.25, 60.1699 + (random() - 0.5) * 0.63), 4326) "
+                + "FROM generate_series(1, ?) i", lockers);
+        jdbcTemplate.execute("INSERT INTO cabinets (parcel_locker_id, status) "
+                + "SELECT l.id, CASE WHEN random() < 0.7 THEN 'OCCUPIED' ELSE 'FREE' END "
+                + "FROM parcel_lockers l, generate_series(1, 10)");
+        jdbcTemplate.execute("UPDATE parcel_lockers l SET free_cabinet_count = "
+                + "(SELECT COUNT(*) FROM cabinets c WHERE c.parcel_locker_id = l.id AND c.status = 'FREE')");
+
+        jdbcTemplate.execute("CREATE INDEX ON cabinets (parcel_locker_id, status)");
+        jdbcTemplate.execute("CREATE INDEX ON parcel_lockers USING GIST (geo_location)");
+        jdbcTemplate.execute("CREATE INDEX ON parcel_lockers USING GIST ((CAST(geo_location AS geography)))");
+        jdbcTemplate.execute("ANALYZE parcel_lockers");
+        jdbcTemplate.execute("ANALYZE cabinets");
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < QUERY_POINTS; i++) {
+            PGobject point = new PGobject();
+            point.setType("geometry");
+            point.setValue("SRID=4326;POINT(" + (24.9384 + (random.nextDouble() - 0.5) * 0.6) + " "
+                    + (60.1699 + (random.nextDouble() - 0.5) * 0.3) + ")");
+            points[i] = point;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new JdbcTemplate(dataSource).execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public int joinAndCount() {
+        // the service kept the first five
+        return Math.min(5, nearest(JOIN_AND_COUNT_SQL).size());
+    }
+
+    @Benchmark
+    public int knn() {
+        return nearest(ParcelLockerRepo.NEAREST_AVAILABLE_LOCKERS_SQL).size();
+    }
+
+    private List<Map<String, Object>> nearest(String sql) {
+        PGobject point = points[next++ & (QUERY_POINTS - 1)];
+        return namedJdbcTemplate.queryForList(sql, new MapSqlParameterSource("customerLocation", point));
+    }
+
+    // environment, since the benchmark runs in a JVM forked by exec:exec and JMH
+    private static String setting(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+
+}
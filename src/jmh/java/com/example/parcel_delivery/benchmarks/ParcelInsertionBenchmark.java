@@ -0,0 +1,89 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.services.impl.ParcelInsertionServiceImpl;
+
+/**
+ * In-memory part of the insertion of a new parcel into the active routes of a
+ * city (target: the whole decision below 100 ms): every active driver has a
+ * route of 4 parcels (4 pickups, then 4 deliveries after their position) and
+ * the cheapest insertion is computed for all of them, as
+ * ParcelInsertionServiceImpl.tryInsert does after its single query.
+ *
+ * Scores are milliseconds per new parcel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParcelInsertionBenchmark {
+
+    private static final int PARCELS_PER_ROUTE = 4;
+
+    private static final int NEW_PARCELS = 64;
+
+    @Param({ "100", "500", "2000" })
+    public int activeDrivers;
+
+    private final List<Point> starts = new ArrayList<>();
+
+    private final List<List<Point>> routes = new ArrayList<>();
+
+    private final Point[] pickups = new Point[NEW_PARCELS];
+
+    private final Point[] deliveries = new Point[NEW_PARCELS];
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticCity syntheticCity = new SyntheticCity(42, 1, activeDrivers, 0);
+
+        for (Driver driver : syntheticCity.getDrivers()) {
+            starts.add(driver.getUser().getUserPoint());
+            List<Point> stops = new ArrayList<>();
+            for (int i = 0; i < 2 * PARCELS_PER_ROUTE; i++) {
+                stops.add(syntheticCity.randomPoint());
+            }
+            routes.add(stops);
+        }
+
+        for (int i = 0; i < NEW_PARCELS; i++) {
+            pickups[i] = syntheticCity.randomPoint();
+            deliveries[i] = syntheticCity.randomPoint();
+        }
+    }
+
+    @Benchmark
+    public double cheapestInsertion() {
+        int parcel = next++ & (NEW_PARCELS - 1);
+
+        double bestDetourKm = Double.MAX_VALUE;
+        for (int d = 0; d < routes.size(); d++) {
+            bestDetourKm = Math.min(bestDetourKm, ParcelInsertionServiceImpl.insertionCostKm(starts.get(d),
+                    routes.get(d), pickups[parcel], deliveries[parcel]));
+        }
+        return bestDetourKm;
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parcel_delivery.models.dtos.responses.ParcelResDTO;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.mappers.ParcelMapper;
+import com.example.parcel_delivery.models.mappers.ParcelMapperImpl;
+
+/**
+ * Entity -> DTO mapping of the parcel endpoints: one parcel, and the list a
+ * driver or a storage endpoint returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParcelMapperBenchmark {
+
+    private static final int LIST_SIZE = 200;
+
+    private final ParcelMapper parcelMapper = new ParcelMapperImpl();
+
+    private List<Parcel> parcels;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parcels = SyntheticCity.ofSize("small", 42).mixedParcels(LIST_SIZE);
+    }
+
+    @Benchmark
+    public ParcelResDTO toParcelResDTO() {
+        next = (next + 1) % parcels.size();
+        return parcelMapper.toParcelResDTO(parcels.get(next));
+    }
+
+    @Benchmark
+    public List<ParcelResDTO> toParcelResDTOList() {
+        return parcels.stream().map(parcelMapper::toParcelResDTO).toList();
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.parcel_delivery.utils.GeoUtils;
+import com.example.parcel_delivery.utils.RouteSequencer;
+
+/**
+ * Sequencing of one driver route: pickup / delivery pairs spread over Oulu.
+ * The nearest neighbour length and the improved length are printed once per
+ * trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteSequencingBenchmark {
+
+    // pickup / delivery pairs, so twice as many stops
+    @Param({ "10", "30", "60" })
+    public int parcels;
+
+    private int n;
+    private double[] dist;
+    private int[] before;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        n = 2 * parcels + 1;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = 65.01 + (random.nextDouble() - 0.5) * 0.1;
+            lon[i] = 25.47 + (random.nextDouble() - 0.5) * 0.2;
+        }
+
+        dist = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                dist[i * n + j] = GeoUtils.haversineKm(lat[i], lon[i], lat[j], lon[j]);
+            }
+        }
+
+        // node 2k - 1 picks up what node 2k delivers
+        before = new int[n];
+        for (int i = 0; i < n; i++) {
+            before[i] = i > 0 && i % 2 == 0 ? i - 1 : -1;
+        }
+
+        RouteSequencer sequencer = new RouteSequencer(n, dist, before);
+        System.out.printf("%n%d stops: nearest neighbour %.1f km, improved %.1f km%n", n - 1,
+                sequencer.lengthOf(new RouteSequencer(n, dist, before).solve(0)),
+                sequencer.lengthOf(sequencer.solve(50)));
+    }
+
+    @Benchmark
+    public int[] sequence() {
+        return new RouteSequencer(n, dist, before).solve(50);
+    }
+
+}
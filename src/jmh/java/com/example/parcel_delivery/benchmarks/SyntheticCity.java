@@ -0,0 +1,204 @@
+package com.example.parcel_delivery.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import com.example.parcel_delivery.models.entities.Customer;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.entities.ParcelLocker;
+import com.example.parcel_delivery.models.entities.Storage;
+import com.example.parcel_delivery.models.entities.User;
+import com.example.parcel_delivery.models.enums.DriverType;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+import com.example.parcel_delivery.models.enums.ParcelType;
+import com.example.parcel_delivery.models.enums.ServiceLevel;
+
+/**
+ * Reproducible city for the benchmarks: lockers, intra-city drivers and parcels
+ * spread around a centre, built from a seed and without any database.
+ */
+public class SyntheticCity {
+
+    public static final String CITY = "Oulu";
+
+    // the storages of Loader.generateStorages()
+    public static final List<String> CITIES = List.of("Helsinki", "Espoo", "Tampere", "Vantaa", "Oulu");
+
+    private static final double CENTRE_LAT = 65.0121;
+    private static final double CENTRE_LON = 25.4651;
+
+    // roughly 15 km around the centre
+    private static final double SPREAD_DEGREES = 0.15;
+
+    private static final GeometryFactory GEOMETRY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private final Random random;
+
+    private final List<ParcelLocker> lockers = new ArrayList<>();
+
+    private final List<Driver> drivers = new ArrayList<>();
+
+    private final List<Parcel> parcels = new ArrayList<>();
+
+    public SyntheticCity(long seed, int lockerCount, int driverCount, int parcelCount) {
+        this.random = new Random(seed);
+
+        for (int i = 0; i < lockerCount; i++) {
+            ParcelLocker locker = new ParcelLocker();
+            locker.setId((long) i + 1);
+            locker.setGeoLocation(randomPoint());
+            lockers.add(locker);
+        }
+
+        for (int i = 0; i < driverCount; i++) {
+            User user = new User();
+            user.setId((long) i + 1);
+            user.setCity(CITY);
+            user.setUserPoint(randomPoint());
+
+            Driver driver = new Driver();
+            driver.setId((long) i + 1);
+            driver.setUser(user);
+            driver.setIsAvailable(true);
+            driver.setDriverType(DriverType.INTRA_CITY);
+            drivers.add(driver);
+        }
+
+        for (int i = 0; i < parcelCount; i++) {
+            Parcel parcel = new Parcel();
+            parcel.setId((long) i + 1);
+            parcel.setStatus(ParcelStatus.AWAITING_INTRA_CITY_PICKUP);
+            parcel.setParcelType(ParcelType.INTRA_CITY);
+            parcel.setWidth(10 + random.nextInt(50) * 1.0);
+            parcel.setHeight(10 + random.nextInt(50) * 1.0);
+            parcel.setDepth(10 + random.nextInt(50) * 1.0);
+            parcel.setMass(0.5 + random.nextInt(200) / 10.0);
+            parcel.setSelectedLockerLocation(lockers.get(random.nextInt(lockers.size())));
+            parcels.add(parcel);
+        }
+    }
+
+    /**
+     * City sizes the benchmarks run with, as lockers x drivers x parcels
+     *
+     * @param size small, medium or large
+     * @param seed
+     * @return
+     */
+    public static SyntheticCity ofSize(String size, long seed) {
+        return switch (size) {
+            case "small" -> new SyntheticCity(seed, 30, 20, 300);
+            case "medium" -> new SyntheticCity(seed, 150, 100, 2000);
+            case "large" -> new SyntheticCity(seed, 400, 300, 8000);
+            default -> throw new IllegalArgumentException("Unknown city size: " + size);
+        };
+    }
+
+    /**
+     * Parcels of the whole life cycle, as the batch assignment and the mappers
+     * see them: intra and inter-city, waiting in lockers and storages, some routed
+     * through a hub, with senders and recipients all over the network
+     *
+     * @param count
+     * @return
+     */
+    public List<Parcel> mixedParcels(int count) {
+        List<Storage> storages = new ArrayList<>();
+        for (String city : CITIES) {
+            Storage storage = new Storage();
+            storage.setId((long) storages.size() + 1);
+            storage.setName(city + " Storage");
+            storage.setCity(city);
+            storages.add(storage);
+        }
+
+        ParcelStatus[] statuses = ParcelStatus.values();
+        LocalDateTime now = LocalDateTime.now();
+        List<Parcel> mixed = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Parcel parcel = new Parcel();
+            parcel.setId((long) i + 1);
+            parcel.setDescription("Synthetic parcel " + i);
+            parcel.setWidth(10 + random.nextInt(50) * 1.0);
+            parcel.setHeight(10 + random.nextInt(50) * 1.0);
+            parcel.setDepth(10 + random.nextInt(50) * 1.0);
+            parcel.setMass(0.5 + random.nextInt(200) / 10.0);
+            parcel.setStatus(statuses[random.nextInt(statuses.length)]);
+            parcel.setServiceLevel(random.nextInt(10) == 0 ? ServiceLevel.EXPRESS : ServiceLevel.STANDARD);
+            parcel.setStatusUpdatedAt(now.minusMinutes(random.nextInt(48 * 60)));
+            parcel.setSenderTransactionCode(100000 + i);
+            parcel.setSenderTransactionCodeValidUntil(now.plusDays(3));
+            parcel.setSelectedLockerLocation(lockers.get(random.nextInt(lockers.size())));
+
+            String senderCity = CITIES.get(random.nextInt(CITIES.size()));
+            boolean interCity = random.nextInt(3) == 0;
+            String recipientCity = interCity ? CITIES.get(random.nextInt(CITIES.size())) : senderCity;
+            parcel.setParcelType(interCity && !recipientCity.equals(senderCity) ? ParcelType.INTER_CITY
+                    : ParcelType.INTRA_CITY);
+
+            parcel.setSender(customerIn(senderCity, 2L * i + 1));
+            if (random.nextInt(5) == 0) {
+                parcel.setIsRecipientRegistered(false);
+                parcel.setUnregisteredRecipientName("Recipient " + i);
+                parcel.setUnregisteredRecipientCity(recipientCity);
+            } else {
+                parcel.setIsRecipientRegistered(true);
+                parcel.setRecipient(customerIn(recipientCity, 2L * i + 2));
+            }
+
+            if (parcel.getStatus() == ParcelStatus.AWAITING_INTER_CITY_PICKUP
+                    || parcel.getStatus() == ParcelStatus.AWAITING_FINAL_DELIVERY) {
+                parcel.setStorage(storages.get(random.nextInt(storages.size())));
+            }
+            if (parcel.getStatus() == ParcelStatus.AWAITING_INTER_CITY_PICKUP && random.nextInt(4) == 0) {
+                parcel.setNextHopCity(CITIES.get(random.nextInt(CITIES.size())));
+            }
+            mixed.add(parcel);
+        }
+        return mixed;
+    }
+
+    private Customer customerIn(String city, long id) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName("Customer" + id);
+        user.setCity(city);
+        user.setUserPoint(randomPoint());
+
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setUser(user);
+        return customer;
+    }
+
+    public Point randomPoint() {
+        double lat = CENTRE_LAT + (random.nextDouble() * 2 - 1) * SPREAD_DEGREES;
+        double lon = CENTRE_LON + (random.nextDouble() * 2 - 1) * SPREAD_DEGREES * 2;
+        return GEOMETRY.createPoint(new Coordinate(lon, lat));
+    }
+
+    public List<ParcelLocker> getLockers() {
+        return lockers;
+    }
+
+    public List<Driver> getDrivers() {
+        return drivers;
+    }
+
+    /**
+     * @return a fresh copy, the assignment removes parcels from the list it gets
+     */
+    public List<Parcel> getParcels() {
+        return new ArrayList<>(parcels);
+    }
+
+}
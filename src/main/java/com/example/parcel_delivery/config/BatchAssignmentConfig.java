@@ -0,0 +1,23 @@
+package com.example.parcel_delivery.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+@Configuration
+public class BatchAssignmentConfig {
+
+    /**
+     * Bounded pool on which every city of a batch assignment run is processed as
+     * its own unit of work (own transaction, own retries)
+     */
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService cityAssignmentExecutor(@Value("${tendrilex.assignment.city-parallelism:4}") int parallelism) {
+        return Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("city-assignment-"));
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.example.parcel_delivery.config;
+
+import java.time.LocalDateTime;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds of recipient lockers used to be plain RESERVED cabinets, and the
+ * parcel did not know its recipient locker (the cabinet was taken from its
+ * selected locker). On startup the data from before hold expiry is moved
+ * over:
+ * - RESERVED cabinets without expiry and parcel get the expiry of a bound
+ * hold, so the sweep frees them once the parcels in flight had their time
+ * - parcels on their way to a recipient locker get recipient_locker_id, the
+ * selected locker the cabinet used to be taken from
+ * Both only touch the rows still missing the columns, a second start does
+ * nothing.
+ */
+@Component
+@Order(0)
+public class CabinetHoldBackfillConfig implements CommandLineRunner {
+
+    private static final String EXPIRE_LEGACY_HOLDS = "UPDATE cabinets SET hold_expires_at = ? "
+            + "WHERE status = 'RESERVED' AND hold_expires_at IS NULL AND held_for_parcel_id IS NULL";
+
+    private static final String SET_RECIPIENT_LOCKERS = "UPDATE parcels SET recipient_locker_id = "
+            + "selected_locker_location_id WHERE deliver_to_recipient_locker AND recipient_locker_id IS NULL "
+            + "AND selected_locker_location_id IS NOT NULL "
+            + "AND status NOT IN ('DELIVERED_TO_RECIPIENT', 'DELIVERED_TO_RECIPIENT_LOCKER')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // the same as a hold bound to its parcel (CabinetServiceImpl)
+    @Value("${tendrilex.cabinet.hold-ttl-days:14}")
+    private long holdTtlDays;
+
+    private static final Logger logger = Logger.getLogger(CabinetHoldBackfillConfig.class.getName());
+
+    @Override
+    public void run(String... args) {
+        int holds = jdbcTemplate.update(EXPIRE_LEGACY_HOLDS, LocalDateTime.now().plusDays(holdTtlDays));
+        if (holds > 0) {
+            logger.info("Expiry set on " + holds + " cabinet holds from before hold expiry");
+        }
+
+        int parcels = jdbcTemplate.update(SET_RECIPIENT_LOCKERS);
+        if (parcels > 0) {
+            logger.info("Recipient locker set on " + parcels + " parcels in flight");
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.example.parcel_delivery.config;
+
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * parcel_lockers.free_cabinet_count is kept by a trigger on cabinets, so every
+ * write counts: JPA saves, the native claims and the hold sweep (the bulk
+ * seeding turns triggers off and counts its lockers once). The trigger is a
+ * deferred constraint trigger: it runs at
+ * commit, which keeps the lock on the locker row short and lets cabinets be
+ * written before their locker in one transaction.
+ *
+ * On startup, before the Loader seeds anything, the geography GiST index of
+ * the nearest-locker query is created when missing. The trigger carries a
+ * version (a hash of its definition) in its comment: only when it is missing
+ * or different is it (re)created and are the counts recomputed, under a SHARE
+ * lock on cabinets. A rolling deploy of the same definition takes no lock.
+ */
+@Component
+@Order(0) // before the Loader
+public class FreeCabinetCountConfig implements CommandLineRunner {
+
+    private static final String COUNT_FUNCTION = """
+            CREATE OR REPLACE FUNCTION cabinets_free_count() RETURNS trigger AS $$
+            BEGIN
+                IF TG_OP = 'UPDATE' AND OLD.status IS NOT DISTINCT FROM NEW.status
+                        AND OLD.parcel_locker_id IS NOT DISTINCT FROM NEW.parcel_locker_id THEN
+                    RETURN NULL;
+                END IF;
+                IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.status = 'FREE' AND OLD.parcel_locker_id IS NOT NULL THEN
+                    UPDATE parcel_lockers SET free_cabinet_count = free_cabinet_count - 1
+                    WHERE id = OLD.parcel_locker_id;
+                END IF;
+                IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.status = 'FREE' AND NEW.parcel_locker_id IS NOT NULL THEN
+                    UPDATE parcel_lockers SET free_cabinet_count = free_cabinet_count + 1
+                    WHERE id = NEW.parcel_locker_id;
+                END IF;
+                RETURN NULL;
+            END
+            $$ LANGUAGE plpgsql
+            """;
+
+    private static final String COUNT_TRIGGER = "CREATE CONSTRAINT TRIGGER cabinets_free_count "
+            + "AFTER INSERT OR UPDATE OR DELETE ON cabinets DEFERRABLE INITIALLY DEFERRED "
+            + "FOR EACH ROW EXECUTE FUNCTION cabinets_free_count()";
+
+    private static final String RECOUNT = """
+            WITH counts AS (
+                SELECT l.id, COUNT(c.id) AS free FROM parcel_lockers l
+                LEFT JOIN cabinets c ON c.parcel_locker_id = l.id AND c.status = 'FREE'
+                GROUP BY l.id)
+            UPDATE parcel_lockers l SET free_cabinet_count = counts.free
+            FROM counts WHERE counts.id = l.id AND l.free_cabinet_count <> counts.free
+            """;
+
+    private static final String VERSION = "cabinets_free_count "
+            + Integer.toHexString((COUNT_FUNCTION + COUNT_TRIGGER + RECOUNT).hashCode());
+
+    private static final String INSTALLED_VERSION = "SELECT obj_description(t.oid, 'pg_trigger') FROM pg_trigger t "
+            + "WHERE t.tgname = 'cabinets_free_count' AND t.tgrelid = 'cabinets'::regclass";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static final Logger logger = Logger.getLogger(FreeCabinetCountConfig.class.getName());
+
+    @Override
+    public void run(String... args) {
+        // CREATE INDEX IF NOT EXISTS would still wait for its SHARE lock
+        if (jdbcTemplate.queryForObject("SELECT to_regclass('idx_parcel_lockers_geography') IS NULL",
+                Boolean.class)) {
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_parcel_lockers_geography "
+                    + "ON parcel_lockers USING GIST ((CAST(geo_location AS geography)))");
+        }
+
+        if (VERSION.equals(installedVersion())) {
+            return;
+        }
+
+        Integer corrected = transactionTemplate.execute(status -> {
+            // no cabinet changes between the new trigger and the recount
+            jdbcTemplate.execute("LOCK TABLE cabinets IN SHARE MODE");
+            // another node may have installed it while this one waited for the lock
+            if (VERSION.equals(installedVersion())) {
+                return 0;
+            }
+            jdbcTemplate.execute(COUNT_FUNCTION);
+            jdbcTemplate.execute("DROP TRIGGER IF EXISTS cabinets_free_count ON cabinets");
+            jdbcTemplate.execute(COUNT_TRIGGER);
+            jdbcTemplate.execute("COMMENT ON TRIGGER cabinets_free_count ON cabinets IS '" + VERSION + "'");
+            return jdbcTemplate.update(RECOUNT);
+        });
+
+        logger.info("Free cabinet count trigger installed (" + VERSION + "), count recomputed for " + corrected
+                + " lockers");
+    }
+
+    private String installedVersion() {
+        return jdbcTemplate.queryForList(INSTALLED_VERSION, String.class).stream().findFirst().orElse(null);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.example.parcel_delivery.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity ids come from pooled sequences (<table>_seq, allocationSize 50):
+ * Hibernate gets 50 ids per nextval and can send the inserts of a flush as JDBC
+ * batches, which IDENTITY ids rule out (every insert had to return its id).
+ *
+ * Databases created with IDENTITY ids are migrated on startup, before Hibernate
+ * starts: the sequence of every table is created when missing and moved past
+ * the highest id already in the table. The old identity defaults of the id
+ * columns stay, they are simply not used anymore.
+ */
+@Configuration
+public class IdSequenceConfig {
+
+    // must match the allocationSize of the entities
+    public static final int ALLOCATION_SIZE = 50;
+
+    // tables of the entities, the sequence of each is <table>_seq
+    public static final List<String> TABLES = List.of("roles", "users", "customers", "drivers", "storages",
+            "storage_lanes", "parcel_lockers", "cabinets", "parcels", "parcel_status_history", "notifications");
+
+    private static final Logger logger = Logger.getLogger(IdSequenceConfig.class.getName());
+
+    /**
+     * JDBC batching of inserts and updates, ordered by entity so a flush of mixed
+     * entities still makes full batches. Values set in the configuration win.
+     */
+    @Bean
+    HibernatePropertiesCustomizer jdbcBatchingCustomizer(@Value("${tendrilex.jdbc.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+
+    @Bean
+    IdSequenceMigration idSequenceMigration(JdbcTemplate jdbcTemplate) {
+        IdSequenceMigration migration = new IdSequenceMigration(jdbcTemplate);
+        migration.migrate();
+        return migration;
+    }
+
+    /**
+     * Makes the entity manager factory wait for the migration
+     */
+    @Component
+    static class EntityManagerFactoryDependsOnIdSequenceMigration extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnIdSequenceMigration() {
+            super("idSequenceMigration");
+        }
+    }
+
+    public static class IdSequenceMigration {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        IdSequenceMigration(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        void migrate() {
+            for (String table : TABLES) {
+                String sequence = table + "_seq";
+                jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " START WITH 1 INCREMENT BY "
+                        + ALLOCATION_SIZE);
+
+                // a new database has no tables yet
+                if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table)) {
+                    moveSequencePastIds(table, sequence);
+                }
+            }
+        }
+
+        // with the pooled optimiser a nextval of v hands out v - 49 .. v, so the
+        // next value has to be at least max(id) + 50
+        private void moveSequencePastIds(String table, String sequence) {
+            long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            Map<String, Object> state = jdbcTemplate
+                    .queryForMap("SELECT last_value, is_called FROM " + sequence);
+
+            long last = ((Number) state.get("last_value")).longValue();
+            long next = Boolean.TRUE.equals(state.get("is_called")) ? last + ALLOCATION_SIZE : last;
+
+            if (maxId > 0 && next - ALLOCATION_SIZE + 1 <= maxId) {
+                jdbcTemplate.queryForObject("SELECT setval(?::regclass, ?)", Long.class, sequence, maxId);
+                logger.info("Moved " + sequence + " past the ids of " + table + " (max id " + maxId + ").");
+            }
+        }
+    }
+
+}
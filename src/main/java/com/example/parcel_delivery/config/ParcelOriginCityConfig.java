@@ -0,0 +1,51 @@
+package com.example.parcel_delivery.config;
+
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.parcel_delivery.repositories.ParcelAssignmentJdbcRepo;
+
+/**
+ * parcels.origin_city is set by the entity on every save. On startup the
+ * parcels waiting for a driver that were saved before the column existed get
+ * it (the storage city for a parcel in a storage), and the partial index the batch assignment pages on is created: only
+ * the waiting parcels, ordered by (origin_city, id), so a keyset page reads
+ * its rows in index order instead of sorting the backlog.
+ */
+@Component
+@Order(0)
+public class ParcelOriginCityConfig implements CommandLineRunner {
+
+    private static final String BACKFILL = "UPDATE parcels p SET origin_city = COALESCE("
+            + "(SELECT st.city FROM storages st WHERE st.id = p.storage_id), "
+            + "(SELECT u.city FROM customers c JOIN users u ON u.id = c.user_id WHERE c.id = p.sender_id)) "
+            + "WHERE p.origin_city IS NULL AND p.status IN " + ParcelAssignmentJdbcRepo.ASSIGNABLE_STATUSES;
+
+    // parcels waiting in a storage that were saved with the sender's city
+    // (final deliveries used to be)
+    private static final String STORAGE_CITY = "UPDATE parcels p SET origin_city = st.city FROM storages st "
+            + "WHERE st.id = p.storage_id AND p.origin_city IS DISTINCT FROM st.city "
+            + "AND p.status IN " + ParcelAssignmentJdbcRepo.ASSIGNABLE_STATUSES;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final Logger logger = Logger.getLogger(ParcelOriginCityConfig.class.getName());
+
+    @Override
+    public void run(String... args) {
+        int located = jdbcTemplate.update(BACKFILL) + jdbcTemplate.update(STORAGE_CITY);
+        if (located > 0) {
+            logger.info("Origin city set on " + located + " waiting parcels");
+        }
+
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_parcel_assignable_origin ON parcels (origin_city, id) "
+                + "WHERE status IN " + ParcelAssignmentJdbcRepo.ASSIGNABLE_STATUSES);
+    }
+
+}
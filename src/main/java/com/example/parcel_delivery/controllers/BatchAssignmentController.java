@@ -0,0 +1,48 @@
+package com.example.parcel_delivery.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.parcel_delivery.models.dtos.responses.AssignmentLatencyResDTO;
+import com.example.parcel_delivery.models.dtos.responses.AssignmentRunResDTO;
+import com.example.parcel_delivery.services.AssignmentMetricsService;
+import com.example.parcel_delivery.services.BatchParcelAssignmentService;
+
+import lombok.AllArgsConstructor;
+
+@RestController
+@RequestMapping("/api/batch-assignment")
+@AllArgsConstructor
+public class BatchAssignmentController {
+
+        @Autowired
+        private BatchParcelAssignmentService batchParcelAssignmentService;
+
+        @Autowired
+        private AssignmentMetricsService assignmentMetricsService;
+
+        // Endpoint to get the per-city timings and outcomes of the last batch run
+        @GetMapping("/report")
+        public ResponseEntity<AssignmentRunResDTO> getLastRunReport() {
+                return ResponseEntity.ok(batchParcelAssignmentService.getLastRunReport());
+        }
+
+        // Endpoint to get the time from drop-off to assignment (p50 / p95 / max)
+        @GetMapping("/latency")
+        public ResponseEntity<AssignmentLatencyResDTO> getAssignmentLatency() {
+                return ResponseEntity.ok(assignmentMetricsService.getAssignmentLatency());
+        }
+
+        // Endpoint to compute the plan of a batch run without writing anything
+        @PostMapping("/dry-run")
+        public ResponseEntity<AssignmentRunResDTO> dryRun(@RequestParam(required = false) String strategy,
+                        @RequestParam(required = false) String intraMatching) {
+                return ResponseEntity.ok(batchParcelAssignmentService.dryRunBatchAssignParcels(strategy, intraMatching));
+        }
+
+}
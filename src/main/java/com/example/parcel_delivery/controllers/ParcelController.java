@@ -12,9 +12,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.parcel_delivery.models.dtos.responses.DriverRouteResDTO;
 import com.example.parcel_delivery.models.dtos.responses.ParcelResDTO;
 import com.example.parcel_delivery.models.entities.Parcel;
 import com.example.parcel_delivery.models.mappers.ParcelMapper;
+import com.example.parcel_delivery.services.DriverRouteService;
 import com.example.parcel_delivery.services.ParcelService;
 import com.example.parcel_delivery.models.dtos.requests.ParcelReqDTO;
 
@@ -31,6 +33,9 @@ public class ParcelController {
         @Autowired
         private ParcelMapper parcelMapper;
 
+        @Autowired
+        private DriverRouteService driverRouteService;
+
         // Endpoint to send a new parcel
         @PostMapping("/send")
         public ResponseEntity<ParcelResDTO> sendNewParcel(@RequestBody ParcelReqDTO request) {
@@ -173,6 +178,12 @@ public class ParcelController {
                 return ResponseEntity.ok(dtoList);
         }
 
+        // Endpoint to get the stops of an intra-city driver in the order to visit them
+        @GetMapping("/driver/intra-city/{driverId}/route")
+        public ResponseEntity<DriverRouteResDTO> getIntraCityDriverRoute(@PathVariable Long driverId) {
+                return ResponseEntity.ok(driverRouteService.getIntraCityDriverRoute(driverId));
+        }
+
         // Endpoint to get parcels assigned to an inter-city driver
         @GetMapping("/driver/inter-city/{driverId}/parcels")
         public ResponseEntity<List<ParcelResDTO>> getParcelsAssignedToInterCityDriver(@PathVariable Long driverId) {
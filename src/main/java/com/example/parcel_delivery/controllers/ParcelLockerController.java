@@ -7,12 +7,15 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.parcel_delivery.models.mappers.ParcelLockerMapper;
 import com.example.parcel_delivery.models.dtos.requests.CustomerLocationReqDTO;
+import com.example.parcel_delivery.models.dtos.responses.LockerUtilisationResDTO;
 import com.example.parcel_delivery.models.dtos.responses.ParcelLockerResDTO;
 import com.example.parcel_delivery.models.entities.ParcelLocker;
+import com.example.parcel_delivery.services.CabinetService;
 import com.example.parcel_delivery.services.ParcelLockerService;
 
 import jakarta.validation.Valid;
@@ -29,6 +32,9 @@ public class ParcelLockerController {
     @Autowired
     private ParcelLockerMapper parcelLockerMapper;
 
+    @Autowired
+    private CabinetService cabinetService;
+
     @GetMapping("/nearest5")
     public ResponseEntity<List<ParcelLockerResDTO>> getFiveNearestAvailablelockers(
             @RequestBody @Valid CustomerLocationReqDTO locationReqDTO) {
@@ -41,4 +47,10 @@ public class ParcelLockerController {
         return ResponseEntity.ok(dtoList);
     }
 
+    @GetMapping("/utilisation")
+    public ResponseEntity<List<LockerUtilisationResDTO>> getLockerUtilisation(
+            @RequestParam(required = false) String city) {
+        return ResponseEntity.ok(cabinetService.getLockerUtilisation(city));
+    }
+
 }
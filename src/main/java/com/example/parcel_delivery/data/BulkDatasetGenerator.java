@@ -0,0 +1,539 @@
+package com.example.parcel_delivery.data;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.example.parcel_delivery.models.enums.CabinetSize;
+import com.example.parcel_delivery.models.enums.CabinetStatus;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+import com.example.parcel_delivery.models.enums.ParcelType;
+import com.example.parcel_delivery.models.enums.ServiceLevel;
+
+/**
+ * Seeds a national scale dataset (lockers, cabinets and delivered parcels) for
+ * performance environments. The rows are generated on the fly and streamed
+ * through postgres COPY, without Hibernate and without one round trip per row.
+ *
+ * Every city is loaded on its own connection and in one transaction, several
+ * cities at a time. A city whose bulk lockers are already there is skipped, so
+ * running the seeding again only fills in the cities that are missing (or that
+ * failed half way, since their transaction was rolled back). The data of a city
+ * only depends on the seed and the city, never on the other cities.
+ *
+ * Parcels are sent between customers of the cities. A configured city without
+ * any customer (the Loader only creates them in Helsinki and Oulu) first gets
+ * customers-per-city of its own, before the cities are seeded.
+ *
+ * Ids come from the id sequences of the tables, reserved in blocks, so the rows
+ * never clash with rows the application inserts next to them.
+ */
+@Component
+public class BulkDatasetGenerator {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${tendrilex.seed.bulk.cities:Helsinki,Espoo,Tampere,Vantaa,Oulu}")
+    private List<String> cities;
+
+    @Value("${tendrilex.seed.bulk.lockers-per-city:2000}")
+    private int lockersPerCity;
+
+    @Value("${tendrilex.seed.bulk.cabinets-per-locker:10}")
+    private int cabinetsPerLocker;
+
+    @Value("${tendrilex.seed.bulk.customers-per-city:1000}")
+    private int customersPerCity;
+
+    @Value("${tendrilex.seed.bulk.parcels-per-city:200000}")
+    private int parcelsPerCity;
+
+    // parcels delivered within this many days
+    @Value("${tendrilex.seed.bulk.history-days:365}")
+    private int historyDays;
+
+    @Value("${tendrilex.seed.bulk.inter-city-share:0.3}")
+    private double interCityShare;
+
+    @Value("${tendrilex.seed.bulk.parallelism:4}")
+    private int parallelism;
+
+    @Value("${tendrilex.seed.bulk.seed:42}")
+    private long seed;
+
+    private static final Logger logger = Logger.getLogger(BulkDatasetGenerator.class.getName());
+
+    // ids reserved per round trip to the sequence
+    private static final int ID_BLOCK = 10_000;
+
+    // COPY data is sent in chunks of about this many bytes
+    private static final int COPY_CHUNK = 1 << 16;
+
+    private static final double RADIUS_KM = 35;
+
+    // city centres (lat, lon)
+    private static final Map<String, double[]> CENTRES = Map.of(
+            "Helsinki", new double[] { 60.192059, 24.945831 },
+            "Espoo", new double[] { 60.2055, 24.6559 },
+            "Vantaa", new double[] { 60.2934, 25.0378 },
+            "Tampere", new double[] { 61.4978, 23.7610 },
+            "Turku", new double[] { 60.4518, 22.2666 },
+            "Oulu", new double[] { 65.01236, 25.46816 },
+            "Jyväskylä", new double[] { 62.2426, 25.7473 },
+            "Lahti", new double[] { 60.9827, 25.6612 },
+            "Kuopio", new double[] { 62.8924, 27.6770 },
+            "Pori", new double[] { 61.4851, 21.7974 });
+
+    /**
+     * Seeds every configured city that is not seeded yet
+     *
+     * @return number of cities seeded by this call
+     */
+    public int generate() {
+        long start = System.nanoTime();
+        Map<String, List<Long>> customersByCity = loadCustomersByCity();
+        seedMissingCustomers(customersByCity);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                new CustomizableThreadFactory("bulk-seed-"));
+        Map<String, Future<Boolean>> runs = new LinkedHashMap<>();
+        try {
+            for (String city : cities) {
+                runs.put(city, executor.submit(() -> seedCity(city, customersByCity)));
+            }
+
+            int seeded = 0;
+            for (Map.Entry<String, Future<Boolean>> run : runs.entrySet()) {
+                try {
+                    seeded += run.getValue().get() ? 1 : 0;
+                } catch (ExecutionException e) {
+                    logger.severe("Bulk seeding of " + run.getKey() + " failed: " + e.getCause().getMessage());
+                }
+            }
+
+            logger.info("Bulk seeding: " + seeded + " of " + cities.size() + " cities seeded in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms.");
+            return seeded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean seedCity(String city, Map<String, List<Long>> customersByCity) throws SQLException {
+        double[] centre = CENTRES.get(city);
+        if (centre == null) {
+            logger.warning("Bulk seeding skips " + city + ": unknown city centre.");
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (isSeeded(connection, city)) {
+                    connection.rollback();
+                    return false;
+                }
+
+                SplittableRandom random = new SplittableRandom(seed ^ city.hashCode());
+                CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                boolean withoutTriggers = disableTriggers(connection);
+
+                long[] lockerIds = copyLockers(connection, copyManager, city, centre, random);
+                copyCabinets(connection, copyManager, lockerIds);
+                if (withoutTriggers) {
+                    countFreeCabinets(connection, lockerIds);
+                }
+                long parcels = copyParcels(connection, copyManager, city, lockerIds, customersByCity, random);
+
+                connection.commit();
+                logger.info("Bulk seeded " + city + ": " + lockerIds.length + " lockers, "
+                        + (long) lockerIds.length * cabinetsPerLocker + " cabinets, " + parcels + " parcels in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms.");
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // the free cabinet count trigger (FreeCabinetCountConfig) would update the
+    // locker row once per cabinet at commit; without triggers the city is counted
+    // once instead. Needs a role allowed to set session_replication_role, the
+    // trigger stays on otherwise.
+    private boolean disableTriggers(Connection connection) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCAL session_replication_role = replica");
+            connection.releaseSavepoint(savepoint);
+            return true;
+        } catch (SQLException e) {
+            connection.rollback(savepoint);
+            logger.info("Bulk seeding keeps the cabinet triggers on: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void countFreeCabinets(Connection connection, long[] lockerIds) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE parcel_lockers l "
+                + "SET free_cabinet_count = counts.free FROM (SELECT parcel_locker_id, COUNT(*) AS free "
+                + "FROM cabinets WHERE parcel_locker_id = ANY (?) AND status = 'FREE' GROUP BY parcel_locker_id) "
+                + "counts WHERE l.id = counts.parcel_locker_id")) {
+            statement.setArray(1, connection.createArrayOf("bigint",
+                    Arrays.stream(lockerIds).boxed().toArray(Long[]::new)));
+            statement.executeUpdate();
+        }
+    }
+
+    // the first bulk locker of a city is committed together with all the others
+    private boolean isSeeded(Connection connection, String city) throws SQLException {
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT 1 FROM parcel_lockers WHERE city = ? AND name = ?")) {
+            statement.setString(1, city);
+            statement.setString(2, lockerName(city, 1));
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private long[] copyLockers(Connection connection, CopyManager copyManager, String city, double[] centre,
+            SplittableRandom random) throws SQLException {
+        IdBlocks ids = new IdBlocks(connection, "parcel_lockers");
+        long[] lockerIds = new long[lockersPerCity];
+
+        try (CopyWriter copy = new CopyWriter(copyManager,
+                "COPY parcel_lockers (id, name, geo_location, city) FROM STDIN WITH (FORMAT csv)")) {
+            for (int i = 0; i < lockersPerCity; i++) {
+                // uniform on the disc around the centre
+                double distance = RADIUS_KM * Math.sqrt(random.nextDouble());
+                double angle = 2 * Math.PI * random.nextDouble();
+                double lat = centre[0] + distance * Math.sin(angle) / 111.0;
+                double lon = centre[1] + distance * Math.cos(angle) / (111.0 * Math.cos(Math.toRadians(centre[0])));
+
+                lockerIds[i] = ids.next();
+                copy.row(lockerIds[i], csv(lockerName(city, i + 1)), "SRID=4326;POINT(" + lon + " " + lat + ")",
+                        csv(city));
+            }
+        }
+        return lockerIds;
+    }
+
+    private void copyCabinets(Connection connection, CopyManager copyManager, long[] lockerIds)
+            throws SQLException {
+        IdBlocks ids = new IdBlocks(connection, "cabinets");
+
+        try (CopyWriter copy = new CopyWriter(copyManager,
+                "COPY cabinets (id, status, parcel_locker_id, width, height, depth, size_class) "
+                        + "FROM STDIN WITH (FORMAT csv)")) {
+            for (long lockerId : lockerIds) {
+                for (int j = 0; j < cabinetsPerLocker; j++) {
+                    CabinetSize size = Loader.seededCabinetSize(j, cabinetsPerLocker);
+                    copy.row(ids.next(), CabinetStatus.FREE, lockerId, size.getMiddleSide(), size.getLongSide(),
+                            size.getShortSide(), size.ordinal());
+                }
+            }
+        }
+    }
+
+    // delivered parcels spread over the history window; senders are customers of
+    // the city, recipients of the city or (inter-city) of another one
+    private long copyParcels(Connection connection, CopyManager copyManager, String city, long[] lockerIds,
+            Map<String, List<Long>> customersByCity, SplittableRandom random) throws SQLException {
+        List<Long> senders = customersByCity.get(city);
+        List<String> otherCities = new ArrayList<>(customersByCity.keySet());
+        otherCities.remove(city);
+
+        if (senders == null || parcelsPerCity == 0) {
+            logger.warning("Bulk seeding of " + city + " without parcels: no customers in the city.");
+            return 0;
+        }
+
+        IdBlocks ids = new IdBlocks(connection, "parcels");
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        try (CopyWriter copy = new CopyWriter(copyManager, "COPY parcels (id, width, height, depth, mass, "
+                + "description, is_recipient_registered, sender_transaction_code, sender_transaction_code_active, "
+                + "sender_transaction_code_valid_until, recipient_transaction_code_active, "
+                + "deliver_to_recipient_locker, status, parcel_type, service_level, sender_id, recipient_id, "
+                + "selected_locker_location_id, created_at, updated_at, status_updated_at, idempotency_key, "
+                + "idempotency_key_created_at, origin_city) FROM STDIN WITH (FORMAT csv)")) {
+            for (int i = 0; i < parcelsPerCity; i++) {
+                long id = ids.next();
+
+                boolean interCity = !otherCities.isEmpty() && random.nextDouble() < interCityShare;
+                List<Long> recipients = interCity
+                        ? customersByCity.get(otherCities.get(random.nextInt(otherCities.size())))
+                        : senders;
+                boolean toLocker = random.nextDouble() < 0.15;
+
+                LocalDateTime createdAt = now.minusSeconds(random.nextLong(historyDays * 86_400L));
+                LocalDateTime deliveredAt = createdAt.plusHours(4 + random.nextInt(interCity ? 92 : 44));
+                double mass = 0.5 + random.nextInt(200) / 10.0;
+
+                // historical codes are negative so they never clash with the live ones
+                copy.row(id, 10.0 + random.nextInt(40), 5.0 + random.nextInt(35), 5.0 + random.nextInt(30), mass,
+                        "Seeded parcel", true, -id, false, createdAt.plusDays(12), false, toLocker,
+                        toLocker ? ParcelStatus.DELIVERED_TO_RECIPIENT_LOCKER : ParcelStatus.DELIVERED_TO_RECIPIENT,
+                        interCity ? ParcelType.INTER_CITY : ParcelType.INTRA_CITY,
+                        random.nextDouble() < 0.1 ? ServiceLevel.EXPRESS : ServiceLevel.STANDARD,
+                        senders.get(random.nextInt(senders.size())), recipients.get(random.nextInt(recipients.size())),
+                        lockerIds[random.nextInt(lockerIds.length)], createdAt, deliveredAt, deliveredAt,
+                        csv("BULK-" + city + "-" + i), createdAt, csv(city));
+            }
+        }
+        return parcelsPerCity;
+    }
+
+    // one transaction for all cities, the parcels of every city are sent to the
+    // customers of the others
+    private void seedMissingCustomers(Map<String, List<Long>> customersByCity) {
+        List<String> missing = cities.stream()
+                .filter(city -> CENTRES.containsKey(city) && !customersByCity.containsKey(city))
+                .toList();
+        if (missing.isEmpty() || customersPerCity == 0) {
+            return;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                // the same hash for every seeded customer, bcrypt is slow on purpose
+                String password = passwordEncoder.encode("password");
+                long roleId = userRoleId(connection);
+
+                Map<String, List<Long>> seeded = new HashMap<>();
+                for (String city : missing) {
+                    seeded.put(city, copyCustomers(connection, copyManager, city, CENTRES.get(city), password,
+                            roleId, new SplittableRandom(seed ^ city.hashCode() ^ 0x5EED)));
+                }
+
+                connection.commit();
+                customersByCity.putAll(seeded);
+                logger.info("Bulk seeded " + customersPerCity + " customers in each of " + missing);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not seed the customers for bulk seeding", e);
+        }
+    }
+
+    private List<Long> copyCustomers(Connection connection, CopyManager copyManager, String city, double[] centre,
+            String password, long roleId, SplittableRandom random) throws SQLException {
+        IdBlocks userIds = new IdBlocks(connection, "users");
+        long[] users = new long[customersPerCity];
+
+        try (CopyWriter copy = new CopyWriter(copyManager, "COPY users (id, username, password, phone_number, "
+                + "email, first_name, last_name, address, postcode, city, location_point) "
+                + "FROM STDIN WITH (FORMAT csv)")) {
+            for (int i = 0; i < customersPerCity; i++) {
+                double distance = RADIUS_KM * Math.sqrt(random.nextDouble());
+                double angle = 2 * Math.PI * random.nextDouble();
+                double lat = centre[0] + distance * Math.sin(angle) / 111.0;
+                double lon = centre[1] + distance * Math.cos(angle) / (111.0 * Math.cos(Math.toRadians(centre[0])));
+
+                users[i] = userIds.next();
+                String username = "bulk" + city + i;
+                copy.row(users[i], csv(username), csv(password), "059" + (1000000 + users[i] % 9000000),
+                        csv(username + "@example.com"), csv(username + "FirstName"), csv(username + "LastName"),
+                        csv("Bulk Street " + i), "00100", csv(city), "SRID=4326;POINT(" + lon + " " + lat + ")");
+            }
+        }
+
+        try (CopyWriter copy = new CopyWriter(copyManager,
+                "COPY users_roles (user_id, role_id) FROM STDIN WITH (FORMAT csv)")) {
+            for (long userId : users) {
+                copy.row(userId, roleId);
+            }
+        }
+
+        IdBlocks customerIds = new IdBlocks(connection, "customers");
+        List<Long> customers = new ArrayList<>(customersPerCity);
+        try (CopyWriter copy = new CopyWriter(copyManager,
+                "COPY customers (id, user_id) FROM STDIN WITH (FORMAT csv)")) {
+            for (long userId : users) {
+                long id = customerIds.next();
+                copy.row(id, userId);
+                customers.add(id);
+            }
+        }
+        return customers;
+    }
+
+    private long userRoleId(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM roles WHERE name = ?")) {
+            statement.setString(1, "ROLE_USER");
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalStateException("ROLE_USER not found");
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private Map<String, List<Long>> loadCustomersByCity() {
+        Map<String, List<Long>> customersByCity = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT c.id, u.city FROM customers c "
+                        + "JOIN users u ON u.id = c.user_id WHERE u.city IS NOT NULL ORDER BY c.id");
+                ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                customersByCity.computeIfAbsent(rs.getString("city"), c -> new ArrayList<>()).add(rs.getLong("id"));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read the customers for bulk seeding", e);
+        }
+        return customersByCity;
+    }
+
+    private static String lockerName(String city, int number) {
+        return city + " Bulk Locker " + number;
+    }
+
+    private static String csv(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Hands out ids of a table from its sequence (<table>_seq, see
+     * IdSequenceConfig). Like the pooled optimiser of Hibernate, a nextval of v
+     * covers the increment_by ids up to v.
+     */
+    private static final class IdBlocks {
+
+        private final Connection connection;
+        private final String sequence;
+        private final long increment;
+
+        private final long[] block = new long[ID_BLOCK];
+        private int size;
+        private int next;
+
+        IdBlocks(Connection connection, String table) throws SQLException {
+            this.connection = connection;
+            this.sequence = table + "_seq";
+            try (PreparedStatement statement = connection
+                    .prepareStatement("SELECT seqincrement FROM pg_sequence WHERE seqrelid = to_regclass(?)")) {
+                statement.setString(1, sequence);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("No id sequence for " + table);
+                    }
+                    this.increment = rs.getLong(1);
+                }
+            }
+        }
+
+        long next() throws SQLException {
+            if (next == size) {
+                refill();
+            }
+            return block[next++];
+        }
+
+        private void refill() throws SQLException {
+            size = 0;
+            next = 0;
+            int values = (int) Math.max(1, ID_BLOCK / increment);
+            try (PreparedStatement statement = connection
+                    .prepareStatement("SELECT nextval(?::regclass) FROM generate_series(1, ?)")) {
+                statement.setString(1, sequence);
+                statement.setInt(2, values);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        long last = rs.getLong(1);
+                        // the first value of a new sequence has nothing below it
+                        for (long id = Math.max(1, last - increment + 1); id <= last && size < block.length; id++) {
+                            block[size++] = id;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams csv rows into one COPY, a chunk at a time
+     */
+    private static final class CopyWriter implements AutoCloseable {
+
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(COPY_CHUNK + 1024);
+
+        CopyWriter(CopyManager copyManager, String sql) throws SQLException {
+            this.copyIn = copyManager.copyIn(sql);
+        }
+
+        void row(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                buffer.append(values[i]);
+            }
+            buffer.append('\n');
+            if (buffer.length() >= COPY_CHUNK) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        }
+    }
+
+}
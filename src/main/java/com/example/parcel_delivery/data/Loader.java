@@ -4,12 +4,14 @@ import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
 import java.util.List;
+import java.util.Map;
 import java.util.Arrays;
 
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.core.annotation.Order;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -21,7 +23,9 @@ import com.example.parcel_delivery.models.entities.Driver;
 import com.example.parcel_delivery.models.entities.ParcelLocker;
 import com.example.parcel_delivery.models.entities.Role;
 import com.example.parcel_delivery.models.entities.Storage;
+import com.example.parcel_delivery.models.entities.StorageLane;
 import com.example.parcel_delivery.models.entities.User;
+import com.example.parcel_delivery.models.enums.CabinetSize;
 import com.example.parcel_delivery.models.enums.CabinetStatus;
 import com.example.parcel_delivery.models.enums.DriverType;
 import com.example.parcel_delivery.repositories.CabinetRepo;
@@ -29,8 +33,10 @@ import com.example.parcel_delivery.repositories.CustomerRepo;
 import com.example.parcel_delivery.repositories.DriverRepo;
 import com.example.parcel_delivery.repositories.ParcelLockerRepo;
 import com.example.parcel_delivery.repositories.RoleRepo;
+import com.example.parcel_delivery.repositories.StorageLaneRepo;
 import com.example.parcel_delivery.repositories.StorageRepo;
 import com.example.parcel_delivery.repositories.UserRepo;
+import com.example.parcel_delivery.services.impl.BinPackingAssignmentStrategy;
 
 @Component
 @Order(1) // Lower values have higher priority
@@ -54,23 +60,47 @@ public class Loader implements CommandLineRunner {
     @Autowired
     private StorageRepo storageRepo;
 
+    @Autowired
+    private StorageLaneRepo storageLaneRepo;
+
     @Autowired
     private RoleRepo roleRepository;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private BulkDatasetGenerator bulkDatasetGenerator;
+
+    // national scale lockers, cabinets and parcel history through COPY instead of
+    // the few demo lockers
+    @Value("${tendrilex.seed.bulk.enabled:false}")
+    private boolean bulkSeeding;
+
     private static final double RADIUS = 35000; // 35 km in meters
     private Random random = new Random();
 
+    // (lat, lon) of the cities the drivers are seeded in, as the lockers
+    private static final Map<String, double[]> DRIVER_CITY_CENTRES = Map.of(
+            "Helsinki", new double[] { 60.192059, 24.945831 },
+            "Oulu", new double[] { 65.01236, 25.46816 });
+
     @Override
     public void run(String... args) throws Exception {
         System.out.println("beginging of loader");
 
         generateStorages();
-        generateParcelLockers();
+        generateStorageLanes();
+        if (!bulkSeeding) {
+            generateParcelLockers();
+        }
         generateRecipients(10);
         generateDriversInCities();
+
+        // after the customers, the seeded parcels are sent between them
+        if (bulkSeeding) {
+            bulkDatasetGenerator.generate();
+        }
     }
 
     private void generateStorages() {
@@ -86,6 +116,30 @@ public class Loader implements CommandLineRunner {
         });
     }
 
+    // approximate road km between the storages, both directions
+    private void generateStorageLanes() {
+        if (storageLaneRepo.count() > 0) {
+            return;
+        }
+
+        Object[][] roads = {
+                { "Helsinki", "Espoo", 20.0, 400 },
+                { "Helsinki", "Vantaa", 18.0, 400 },
+                { "Espoo", "Vantaa", 22.0, 200 },
+                { "Helsinki", "Tampere", 180.0, 300 },
+                { "Vantaa", "Tampere", 165.0, 150 },
+                { "Tampere", "Oulu", 490.0, 200 },
+                { "Helsinki", "Oulu", 610.0, 100 },
+        };
+
+        for (Object[] road : roads) {
+            Storage from = storageRepo.findByCity((String) road[0]).orElseThrow();
+            Storage to = storageRepo.findByCity((String) road[1]).orElseThrow();
+            storageLaneRepo.save(new StorageLane(null, from, to, (Double) road[2], (Integer) road[3]));
+            storageLaneRepo.save(new StorageLane(null, to, from, (Double) road[2], (Integer) road[3]));
+        }
+    }
+
     private void generateParcelLockers() {
         GeometryFactory geometryFactory = new GeometryFactory();
         Random random = new Random();
@@ -105,14 +159,16 @@ public class Loader implements CommandLineRunner {
             ParcelLocker locker = new ParcelLocker();
             locker.setName(city + " Locker " + i);
             locker.setGeoLocation(location);
+            locker.setCity(city);
 
             Set<Cabinet> cabinets = new HashSet<>();
-            for (int j = 1; j <= 10; j++) {
+            for (int j = 0; j < 10; j++) {
+                CabinetSize size = seededCabinetSize(j, 10);
                 Cabinet cabinet = new Cabinet();
                 cabinet.setStatus(CabinetStatus.FREE);
-                cabinet.setWidth(50.0);
-                cabinet.setHeight(50.0);
-                cabinet.setDepth(50.0);
+                cabinet.setWidth(size.getMiddleSide());
+                cabinet.setHeight(size.getLongSide());
+                cabinet.setDepth(size.getShortSide());
                 cabinet.setParcelLocker(locker);
                 cabinets.add(cabinet);
             }
@@ -123,6 +179,14 @@ public class Loader implements CommandLineRunner {
         }
     }
 
+    // 30% small, 30% medium and 40% large cabinets per locker
+    static CabinetSize seededCabinetSize(int index, int cabinets) {
+        if (index < cabinets * 3 / 10) {
+            return CabinetSize.SMALL;
+        }
+        return index < cabinets * 6 / 10 ? CabinetSize.MEDIUM : CabinetSize.LARGE;
+    }
+
     private double[] generateRandomPoint(double latitude, double longitude, double radius, Random random) {
         // Convert radius from meters to degrees
         double radiusInDegrees = radius / 111000f;
@@ -176,10 +240,24 @@ public class Loader implements CommandLineRunner {
     private void createDriverUser(String city, DriverType driverType) {
         User driverUser = createUser("driver" + city + random.nextInt(1000), "Driver Street " + random.nextInt(100),
                 city);
+        // home of the driver somewhere in the city, the min-cost matching and the
+        // insertion measure from it
+        double[] centre = DRIVER_CITY_CENTRES.get(city);
+        if (centre != null) {
+            double[] home = generateRandomPoint(centre[0], centre[1], RADIUS, random);
+            Point homePoint = new GeometryFactory().createPoint(new Coordinate(home[1], home[0]));
+            homePoint.setSRID(4326);
+            driverUser.setUserPoint(homePoint);
+            driverUser = userRepository.save(driverUser);
+        }
+
         Driver driver = new Driver();
         driver.setUser(driverUser);
         driver.setDriverType(driverType);
         driver.setIsAvailable(true);
+        // small vans inside a city, trucks between cities
+        driver.setVehicleVolumeCapacity(BinPackingAssignmentStrategy.volumeCapacityOf(driver));
+        driver.setVehicleMassCapacity(BinPackingAssignmentStrategy.massCapacityOf(driver));
         driverRepository.save(driver);
     }
 
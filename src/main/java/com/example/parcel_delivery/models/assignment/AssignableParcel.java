@@ -0,0 +1,31 @@
+package com.example.parcel_delivery.models.assignment;
+
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+import com.example.parcel_delivery.models.enums.ParcelType;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Lightweight view of a parcel waiting for a driver. The batch assignment pages
+ * through these instead of loading the whole entity graph of every parcel.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class AssignableParcel {
+
+    private final Long id;
+
+    private final ParcelStatus status;
+
+    private final ParcelType parcelType;
+
+    private final String originCity;
+
+    private final String destinationCity;
+
+    private final Long lockerId;
+
+}
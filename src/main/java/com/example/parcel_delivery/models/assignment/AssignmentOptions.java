@@ -0,0 +1,31 @@
+package com.example.parcel_delivery.models.assignment;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How one assignment run decides: the strategy filling the vans, how intra-city
+ * drivers are matched, and whether the result is written at all.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class AssignmentOptions {
+
+    private final String strategy;
+
+    private final String intraMatching;
+
+    // the plan is computed and reported, but nothing is written
+    private final boolean dryRun;
+
+    // a few parcels of the incremental assignment: no low-volume fallback, a
+    // trickle of parcels does not take a whole driver
+    private final boolean incremental;
+
+    public AssignmentOptions(String strategy, String intraMatching, boolean dryRun) {
+        this(strategy, intraMatching, dryRun, false);
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.example.parcel_delivery.models.assignment;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+
+/**
+ * What every driver of a city already carries plus what the current run gives
+ * them. It is preloaded once with a single grouped query, so the assignment
+ * loops never count parcels per driver in the database.
+ *
+ * The values are kept in primitive arrays indexed by the position of the driver
+ * in the ledger.
+ */
+public class DriverLoadLedger {
+
+    private final Map<Long, Integer> indexByDriverId = new HashMap<>();
+
+    private final int[] parcels;
+
+    private final double[] volumes;
+
+    private final double[] masses;
+
+    public DriverLoadLedger(Collection<Long> driverIds) {
+        for (Long driverId : driverIds) {
+            indexByDriverId.putIfAbsent(driverId, indexByDriverId.size());
+        }
+        parcels = new int[indexByDriverId.size()];
+        volumes = new double[indexByDriverId.size()];
+        masses = new double[indexByDriverId.size()];
+    }
+
+    /**
+     * Sets what a driver carries before the run (rows already in the database)
+     * 
+     * @param driverId
+     * @param parcelCount
+     * @param volume
+     * @param mass
+     */
+    public void preload(Long driverId, int parcelCount, double volume, double mass) {
+        Integer index = indexByDriverId.get(driverId);
+        if (index == null) {
+            return;
+        }
+        parcels[index] = parcelCount;
+        volumes[index] = volume;
+        masses[index] = mass;
+    }
+
+    public void add(Driver driver, Parcel parcel) {
+        int index = indexOf(driver);
+        parcels[index]++;
+        volumes[index] += VehicleLoad.volumeOf(parcel);
+        masses[index] += parcel.getMass();
+    }
+
+    public int parcelsOf(Driver driver) {
+        return parcels[indexOf(driver)];
+    }
+
+    public double volumeOf(Driver driver) {
+        return volumes[indexOf(driver)];
+    }
+
+    public double massOf(Driver driver) {
+        return masses[indexOf(driver)];
+    }
+
+    public int size() {
+        return parcels.length;
+    }
+
+    private int indexOf(Driver driver) {
+        Integer index = indexByDriverId.get(driver.getId());
+        if (index == null) {
+            throw new IllegalArgumentException("Driver " + driver.getId() + " is not part of the ledger");
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.example.parcel_delivery.models.assignment;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * What the flush of a plan really wrote. A parcel another node or the
+ * incremental assignment took in the meantime is not in writtenParcelIds, a
+ * driver whose parcels were all taken is not in markedDriverIds.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class FlushResult {
+
+    private final int statements;
+
+    private final Set<Long> writtenParcelIds;
+
+    private final Set<Long> markedDriverIds;
+
+}
@@ -0,0 +1,24 @@
+package com.example.parcel_delivery.models.assignment;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Inter-city parcel waiting in a storage: where it is, where its current leg
+ * goes (null when not routed yet) and where it finally goes
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class HubParcel {
+
+    private final Long id;
+
+    private final String currentCity;
+
+    private final String nextHopCity;
+
+    private final String destinationCity;
+
+}
@@ -0,0 +1,45 @@
+package com.example.parcel_delivery.models.assignment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inter-city parcels waiting for pickup, keyed by lane (origin city ->
+ * destination city). It is built once per run, so the way back of a trip
+ * (destination -> origin) is a map lookup instead of a query per lane.
+ */
+public class InterCityLaneIndex {
+
+    private final Map<Lane, List<Long>> pendingByLane = new HashMap<>();
+
+    public void add(AssignableParcel parcel) {
+        pendingByLane.computeIfAbsent(new Lane(parcel.getOriginCity(), parcel.getDestinationCity()),
+                lane -> new ArrayList<>()).add(parcel.getId());
+    }
+
+    /**
+     * Parcels waiting at the origin city for the given destination
+     * 
+     * @param origin
+     * @param destination
+     * @return
+     */
+    public List<Long> pendingIds(String origin, String destination) {
+        return pendingByLane.getOrDefault(new Lane(origin, destination), Collections.emptyList());
+    }
+
+    public int laneCount() {
+        return pendingByLane.size();
+    }
+
+    public int size() {
+        return pendingByLane.values().stream().mapToInt(List::size).sum();
+    }
+
+    public record Lane(String origin, String destination) {
+    }
+
+}
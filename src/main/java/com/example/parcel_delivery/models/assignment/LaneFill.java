@@ -0,0 +1,60 @@
+package com.example.parcel_delivery.models.assignment;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How well the inter-city drivers sent on one lane were used: parcels on both
+ * legs and drivers that come back empty.
+ */
+@Getter
+@ToString
+public class LaneFill {
+
+    private final String origin;
+
+    private final String destination;
+
+    private int drivers;
+
+    private int outgoingParcels;
+
+    private int returnParcels;
+
+    private int emptyBackhauls;
+
+    public LaneFill(String origin, String destination) {
+        this.origin = origin;
+        this.destination = destination;
+    }
+
+    /**
+     * Records one driver of the lane and what it got on both legs
+     * 
+     * @param outgoing
+     * @param back
+     */
+    public void addDriver(int outgoing, int back) {
+        if (outgoing + back == 0) {
+            return;
+        }
+        drivers++;
+        outgoingParcels += outgoing;
+        returnParcels += back;
+        if (back == 0) {
+            emptyBackhauls++;
+        }
+    }
+
+    /**
+     * Share of the parcel slots used on one leg
+     * 
+     * @param parcels
+     * @param parcelsPerDriver
+     * @return
+     */
+    public double fillRate(int parcels, int parcelsPerDriver) {
+        return drivers == 0 ? 0 : (double) parcels / (drivers * parcelsPerDriver);
+    }
+
+}
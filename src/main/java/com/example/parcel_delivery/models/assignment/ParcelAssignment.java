@@ -0,0 +1,24 @@
+package com.example.parcel_delivery.models.assignment;
+
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A single parcel -> driver decision taken by the batch assignment. It is only
+ * kept in memory until the plan of its city is flushed.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ParcelAssignment {
+
+    private final Long parcelId;
+
+    private final Long driverId;
+
+    private final ParcelStatus status;
+
+}
@@ -0,0 +1,154 @@
+package com.example.parcel_delivery.models.assignment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+
+import lombok.Getter;
+
+/**
+ * Collects the decisions of the batch assignment for one city so they can be
+ * written with a few set-based statements instead of one save per parcel and
+ * per driver.
+ */
+@Getter
+public class ParcelAssignmentPlan {
+
+    private final String city;
+
+    private final AssignmentOptions options;
+
+    private final List<ParcelAssignment> assignments = new ArrayList<>();
+
+    // what the drivers of the city carry, before and during this run
+    private final DriverLoadLedger ledger;
+
+    private final Set<Long> unavailableDriverIds = new LinkedHashSet<>();
+
+    // parcels of every driver in the order they were given
+    private final Map<Long, List<Parcel>> parcelsByDriver = new LinkedHashMap<>();
+
+    private final Map<Long, Driver> driversById = new HashMap<>();
+
+    // outgoing (or only) leg of every driver
+    private final Map<Long, VehicleLoad> loadByDriver = new HashMap<>();
+
+    // way back of inter-city drivers, the van is emptied at the destination first
+    private final Map<Long, VehicleLoad> returnLoadByDriver = new HashMap<>();
+
+    // inter-city lanes served by this plan
+    private final List<LaneFill> lanes = new ArrayList<>();
+
+    public ParcelAssignmentPlan(String city, AssignmentOptions options, DriverLoadLedger ledger) {
+        this.city = city;
+        this.options = options;
+        this.ledger = ledger;
+    }
+
+    /**
+     * Records that a parcel goes to a driver with the given status
+     * 
+     * @param parcel
+     * @param driver
+     * @param status
+     */
+    public void assign(Parcel parcel, Driver driver, ParcelStatus status) {
+        VehicleLoad load = loadOf(driver);
+        record(parcel, driver, status);
+        load.add(parcel);
+    }
+
+    /**
+     * Same as assign but the parcel travels on the way back of an inter-city
+     * driver
+     * 
+     * @param parcel
+     * @param driver
+     * @param status
+     */
+    public void assignReturnLeg(Parcel parcel, Driver driver, ParcelStatus status) {
+        record(parcel, driver, status);
+        returnLoadOf(driver).add(parcel);
+    }
+
+    private void record(Parcel parcel, Driver driver, ParcelStatus status) {
+        assignments.add(new ParcelAssignment(parcel.getId(), driver.getId(), status));
+        ledger.add(driver, parcel);
+        parcelsByDriver.computeIfAbsent(driver.getId(), id -> new ArrayList<>()).add(parcel);
+        driversById.putIfAbsent(driver.getId(), driver);
+    }
+
+    /**
+     * Outgoing (or only) leg of a driver. It starts with what the driver already
+     * carried before the run.
+     * 
+     * @param driver
+     * @return
+     */
+    public VehicleLoad loadOf(Driver driver) {
+        return loadByDriver.computeIfAbsent(driver.getId(),
+                id -> new VehicleLoad(ledger.parcelsOf(driver), ledger.volumeOf(driver), ledger.massOf(driver)));
+    }
+
+    public VehicleLoad returnLoadOf(Driver driver) {
+        return returnLoadByDriver.computeIfAbsent(driver.getId(), id -> new VehicleLoad());
+    }
+
+    /**
+     * how many parcels a driver has: already in the database plus the ones given by
+     * this plan
+     * 
+     * @param driver
+     * @return
+     */
+    public int countAssignedTo(Driver driver) {
+        return ledger.parcelsOf(driver);
+    }
+
+    /**
+     * Starts the statistics of the lane from this city to the destination
+     * 
+     * @param destination
+     * @return
+     */
+    public LaneFill openLane(String destination) {
+        LaneFill lane = new LaneFill(city, destination);
+        lanes.add(lane);
+        return lane;
+    }
+
+    public void markUnavailable(Driver driver) {
+        unavailableDriverIds.add(driver.getId());
+    }
+
+    public boolean isUnavailable(Driver driver) {
+        return unavailableDriverIds.contains(driver.getId()) || !driver.getIsAvailable();
+    }
+
+    /**
+     * Drops what the flush could not write, so the plan reports what is in the
+     * database
+     * 
+     * @param flushed
+     */
+    public void retainWritten(FlushResult flushed) {
+        assignments.removeIf(assignment -> !flushed.getWrittenParcelIds().contains(assignment.getParcelId()));
+        parcelsByDriver.values()
+                .forEach(parcels -> parcels.removeIf(parcel -> !flushed.getWrittenParcelIds().contains(parcel.getId())));
+        parcelsByDriver.values().removeIf(List::isEmpty);
+        unavailableDriverIds.retainAll(flushed.getMarkedDriverIds());
+    }
+
+    public boolean isEmpty() {
+        return assignments.isEmpty() && unavailableDriverIds.isEmpty();
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.example.parcel_delivery.models.assignment;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+import com.example.parcel_delivery.models.enums.ParcelType;
+
+/**
+ * How the assignment splits the parcels of a city between intra-city and
+ * inter-city drivers and groups the inter-city ones by lane. Kept apart from the
+ * services so the benchmarks measure the same code.
+ */
+public final class ParcelGrouping {
+
+    private ParcelGrouping() {
+    }
+
+    /**
+     * Inter parcels of status AWAITING_DEPARTURE_STORAGE_PICKUP or
+     * AWAITING_FINAL_DELIVERY, and intra parcels of status
+     * AWAITING_INTRA_CITY_PICKUP
+     * 
+     * @param parcel
+     * @return
+     */
+    public static boolean isForIntraDriver(Parcel parcel) {
+        return parcel.getStatus() == ParcelStatus.AWAITING_DEPARTURE_STORAGE_PICKUP
+                && parcel.getParcelType() == ParcelType.INTER_CITY
+                || parcel.getStatus() == ParcelStatus.AWAITING_FINAL_DELIVERY
+                        && parcel.getParcelType() == ParcelType.INTER_CITY
+                || parcel.getStatus() == ParcelStatus.AWAITING_INTRA_CITY_PICKUP
+                        && parcel.getParcelType() == ParcelType.INTRA_CITY;
+    }
+
+    public static boolean isForInterDriver(Parcel parcel) {
+        return parcel.getStatus() == ParcelStatus.AWAITING_INTER_CITY_PICKUP
+                && parcel.getParcelType() == ParcelType.INTER_CITY;
+    }
+
+    public static List<Parcel> forIntraDrivers(List<Parcel> parcels) {
+        return parcels.stream().filter(ParcelGrouping::isForIntraDriver).collect(Collectors.toList());
+    }
+
+    /**
+     * The inter-city parcels grouped by the city of their current leg, most
+     * urgent parcels (and lanes) first
+     * 
+     * @param parcels
+     * @return
+     */
+    public static Map<String, List<Parcel>> forInterDriversByHop(List<Parcel> parcels) {
+        return ParcelPriority.mostUrgentFirst(parcels).stream()
+                .filter(ParcelGrouping::isForInterDriver)
+                .collect(Collectors.groupingBy(ParcelGrouping::hopCityOf, LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /**
+     * Parcels grouped by the storage city they wait in, most urgent first
+     * 
+     * @param parcels
+     * @return
+     */
+    public static Map<String, List<Parcel>> byCurrentCity(List<Parcel> parcels) {
+        return ParcelPriority.mostUrgentFirst(parcels).stream()
+                .collect(Collectors.groupingBy(ParcelGrouping::currentCityOf));
+    }
+
+    public static String destinationCityOf(Parcel parcel) {
+        return parcel.getRecipient() != null
+                ? parcel.getRecipient().getUser().getCity()
+                : parcel.getUnregisteredRecipientCity();
+    }
+
+    // where the current inter-city leg goes: the next hub, or the destination
+    public static String hopCityOf(Parcel parcel) {
+        return parcel.getNextHopCity() != null ? parcel.getNextHopCity() : destinationCityOf(parcel);
+    }
+
+    // where the parcel is picked up next: its storage (departure storage, hub or
+    // destination storage), the sender's city otherwise; as Parcel.originCity
+    public static String currentCityOf(Parcel parcel) {
+        return parcel.getStorage() != null ? parcel.getStorage().getCity() : parcel.getSender().getUser().getCity();
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.example.parcel_delivery.models.assignment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.ServiceLevel;
+
+/**
+ * Order in which the parcels of a city are given to drivers: express before
+ * standard, then the parcel waiting the longest (statusUpdatedAt), then the one
+ * whose sender code expires first.
+ */
+public final class ParcelPriority {
+
+    // equal for parcels that are just as urgent, so a caller can break the tie
+    public static final Comparator<Parcel> URGENCY = Comparator
+            .comparing(ParcelPriority::serviceLevelOf)
+            .thenComparing(Parcel::getStatusUpdatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(Parcel::getSenderTransactionCodeValidUntil,
+                    Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()));
+
+    public static final Comparator<Parcel> MOST_URGENT_FIRST = URGENCY
+            .thenComparing(Parcel::getId, Comparator.nullsLast(Comparator.<Long>naturalOrder()));
+
+    private ParcelPriority() {
+    }
+
+    /**
+     * Drains the parcels through a priority queue, most urgent first
+     * 
+     * @param parcels
+     * @return a new list
+     */
+    public static List<Parcel> mostUrgentFirst(List<Parcel> parcels) {
+        PriorityQueue<Parcel> queue = new PriorityQueue<>(Math.max(1, parcels.size()), MOST_URGENT_FIRST);
+        queue.addAll(parcels);
+
+        List<Parcel> ordered = new ArrayList<>(parcels.size());
+        while (!queue.isEmpty()) {
+            ordered.add(queue.poll());
+        }
+        return ordered;
+    }
+
+    public static ServiceLevel serviceLevelOf(Parcel parcel) {
+        return parcel.getServiceLevel() != null ? parcel.getServiceLevel() : ServiceLevel.STANDARD;
+    }
+
+}
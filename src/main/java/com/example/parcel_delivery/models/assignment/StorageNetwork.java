@@ -0,0 +1,191 @@
+package com.example.parcel_delivery.models.assignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The storages and the lanes between them, with what every lane already
+ * carries in the current run.
+ *
+ * A lane costs its km once per trip of parcelsPerTrip parcels, so a parcel
+ * that fits in a trip already running on the lane is almost free: routing the
+ * big flows first and the small ones after makes the small ones ride along
+ * (consolidation). Every lane taken also costs hubHandlingKm per parcel, which
+ * keeps parcels off detours that save nothing.
+ */
+public class StorageNetwork {
+
+    private final int parcelsPerTrip;
+
+    private final double hubHandlingKm;
+
+    private final Map<String, Integer> nodes = new HashMap<>();
+
+    private final List<String> cities = new ArrayList<>();
+
+    private final List<List<Lane>> lanesFrom = new ArrayList<>();
+
+    public StorageNetwork(int parcelsPerTrip, double hubHandlingKm) {
+        this.parcelsPerTrip = parcelsPerTrip;
+        this.hubHandlingKm = hubHandlingKm;
+    }
+
+    public void addLane(String from, String to, double distanceKm, int capacity) {
+        lanesFrom.get(nodeOf(from)).add(new Lane(nodeOf(to), distanceKm, capacity));
+    }
+
+    /**
+     * Counts parcels that were routed on a lane in an earlier run and still wait
+     *
+     * @param from
+     * @param to
+     * @param parcels
+     */
+    public void preload(String from, String to, int parcels) {
+        Lane lane = laneOf(from, to);
+        if (lane != null) {
+            lane.flow += parcels;
+        }
+    }
+
+    /**
+     * Routes parcels from one storage to another on the cheapest paths that still
+     * have room, splitting them when a path runs full
+     *
+     * @param origin
+     * @param destination
+     * @param parcels
+     * @return parcels per first hop (in routing order); parcels without any path
+     *         are counted under null
+     */
+    public Map<String, Integer> route(String origin, String destination, int parcels) {
+        Map<String, Integer> byNextHop = new LinkedHashMap<>();
+        Integer source = nodes.get(origin);
+        Integer target = nodes.get(destination);
+
+        int left = parcels;
+        while (left > 0 && source != null && target != null && !source.equals(target)) {
+            List<Lane> path = cheapestPath(source, target, left);
+            if (path == null) {
+                break;
+            }
+
+            int sent = left;
+            for (Lane lane : path) {
+                sent = Math.min(sent, lane.capacity - lane.flow);
+            }
+            for (Lane lane : path) {
+                lane.flow += sent;
+            }
+
+            byNextHop.merge(cities.get(path.get(0).to), sent, Integer::sum);
+            left -= sent;
+        }
+
+        if (left > 0) {
+            byNextHop.merge(null, left, Integer::sum);
+        }
+        return byNextHop;
+    }
+
+    public int laneCount() {
+        return lanesFrom.stream().mapToInt(List::size).sum();
+    }
+
+    // Dijkstra on the cost per parcel of adding the parcels to each lane (per
+    // parcel, so a lane with little room left does not look cheap); only a
+    // handful of storages, so no heap
+    private List<Lane> cheapestPath(int source, int target, int parcels) {
+        int n = cities.size();
+        double[] cost = new double[n];
+        Lane[] via = new Lane[n];
+        int[] previous = new int[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(cost, Double.MAX_VALUE);
+        cost[source] = 0;
+
+        for (int round = 0; round < n; round++) {
+            int node = -1;
+            for (int i = 0; i < n; i++) {
+                if (!done[i] && cost[i] < Double.MAX_VALUE && (node < 0 || cost[i] < cost[node])) {
+                    node = i;
+                }
+            }
+            if (node < 0 || node == target) {
+                break;
+            }
+            done[node] = true;
+
+            for (Lane lane : lanesFrom.get(node)) {
+                if (lane.flow >= lane.capacity || done[lane.to]) {
+                    continue;
+                }
+                int added = Math.min(parcels, lane.capacity - lane.flow);
+                double next = cost[node] + lane.costOf(added) / added;
+                if (next < cost[lane.to]) {
+                    cost[lane.to] = next;
+                    via[lane.to] = lane;
+                    previous[lane.to] = node;
+                }
+            }
+        }
+
+        if (via[target] == null) {
+            return null;
+        }
+
+        List<Lane> path = new ArrayList<>();
+        for (int node = target; node != source; node = previous[node]) {
+            path.add(0, via[node]);
+        }
+        return path;
+    }
+
+    private Lane laneOf(String from, String to) {
+        Integer source = nodes.get(from);
+        Integer target = nodes.get(to);
+        if (source == null || target == null) {
+            return null;
+        }
+        for (Lane lane : lanesFrom.get(source)) {
+            if (lane.to == target) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    private int nodeOf(String city) {
+        return nodes.computeIfAbsent(city, c -> {
+            cities.add(c);
+            lanesFrom.add(new ArrayList<>());
+            return cities.size() - 1;
+        });
+    }
+
+    private class Lane {
+
+        private final int to;
+        private final double distanceKm;
+        private final int capacity;
+        private int flow;
+
+        Lane(int to, double distanceKm, int capacity) {
+            this.to = to;
+            this.distanceKm = distanceKm;
+            this.capacity = capacity;
+        }
+
+        // extra trips the parcels need on top of the running ones
+        double costOf(int parcels) {
+            int trips = (flow + parcels + parcelsPerTrip - 1) / parcelsPerTrip
+                    - (flow + parcelsPerTrip - 1) / parcelsPerTrip;
+            return trips * distanceKm + parcels * hubHandlingKm;
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.example.parcel_delivery.models.assignment;
+
+import com.example.parcel_delivery.models.entities.Parcel;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * What a driver carries on one leg of a run: number of parcels, volume (cm3)
+ * and mass (kg).
+ */
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleLoad {
+
+    private int parcels;
+
+    private double volume;
+
+    private double mass;
+
+    public void add(Parcel parcel) {
+        parcels++;
+        volume += volumeOf(parcel);
+        mass += parcel.getMass();
+    }
+
+    public static double volumeOf(Parcel parcel) {
+        return parcel.getWidth() * parcel.getHeight() * parcel.getDepth();
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.example.parcel_delivery.models.dtos.requests;
 
+import com.example.parcel_delivery.models.enums.ServiceLevel;
+
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
@@ -88,4 +90,6 @@ public class ParcelReqDTO {
 
     private Boolean isDeliverToRecipientLocker; // Indicates if the parcel should be delivered to a recipient's locker
 
+    private ServiceLevel serviceLevel; // Optional: EXPRESS or STANDARD (default)
+
 }
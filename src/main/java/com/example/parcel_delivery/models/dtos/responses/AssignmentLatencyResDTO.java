@@ -0,0 +1,16 @@
+package com.example.parcel_delivery.models.dtos.responses;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class AssignmentLatencyResDTO {
+
+    private int samples;
+    private long p50Seconds;
+    private long p95Seconds;
+    private long maxSeconds;
+    private long expressP95Seconds;
+
+}
@@ -0,0 +1,28 @@
+package com.example.parcel_delivery.models.dtos.responses;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class AssignmentRunResDTO {
+
+    private LocalDateTime startedAt;
+    private boolean dryRun;
+    private String strategy;
+    private String intraMatching;
+    private long durationMs;
+    private int parcelsLoaded;
+    // routes of the intra-city drivers
+    private double estimatedRouteKm;
+    private int interCityLanes;
+    // inter-city parcels this run sent through a hub storage
+    private int hubRoutedParcels;
+    private int emptyBackhauls;
+    // drop-off -> assignment over the recent assignments of this node
+    private long waitP95Seconds;
+    private List<CityAssignmentResDTO> cities = new ArrayList<>();
+
+}
@@ -0,0 +1,36 @@
+package com.example.parcel_delivery.models.dtos.responses;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.parcel_delivery.models.enums.AssignmentOutcome;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class CityAssignmentResDTO {
+
+    private String city;
+    private AssignmentOutcome outcome;
+    private int attempts;
+    private int parcelsAssigned;
+    private int parcelsUnassigned;
+    private int driversLoaded;
+    private int statements;
+    // routes of the intra-city drivers
+    private double estimatedRouteKm;
+    private int emptyBackhauls;
+    private long waitP95Seconds;
+    private List<LaneFillResDTO> lanes = new ArrayList<>();
+    // only filled by dry runs
+    private List<DriverPlanResDTO> driverPlans = new ArrayList<>();
+    private List<Long> unassignedParcelIds = new ArrayList<>();
+    private long durationMs;
+    private String error;
+
+    public CityAssignmentResDTO(String city) {
+        this.city = city;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.parcel_delivery.models.dtos.responses;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class DriverPlanResDTO {
+
+    private Long driverId;
+    private List<Long> parcelIds;
+    private double volumeUtilisation;
+    private double massUtilisation;
+    // null for inter-city drivers
+    private Double estimatedRouteKm;
+
+}
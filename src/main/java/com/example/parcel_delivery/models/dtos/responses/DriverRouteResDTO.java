@@ -0,0 +1,19 @@
+package com.example.parcel_delivery.models.dtos.responses;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class DriverRouteResDTO {
+
+    private Long driverId;
+    private LocalDateTime computedAt;
+    private double totalKm;
+    private long durationMicros;
+    private List<RouteStopResDTO> stops;
+
+}
@@ -0,0 +1,19 @@
+package com.example.parcel_delivery.models.dtos.responses;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class LaneFillResDTO {
+
+    private String origin;
+    private String destination;
+    private int drivers;
+    private int outgoingParcels;
+    private int returnParcels;
+    private double outgoingFillRate;
+    private double returnFillRate;
+    private int emptyBackhauls;
+
+}
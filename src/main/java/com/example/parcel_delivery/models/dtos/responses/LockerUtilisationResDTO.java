@@ -0,0 +1,34 @@
+package com.example.parcel_delivery.models.dtos.responses;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.example.parcel_delivery.models.enums.CabinetSize;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class LockerUtilisationResDTO {
+
+    private Long lockerId;
+    private String name;
+    private String city;
+    private int cabinets;
+    private int free;
+    private int reserved;
+    private int occupied;
+    private int outOfService;
+    private Map<CabinetSize, Integer> cabinetsBySize = new EnumMap<>(CabinetSize.class);
+    private Map<CabinetSize, Integer> freeBySize = new EnumMap<>(CabinetSize.class);
+    // reserved + occupied of the cabinets in service
+    private double utilisation;
+    // parcel volume / volume of the cabinets holding them, low = small parcels in large cabinets
+    private double fillRate;
+    // share of the free volume outside the largest size class still free, high =
+    // free space the larger parcels can not use
+    private double fragmentation;
+    private CabinetSize largestFreeSize;
+
+}
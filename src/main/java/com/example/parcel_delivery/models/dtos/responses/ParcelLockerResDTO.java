@@ -8,6 +8,7 @@ public class ParcelLockerResDTO {
     private String lockerId;
     private String name;
     private GeoPointDTO lockerPoint;
+    private Integer freeCabinetCount;
     
 
 }
@@ -0,0 +1,20 @@
+package com.example.parcel_delivery.models.dtos.responses;
+
+import com.example.parcel_delivery.models.enums.RouteStopType;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class RouteStopResDTO {
+
+    private int sequence;
+    private Long parcelId;
+    private RouteStopType type;
+    // null for storages, they have no location yet
+    private GeoPointDTO location;
+    private Long storageId;
+    private double legKm;
+
+}
@@ -1,5 +1,8 @@
 package com.example.parcel_delivery.models.entities;
 
+import java.time.LocalDateTime;
+
+import com.example.parcel_delivery.models.enums.CabinetSize;
 import com.example.parcel_delivery.models.enums.CabinetStatus;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
@@ -12,9 +15,13 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -23,7 +30,11 @@ import lombok.Setter;
 import lombok.ToString;
 
 @Entity
-@Table(name = "cabinets")
+@Table(name = "cabinets", indexes = {
+        @Index(name = "idx_cabinet_locker_status_size", columnList = "parcel_locker_id, status, size_class, id"),
+        @Index(name = "idx_cabinet_hold_expires_at", columnList = "hold_expires_at"),
+        @Index(name = "idx_cabinet_held_for_parcel", columnList = "held_for_parcel_id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
@@ -32,7 +43,8 @@ import lombok.ToString;
 public class Cabinet {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cabinets_seq")
+    @SequenceGenerator(name = "cabinets_seq", sequenceName = "cabinets_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -58,4 +70,26 @@ public class Cabinet {
     @Column(nullable = false)
     private Double depth;
 
+    // derived from the dimensions; ordinal so the claim takes the smallest
+    // fitting class first in index order
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "size_class")
+    private CabinetSize sizeClass;
+
+    // set while the cabinet is RESERVED: the parcel it is held for (null until
+    // the parcel is saved) and when the hold runs out
+    @Column(name = "held_for_parcel_id")
+    private Long heldForParcelId;
+
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+
+    @PrePersist
+    @PreUpdate
+    private void classifySize() {
+        if (width != null && height != null && depth != null) {
+            sizeClass = CabinetSize.ofCabinet(width, height, depth);
+        }
+    }
+
 }
\ No newline at end of file
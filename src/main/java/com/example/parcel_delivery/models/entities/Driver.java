@@ -14,6 +14,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -31,7 +32,8 @@ import lombok.ToString;
 public class Driver {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "drivers_seq")
+    @SequenceGenerator(name = "drivers_seq", sequenceName = "drivers_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -45,6 +47,14 @@ public class Driver {
     @Column(nullable = false)
     private DriverType driverType;
 
+    // usable cargo volume of the vehicle in cm3 (null = default of the driver type)
+    @Column
+    private Double vehicleVolumeCapacity;
+
+    // maximum payload of the vehicle in kg (null = default of the driver type)
+    @Column
+    private Double vehicleMassCapacity;
+
      @OneToMany(mappedBy = "driver")
     private Set<Parcel> assignedParcels;
 
@@ -7,6 +7,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 
 import com.example.parcel_delivery.models.enums.ParcelStatus;
 import com.example.parcel_delivery.models.enums.ParcelType;
+import com.example.parcel_delivery.models.enums.ServiceLevel;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
@@ -22,6 +23,9 @@ import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -42,7 +46,8 @@ import lombok.ToString;
 public class Parcel {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "parcels_seq")
+    @SequenceGenerator(name = "parcels_seq", sequenceName = "parcels_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -110,6 +115,11 @@ public class Parcel {
     @Column(nullable = false)
     private ParcelType parcelType;
 
+    // null for the parcels sent before service levels existed (= STANDARD)
+    @Enumerated(EnumType.STRING)
+    @Column
+    private ServiceLevel serviceLevel = ServiceLevel.STANDARD;
+
     @ManyToOne
     @JoinColumn(name = "sender_id", referencedColumnName = "id")
     @JsonBackReference
@@ -132,10 +142,27 @@ public class Parcel {
     @JoinColumn(name = "storage_id", referencedColumnName = "id")
     private Storage storage;
 
+    // storage city of the current inter-city leg when the parcel goes through a
+    // hub, null when it goes straight to the destination city
+    @Column
+    private String nextHopCity;
+
+    // city the parcel is picked up from next: the city of the storage it waits in
+    // (departure storage, hub or destination storage), the sender's city
+    // otherwise. The batch assignment pages on it (partial index of
+    // ParcelOriginCityConfig).
+    @Column(name = "origin_city")
+    private String originCity;
+
     @ManyToOne
     @JoinColumn(name = "selected_locker_location_id")
     private ParcelLocker selectedLockerLocation;
 
+    // pickup locker chosen by the sender for the recipient, null for home delivery
+    @ManyToOne
+    @JoinColumn(name = "recipient_locker_id")
+    private ParcelLocker recipientLocker;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -154,4 +181,14 @@ public class Parcel {
     @Column(nullable = false)
     private LocalDateTime idempotencyKeyCreatedAt;
 
+    @PrePersist
+    @PreUpdate
+    private void locateOrigin() {
+        if (storage != null) {
+            originCity = storage.getCity();
+        } else if (sender != null && sender.getUser() != null) {
+            originCity = sender.getUser().getCity();
+        }
+    }
+
 }
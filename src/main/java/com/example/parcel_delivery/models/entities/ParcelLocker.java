@@ -8,6 +8,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -28,7 +29,8 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 public class ParcelLocker {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "parcel_lockers_seq")
+    @SequenceGenerator(name = "parcel_lockers_seq", sequenceName = "parcel_lockers_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -37,6 +39,16 @@ public class ParcelLocker {
     @Column(name = "geo_location", columnDefinition = "geometry(Point,4326)")
     private Point geoLocation;
 
+    // lockers created before the column existed have none
+    @Column
+    private String city;
+
+    // kept by a trigger on cabinets (see FreeCabinetCountConfig), never written
+    // from here
+    @Column(name = "free_cabinet_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "integer default 0")
+    private Integer freeCabinetCount;
+
     @OneToMany(mappedBy = "parcelLocker")
     @JsonManagedReference
     private Set<Cabinet> cabinets;
@@ -0,0 +1,54 @@
+package com.example.parcel_delivery.models.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * A road between two storages that inter-city drivers run, in one direction
+ */
+@Entity
+@Table(name = "storage_lanes", uniqueConstraints = @UniqueConstraint(columnNames = { "from_storage_id",
+        "to_storage_id" }))
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+public class StorageLane {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "storage_lanes_seq")
+    @SequenceGenerator(name = "storage_lanes_seq", sequenceName = "storage_lanes_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "from_storage_id", referencedColumnName = "id", nullable = false)
+    private Storage fromStorage;
+
+    @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "to_storage_id", referencedColumnName = "id", nullable = false)
+    private Storage toStorage;
+
+    // cost of one trip
+    @Column(nullable = false)
+    private Double distanceKm;
+
+    // parcels the lane can carry per batch run
+    @Column(nullable = false)
+    private Integer capacity;
+
+}
@@ -0,0 +1,10 @@
+package com.example.parcel_delivery.models.enums;
+
+public enum AssignmentOutcome {
+    SUCCEEDED, // the city was assigned and its plan was committed
+
+    FAILED, // every attempt failed, nothing of that city was committed
+
+    SKIPPED, // another node was assigning the city at the same time, nothing was done here
+
+}
@@ -0,0 +1,107 @@
+package com.example.parcel_delivery.models.enums;
+
+import java.util.Arrays;
+
+/**
+ * Size classes of cabinets, smallest first (the order is the one the claim
+ * searches in). Each class is an inner box in cm with its sides sorted, so a
+ * parcel fits in any rotation: a parcel belongs to the smallest class whose
+ * box holds it, a cabinet to the largest class whose box it holds.
+ */
+public enum CabinetSize {
+    SMALL(10, 35, 50),
+
+    MEDIUM(25, 40, 50),
+
+    LARGE(50, 50, 50);
+
+    private final double shortSide;
+    private final double middleSide;
+    private final double longSide;
+
+    CabinetSize(double shortSide, double middleSide, double longSide) {
+        this.shortSide = shortSide;
+        this.middleSide = middleSide;
+        this.longSide = longSide;
+    }
+
+    public double getShortSide() {
+        return shortSide;
+    }
+
+    public double getMiddleSide() {
+        return middleSide;
+    }
+
+    public double getLongSide() {
+        return longSide;
+    }
+
+    public double volume() {
+        return shortSide * middleSide * longSide;
+    }
+
+    /**
+     * @param width
+     * @param height
+     * @param depth
+     * @return the smallest class that holds the parcel, null when none does
+     */
+    public static CabinetSize ofParcel(double width, double height, double depth) {
+        double[] sides = sortedSides(width, height, depth);
+        for (CabinetSize size : values()) {
+            if (sides[0] <= size.shortSide && sides[1] <= size.middleSide && sides[2] <= size.longSide) {
+                return size;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param width
+     * @param height
+     * @param depth
+     * @return the largest class the cabinet holds, SMALL for cabinets below it
+     */
+    public static CabinetSize ofCabinet(double width, double height, double depth) {
+        double[] sides = sortedSides(width, height, depth);
+        CabinetSize[] sizes = values();
+        for (int i = sizes.length - 1; i > 0; i--) {
+            if (sides[0] >= sizes[i].shortSide && sides[1] >= sizes[i].middleSide && sides[2] >= sizes[i].longSide) {
+                return sizes[i];
+            }
+        }
+        return SMALL;
+    }
+
+    /**
+     * The ofCabinet classification as SQL over the dimension columns of the
+     * cabinets table, for rows written without Hibernate
+     *
+     * @return a CASE expression giving the ordinal of the class
+     */
+    public static String sqlOfCabinet() {
+        String shortSide = "LEAST(width, height, depth)";
+        String longSide = "GREATEST(width, height, depth)";
+        String middleSide = "(width + height + depth - " + shortSide + " - " + longSide + ")";
+
+        StringBuilder sql = new StringBuilder("CASE");
+        CabinetSize[] sizes = values();
+        for (int i = sizes.length - 1; i > 0; i--) {
+            sql.append(" WHEN ").append(shortSide).append(" >= ").append(sizes[i].shortSide)
+                    .append(" AND ").append(middleSide).append(" >= ").append(sizes[i].middleSide)
+                    .append(" AND ").append(longSide).append(" >= ").append(sizes[i].longSide)
+                    .append(" THEN ").append(i);
+        }
+        return sql.append(" ELSE 0 END").toString();
+    }
+
+    /**
+     * @return the three sides ascending
+     */
+    public static double[] sortedSides(double width, double height, double depth) {
+        double[] sides = { width, height, depth };
+        Arrays.sort(sides);
+        return sides;
+    }
+}
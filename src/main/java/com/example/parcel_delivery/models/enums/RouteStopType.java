@@ -0,0 +1,8 @@
+package com.example.parcel_delivery.models.enums;
+
+public enum RouteStopType {
+    LOCKER_PICKUP,
+    STORAGE_PICKUP,
+    STORAGE_DROP_OFF,
+    RECIPIENT_DELIVERY,
+}
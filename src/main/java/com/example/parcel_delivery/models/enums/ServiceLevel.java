@@ -0,0 +1,7 @@
+package com.example.parcel_delivery.models.enums;
+
+public enum ServiceLevel {
+    EXPRESS, // assigned before every standard parcel of its city
+
+    STANDARD
+}
@@ -0,0 +1,23 @@
+package com.example.parcel_delivery.models.events;
+
+import com.example.parcel_delivery.models.enums.CabinetStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published by the cabinet service whenever it changes the status of a cabinet.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class CabinetStatusChangedEvent {
+
+    private final Long cabinetId;
+
+    private final Long lockerId;
+
+    private final CabinetStatus status;
+
+}
@@ -0,0 +1,25 @@
+package com.example.parcel_delivery.models.events;
+
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published when a parcel enters a status in which it waits for a driver
+ * (drop-off in a cabinet, arrival in a storage).
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ParcelAssignableEvent {
+
+    private final Long parcelId;
+
+    // sender city, the batch assignment groups parcels the same way
+    private final String city;
+
+    private final ParcelStatus status;
+
+}
@@ -1,9 +1,11 @@
 package com.example.parcel_delivery.repositories;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -11,11 +13,75 @@ import com.example.parcel_delivery.models.entities.Cabinet;
 
 public interface CabinetRepo extends JpaRepository<Cabinet, Long> {
 
-    @Query(value = "SELECT * FROM cabinets WHERE parcel_locker_id = :lockerId AND status = 'FREE' ORDER BY RANDOM() LIMIT 1", nativeQuery = true)
-    Optional<Cabinet> findRandomFreeCabinetByLockerId(@Param("lockerId") Long lockerId);
+    // the sorted sides of the cabinet cover the sorted sides of the parcel
+    String CABINET_FITS_SQL = "LEAST(width, height, depth) >= :shortSide "
+            + "AND width + height + depth - LEAST(width, height, depth) - GREATEST(width, height, depth) >= :middleSide "
+            + "AND GREATEST(width, height, depth) >= :longSide";
 
-    @Query(value = "SELECT * FROM cabinets WHERE parcel_locker_id = :lockerId AND status = 'RESERVED' ORDER BY id ASC LIMIT 1", nativeQuery = true)
-    Optional<Cabinet> findHeldCabinetByLockerId(@Param("lockerId") Long lockerId);
+    // a claimed cabinet is not held for a parcel yet, a hold (RESERVED) runs out
+    // at holdExpiresAt
+    String HOLD_SQL = "held_for_parcel_id = NULL, "
+            + "hold_expires_at = CASE WHEN :toStatus = 'RESERVED' THEN CAST(:holdExpiresAt AS timestamp) END";
+
+    /**
+     * Moves the smallest cabinet of the locker that is in fromStatus and fits the
+     * parcel sides to toStatus in a single statement and returns it. Cabinets are
+     * taken by size class (minSize and up, then id) straight from the index;
+     * cabinets locked by a concurrent claim are skipped instead of waited for, so
+     * two claims never get the same cabinet and never block each other. Needs a
+     * transaction.
+     */
+    String CLAIM_CABINET_SQL = "UPDATE cabinets SET status = :toStatus, " + HOLD_SQL + " "
+            + "WHERE id = (SELECT id FROM cabinets WHERE parcel_locker_id = :lockerId AND status = :fromStatus "
+            + "AND size_class >= :minSize AND " + CABINET_FITS_SQL + " "
+            + "ORDER BY size_class, id LIMIT 1 FOR UPDATE SKIP LOCKED) AND status = :fromStatus RETURNING *";
+
+    @Query(value = CLAIM_CABINET_SQL, nativeQuery = true)
+    Optional<Cabinet> claimCabinet(@Param("lockerId") Long lockerId, @Param("fromStatus") String fromStatus,
+            @Param("toStatus") String toStatus, @Param("minSize") int minSize, @Param("shortSide") double shortSide,
+            @Param("middleSide") double middleSide, @Param("longSide") double longSide,
+            @Param("holdExpiresAt") LocalDateTime holdExpiresAt);
+
+    /**
+     * Same claim for one given cabinet, empty when it is not in fromStatus, is
+     * too small or is being claimed by someone else
+     */
+    String CLAIM_CABINET_BY_ID_SQL = "UPDATE cabinets SET status = :toStatus, " + HOLD_SQL + " "
+            + "WHERE id = (SELECT id FROM cabinets WHERE id = :cabinetId AND status = :fromStatus AND "
+            + CABINET_FITS_SQL + " FOR UPDATE SKIP LOCKED) AND status = :fromStatus RETURNING *";
+
+    @Query(value = CLAIM_CABINET_BY_ID_SQL, nativeQuery = true)
+    Optional<Cabinet> claimCabinetById(@Param("cabinetId") Long cabinetId, @Param("fromStatus") String fromStatus,
+            @Param("toStatus") String toStatus, @Param("shortSide") double shortSide,
+            @Param("middleSide") double middleSide, @Param("longSide") double longSide,
+            @Param("holdExpiresAt") LocalDateTime holdExpiresAt);
+
+    /**
+     * Binds the hold of a cabinet to the parcel it was made for
+     */
+    @Modifying
+    @Query(value = "UPDATE cabinets SET held_for_parcel_id = :parcelId, hold_expires_at = :holdExpiresAt "
+            + "WHERE id = :cabinetId AND status = 'RESERVED'", nativeQuery = true)
+    int bindHold(@Param("cabinetId") Long cabinetId, @Param("parcelId") Long parcelId,
+            @Param("holdExpiresAt") LocalDateTime holdExpiresAt);
+
+    /**
+     * Takes the cabinet held for the parcel (RESERVED -> OCCUPIED), empty when
+     * the parcel has no hold (anymore)
+     */
+    @Query(value = "UPDATE cabinets SET status = 'OCCUPIED', held_for_parcel_id = NULL, hold_expires_at = NULL "
+            + "WHERE id = (SELECT id FROM cabinets WHERE held_for_parcel_id = :parcelId AND status = 'RESERVED' "
+            + "LIMIT 1 FOR UPDATE) AND status = 'RESERVED' RETURNING *", nativeQuery = true)
+    Optional<Cabinet> claimHeldCabinet(@Param("parcelId") Long parcelId);
+
+    /**
+     * Frees up to batchSize holds that ran out, oldest first, straight from the
+     * hold_expires_at index. Holds being taken right now are skipped.
+     */
+    @Query(value = "UPDATE cabinets SET status = 'FREE', held_for_parcel_id = NULL, hold_expires_at = NULL "
+            + "WHERE id IN (SELECT id FROM cabinets WHERE hold_expires_at <= :now AND status = 'RESERVED' "
+            + "ORDER BY hold_expires_at LIMIT :batchSize FOR UPDATE SKIP LOCKED) RETURNING *", nativeQuery = true)
+    List<Cabinet> releaseExpiredHolds(@Param("now") LocalDateTime now, @Param("batchSize") int batchSize);
 
     @Query(value = "SELECT * FROM cabinets WHERE parcel_locker_id = :lockerId AND status = 'FREE'", nativeQuery = true)
     List<Cabinet> findAvailableCabinetsByLockerId(@Param("lockerId") Long lockerId);
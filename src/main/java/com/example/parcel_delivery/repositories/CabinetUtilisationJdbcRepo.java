@@ -0,0 +1,112 @@
+package com.example.parcel_delivery.repositories;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import com.example.parcel_delivery.models.dtos.responses.LockerUtilisationResDTO;
+import com.example.parcel_delivery.models.enums.CabinetSize;
+import com.example.parcel_delivery.models.enums.CabinetStatus;
+
+/**
+ * Utilisation and fragmentation of the lockers, from one grouped query over
+ * the cabinets and the parcels in them.
+ */
+@Repository
+public class CabinetUtilisationJdbcRepo {
+
+    private static final String UTILISATION_SQL = "SELECT l.id, l.name, l.city, c.size_class, c.status, "
+            + "COUNT(c.id) AS cabinets, SUM(c.width * c.height * c.depth) AS cabinet_volume, "
+            + "SUM(CASE WHEN p.id IS NOT NULL THEN c.width * c.height * c.depth ELSE 0 END) AS filled_volume, "
+            + "COALESCE(SUM(p.width * p.height * p.depth), 0) AS parcel_volume "
+            + "FROM parcel_lockers l JOIN cabinets c ON c.parcel_locker_id = l.id "
+            + "LEFT JOIN parcels p ON p.cabinet_id = c.id ";
+
+    private static final String GROUP_BY = " GROUP BY l.id, l.name, l.city, c.size_class, c.status ORDER BY l.id";
+
+    private static final CabinetSize[] SIZES = CabinetSize.values();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param city all lockers when null
+     * @return one report per locker, in id order
+     */
+    public List<LockerUtilisationResDTO> findLockerUtilisation(String city) {
+        Map<Long, Totals> byLocker = new LinkedHashMap<>();
+        RowCallbackHandler handler = rs -> {
+            Totals totals = byLocker.computeIfAbsent(rs.getLong("id"), id -> new Totals());
+            totals.report.setLockerId(rs.getLong("id"));
+            totals.report.setName(rs.getString("name"));
+            totals.report.setCity(rs.getString("city"));
+            totals.add(SIZES[rs.getInt("size_class")], CabinetStatus.valueOf(rs.getString("status")),
+                    rs.getInt("cabinets"), rs.getDouble("cabinet_volume"), rs.getDouble("filled_volume"),
+                    rs.getDouble("parcel_volume"));
+        };
+
+        if (city == null) {
+            jdbcTemplate.query(UTILISATION_SQL + GROUP_BY, handler);
+        } else {
+            jdbcTemplate.query(UTILISATION_SQL + "WHERE l.city = ?" + GROUP_BY, handler, city);
+        }
+
+        List<LockerUtilisationResDTO> reports = new ArrayList<>(byLocker.size());
+        for (Totals totals : byLocker.values()) {
+            reports.add(totals.finish());
+        }
+        return reports;
+    }
+
+    private static final class Totals {
+
+        private final LockerUtilisationResDTO report = new LockerUtilisationResDTO();
+        private final Map<CabinetSize, Double> freeVolumeBySize = new EnumMap<>(CabinetSize.class);
+        private double filledVolume;
+        private double parcelVolume;
+
+        void add(CabinetSize size, CabinetStatus status, int cabinets, double cabinetVolume, double filled,
+                double parcels) {
+            report.setCabinets(report.getCabinets() + cabinets);
+            report.getCabinetsBySize().merge(size, cabinets, Integer::sum);
+            filledVolume += filled;
+            parcelVolume += parcels;
+
+            switch (status) {
+                case FREE -> {
+                    report.setFree(report.getFree() + cabinets);
+                    report.getFreeBySize().merge(size, cabinets, Integer::sum);
+                    freeVolumeBySize.merge(size, cabinetVolume, Double::sum);
+                }
+                case RESERVED -> report.setReserved(report.getReserved() + cabinets);
+                case OCCUPIED -> report.setOccupied(report.getOccupied() + cabinets);
+                case OUT_OF_SERVICE -> report.setOutOfService(report.getOutOfService() + cabinets);
+            }
+        }
+
+        LockerUtilisationResDTO finish() {
+            int inService = report.getCabinets() - report.getOutOfService();
+            report.setUtilisation(inService == 0 ? 0 : (double) (report.getReserved() + report.getOccupied()) / inService);
+            report.setFillRate(filledVolume == 0 ? 0 : parcelVolume / filledVolume);
+
+            double freeVolume = freeVolumeBySize.values().stream().mapToDouble(Double::doubleValue).sum();
+            for (int s = SIZES.length - 1; s >= 0; s--) {
+                Double largest = freeVolumeBySize.get(SIZES[s]);
+                if (largest != null) {
+                    report.setLargestFreeSize(SIZES[s]);
+                    report.setFragmentation(freeVolume == 0 ? 0 : 1 - largest / freeVolume);
+                    break;
+                }
+            }
+            return report;
+        }
+    }
+
+}
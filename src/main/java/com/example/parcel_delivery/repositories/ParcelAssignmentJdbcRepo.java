@@ -0,0 +1,246 @@
+package com.example.parcel_delivery.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.parcel_delivery.models.assignment.DriverLoadLedger;
+import com.example.parcel_delivery.models.assignment.FlushResult;
+import com.example.parcel_delivery.models.assignment.ParcelAssignment;
+import com.example.parcel_delivery.models.assignment.ParcelAssignmentPlan;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+
+/**
+ * Writes the result of the batch assignment straight through JDBC.
+ *
+ * Two write modes are supported (property tendrilex.assignment.write-mode):
+ * - set: one UPDATE ... FROM (VALUES ...) per assigned status (= driver type),
+ * chunked so we stay far below the bind parameter limit of postgres
+ * - batch: a JDBC batch of single row UPDATEs, for databases that do not
+ * understand the VALUES join
+ */
+@Repository
+public class ParcelAssignmentJdbcRepo {
+
+    // 2 bind parameters per row
+    private static final int ROWS_PER_STATEMENT = 5000;
+
+    // a parcel is only taken if it still waits for a driver, so a batch run and the
+    // incremental assignment can not overwrite each other
+    public static final String ASSIGNABLE_STATUSES = "('AWAITING_INTRA_CITY_PICKUP', "
+            + "'AWAITING_DEPARTURE_STORAGE_PICKUP', 'AWAITING_INTER_CITY_PICKUP', 'AWAITING_FINAL_DELIVERY')";
+
+    // first key of the advisory locks taken on cities (second key: hash of the
+    // city name), so they never clash with other advisory locks
+    private static final int CITY_LOCK_NAMESPACE = 0x7E4D;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Value("${tendrilex.assignment.write-mode:set}")
+    private String writeMode;
+
+    /**
+     * Claims a city for the current transaction with a postgres advisory lock.
+     * Nodes of a cluster split the cities this way: a node that does not get the
+     * lock skips the city instead of waiting on the rows of another node. The
+     * lock goes away with the commit / rollback, and with the connection when a
+     * node crashes, so no lease has to expire.
+     *
+     * @param city
+     * @return false when another transaction holds the city
+     */
+    public boolean tryLockCity(String city) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?, hashtext(?))",
+                Boolean.class, CITY_LOCK_NAMESPACE, city));
+    }
+
+    /**
+     * Loads what the given drivers already carry with one grouped query
+     *
+     * @param drivers
+     * @return
+     */
+    public DriverLoadLedger loadDriverLedger(Collection<Driver> drivers) {
+        DriverLoadLedger ledger = new DriverLoadLedger(drivers.stream().map(Driver::getId).toList());
+
+        if (ledger.size() == 0) {
+            return ledger;
+        }
+
+        namedParameterJdbcTemplate.query("SELECT driver_id, COUNT(*) AS parcels, " +
+                "COALESCE(SUM(width * height * depth), 0) AS volume, COALESCE(SUM(mass), 0) AS mass " +
+                "FROM parcels WHERE driver_id IN (:ids) GROUP BY driver_id",
+                new MapSqlParameterSource("ids", drivers.stream().map(Driver::getId).toList()),
+                (RowCallbackHandler) rs -> ledger.preload(rs.getLong("driver_id"), rs.getInt("parcels"),
+                        rs.getDouble("volume"), rs.getDouble("mass")));
+
+        return ledger;
+    }
+
+    /**
+     * Flushes the whole plan of a city: parcels first, then the drivers that are
+     * loaded for the day. The guard of the parcel updates skips parcels taken in
+     * the meantime; a driver whose parcels were all skipped that way stays
+     * available.
+     *
+     * @param plan
+     * @return what was written
+     */
+    public FlushResult flush(ParcelAssignmentPlan plan) {
+        Set<Long> written = new HashSet<>();
+
+        int statements = "batch".equalsIgnoreCase(writeMode)
+                ? batchUpdateParcels(plan.getAssignments(), written)
+                : setUpdateParcels(plan.getAssignments(), written);
+
+        Set<Long> plannedDriverIds = new HashSet<>();
+        Set<Long> servedDriverIds = new HashSet<>();
+        for (ParcelAssignment assignment : plan.getAssignments()) {
+            plannedDriverIds.add(assignment.getDriverId());
+            if (written.contains(assignment.getParcelId())) {
+                servedDriverIds.add(assignment.getDriverId());
+            }
+        }
+
+        // a driver loaded by parcels from before the run got nothing planned
+        Set<Long> marked = new LinkedHashSet<>();
+        for (Long driverId : plan.getUnavailableDriverIds()) {
+            if (servedDriverIds.contains(driverId) || !plannedDriverIds.contains(driverId)) {
+                marked.add(driverId);
+            }
+        }
+
+        if (!marked.isEmpty()) {
+            markDriversUnavailable(marked);
+            statements++;
+        }
+        return new FlushResult(statements, written, marked);
+    }
+
+    private int setUpdateParcels(List<ParcelAssignment> assignments, Set<Long> written) {
+        Map<ParcelStatus, List<ParcelAssignment>> byStatus = new EnumMap<>(ParcelStatus.class);
+        for (ParcelAssignment assignment : assignments) {
+            byStatus.computeIfAbsent(assignment.getStatus(), s -> new ArrayList<>()).add(assignment);
+        }
+
+        int statements = 0;
+        for (Map.Entry<ParcelStatus, List<ParcelAssignment>> entry : byStatus.entrySet()) {
+            List<ParcelAssignment> rows = entry.getValue();
+
+            for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+                List<ParcelAssignment> chunk = rows.subList(from, Math.min(from + ROWS_PER_STATEMENT, rows.size()));
+
+                String sql = "UPDATE parcels p SET driver_id = v.driver_id, status = ?, " +
+                        "updated_at = now(), status_updated_at = now() " +
+                        "FROM (VALUES " + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)")) + ") " +
+                        "AS v(id, driver_id) WHERE p.id = v.id " +
+                        "AND p.driver_id IS NULL AND p.status IN " + ASSIGNABLE_STATUSES + " RETURNING p.id";
+
+                Object[] args = new Object[1 + chunk.size() * 2];
+                args[0] = entry.getKey().name();
+                int i = 1;
+                for (ParcelAssignment assignment : chunk) {
+                    args[i++] = assignment.getParcelId();
+                    args[i++] = assignment.getDriverId();
+                }
+
+                written.addAll(jdbcTemplate.queryForList(sql, Long.class, args));
+                statements++;
+            }
+        }
+        return statements;
+    }
+
+    private int batchUpdateParcels(List<ParcelAssignment> assignments, Set<Long> written) {
+        if (assignments.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(assignments.size());
+        for (ParcelAssignment assignment : assignments) {
+            batchArgs.add(new Object[] { assignment.getDriverId(), assignment.getStatus().name(),
+                    assignment.getParcelId() });
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE parcels SET driver_id = ?, status = ?, " +
+                "updated_at = now(), status_updated_at = now() WHERE id = ? " +
+                "AND driver_id IS NULL AND status IN " + ASSIGNABLE_STATUSES, batchArgs);
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                written.add(assignments.get(i).getParcelId());
+            }
+        }
+
+        // the driver sends the batch in one go
+        return 1;
+    }
+
+    /**
+     * Gives one parcel to a driver, with the same guard as the batch flush
+     *
+     * @param parcelId
+     * @param driverId
+     * @param status
+     * @return false when the parcel was taken in the meantime
+     */
+    public boolean assignParcel(Long parcelId, Long driverId, ParcelStatus status) {
+        return jdbcTemplate.update("UPDATE parcels SET driver_id = ?, status = ?, " +
+                "updated_at = now(), status_updated_at = now() WHERE id = ? " +
+                "AND driver_id IS NULL AND status IN " + ASSIGNABLE_STATUSES,
+                driverId, status.name(), parcelId) == 1;
+    }
+
+    /**
+     * Writes the next hop of routed inter-city parcels. A parcel another node
+     * routed in the meantime keeps its hop.
+     *
+     * @param parcelIdsByNextHop
+     * @return number of statements sent to the database
+     */
+    public int routeParcels(Map<String, List<Long>> parcelIdsByNextHop) {
+        int statements = 0;
+        for (Map.Entry<String, List<Long>> entry : parcelIdsByNextHop.entrySet()) {
+            List<Long> ids = entry.getValue();
+
+            for (int from = 0; from < ids.size(); from += ROWS_PER_STATEMENT) {
+                namedParameterJdbcTemplate.update("UPDATE parcels SET next_hop_city = :hop, updated_at = now() " +
+                        "WHERE id IN (:ids) AND next_hop_city IS NULL AND status = 'AWAITING_INTER_CITY_PICKUP'",
+                        new MapSqlParameterSource("hop", entry.getKey())
+                                .addValue("ids", ids.subList(from, Math.min(from + ROWS_PER_STATEMENT, ids.size()))));
+                statements++;
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Marks all given drivers unavailable with one statement
+     *
+     * @param driverIds
+     */
+    public void markDriversUnavailable(Collection<Long> driverIds) {
+        namedParameterJdbcTemplate.update("UPDATE drivers SET is_available = false WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", driverIds));
+    }
+
+}
@@ -7,22 +7,25 @@ import java.util.Optional;
 import org.locationtech.jts.geom.Point;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.parcel_delivery.models.entities.ParcelLocker;
 
 public interface ParcelLockerRepo extends JpaRepository<ParcelLocker, Long> {
 
-    @Query(value = """
-            SELECT l.*, COUNT(c.id) as free_cabinets_count \
-            FROM parcel_lockers l \
-            JOIN cabinets c ON l.id = c.parcel_locker_id \
-            WHERE c.status = 'FREE' \
-            AND ST_DWithin(l.geo_location, :customerLocation, 20000) \
-            GROUP BY l.id \
-            ORDER BY ST_DistanceSphere(l.geo_location, :customerLocation) ASC\
-            """, nativeQuery = true)
+    // the geography GiST index (see FreeCabinetCountConfig) answers both the
+    // radius and the <-> order, the scan stops after five lockers with space
+    String NEAREST_AVAILABLE_LOCKERS_SQL = "SELECT * FROM parcel_lockers "
+            + "WHERE free_cabinet_count > 0 "
+            + "AND ST_DWithin(CAST(geo_location AS geography), CAST(:customerLocation AS geography), 20000) "
+            + "ORDER BY CAST(geo_location AS geography) <-> CAST(:customerLocation AS geography) "
+            + "LIMIT 5";
+
+    @Query(value = NEAREST_AVAILABLE_LOCKERS_SQL, nativeQuery = true)
     @NonNull
-    List<ParcelLocker> getFiveNearestAvailablelockers(@NonNull Point customerLocation);
+    List<ParcelLocker> getFiveNearestAvailablelockers(@NonNull @Param("customerLocation") Point customerLocation);
+
+    List<ParcelLocker> findByCity(String city);
 
     @Override
     @NonNull
@@ -11,8 +11,11 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import com.example.parcel_delivery.models.assignment.AssignableParcel;
+import com.example.parcel_delivery.models.assignment.HubParcel;
 import com.example.parcel_delivery.models.entities.Driver;
 import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.DriverType;
 import com.example.parcel_delivery.models.enums.ParcelStatus;
 import com.example.parcel_delivery.models.enums.ParcelType;
 
@@ -59,6 +62,52 @@ public interface ParcelRepo extends JpaRepository<Parcel, Long> {
         @Query("SELECT p FROM Parcel p WHERE p.status IN :statuses")
         List<Parcel> findByStatusIn(@Param("statuses") List<ParcelStatus> statuses);
 
+        List<Parcel> findByIdInAndStatusIn(List<Long> ids, List<ParcelStatus> statuses);
+
+        // keyset pages ordered by (origin city, id): the next page starts after the
+        // last row of the previous one, an inter-city parcel goes to its next hop when
+        // it has one. The statuses are literals so the partial index on
+        // (origin_city, id) serves the page, originCity >= :afterCity is where its
+        // scan starts.
+        @Query("SELECT new com.example.parcel_delivery.models.assignment.AssignableParcel(" +
+                        "p.id, p.status, p.parcelType, p.originCity, " +
+                        "COALESCE(p.nextHopCity, ru.city, p.unregisteredRecipientCity), l.id) " +
+                        "FROM Parcel p LEFT JOIN p.recipient r LEFT JOIN r.user ru LEFT JOIN p.selectedLockerLocation l " +
+                        "WHERE p.status IN (AWAITING_INTRA_CITY_PICKUP, AWAITING_DEPARTURE_STORAGE_PICKUP, " +
+                        "AWAITING_INTER_CITY_PICKUP, AWAITING_FINAL_DELIVERY) " +
+                        "AND p.originCity >= :afterCity AND (p.originCity > :afterCity OR p.id > :afterId) " +
+                        "ORDER BY p.originCity, p.id")
+        List<AssignableParcel> findAssignablePage(@Param("afterCity") String afterCity,
+                        @Param("afterId") Long afterId,
+                        Pageable pageable);
+
+        @Query("SELECT new com.example.parcel_delivery.models.assignment.AssignableParcel(" +
+                        "p.id, p.status, p.parcelType, p.originCity, " +
+                        "COALESCE(p.nextHopCity, ru.city, p.unregisteredRecipientCity), l.id) " +
+                        "FROM Parcel p LEFT JOIN p.recipient r LEFT JOIN r.user ru LEFT JOIN p.selectedLockerLocation l " +
+                        "WHERE p.status = AWAITING_INTER_CITY_PICKUP " +
+                        "AND p.originCity >= :afterCity AND (p.originCity > :afterCity OR p.id > :afterId) " +
+                        "ORDER BY p.originCity, p.id")
+        List<AssignableParcel> findInterCityPickupPage(@Param("afterCity") String afterCity,
+                        @Param("afterId") Long afterId,
+                        Pageable pageable);
+
+        @Query("SELECT new com.example.parcel_delivery.models.assignment.AssignableParcel(" +
+                        "p.id, p.status, p.parcelType, COALESCE(st.city, su.city), " +
+                        "COALESCE(p.nextHopCity, ru.city, p.unregisteredRecipientCity), l.id) " +
+                        "FROM Parcel p JOIN p.sender s JOIN s.user su LEFT JOIN p.storage st " +
+                        "LEFT JOIN p.recipient r LEFT JOIN r.user ru LEFT JOIN p.selectedLockerLocation l " +
+                        "WHERE p.status = :status " +
+                        "AND COALESCE(p.nextHopCity, ru.city, p.unregisteredRecipientCity) = :destinationCity")
+        List<AssignableParcel> findAssignableTowards(@Param("destinationCity") String destinationCity,
+                        @Param("status") ParcelStatus status);
+
+        @Query("SELECT new com.example.parcel_delivery.models.assignment.HubParcel(" +
+                        "p.id, st.city, p.nextHopCity, COALESCE(ru.city, p.unregisteredRecipientCity)) " +
+                        "FROM Parcel p JOIN p.storage st LEFT JOIN p.recipient r LEFT JOIN r.user ru " +
+                        "WHERE p.status = :status")
+        List<HubParcel> findWaitingInStorages(@Param("status") ParcelStatus status);
+
         Optional<Parcel> findByIdAndDriverId(Long id, Long driverId);
 
         List<Parcel> findByStorageId(Long storageId);
@@ -76,6 +125,14 @@ public interface ParcelRepo extends JpaRepository<Parcel, Long> {
                         @Param("originCity") String originCity,
                         @Param("status") ParcelStatus status);
 
+        @Query("SELECT p FROM Parcel p WHERE p.driver.driverType = :driverType AND p.driver.user.city = :city " +
+                        "AND p.status IN :statuses")
+        List<Parcel> findByDriverTypeAndCityAndStatusIn(@Param("driverType") DriverType driverType,
+                        @Param("city") String city,
+                        @Param("statuses") List<ParcelStatus> statuses);
+
+        List<Parcel> findByDriverIdAndStatusIn(Long driverId, List<ParcelStatus> statuses);
+
         @Query("SELECT COUNT(p) FROM Parcel p WHERE p.driver = :driver AND p.status IN (IN_TRANSIT_TO_RECIPIENT, IN_TRANSIT_TO_DEPARTURE_STORAGE, IN_TRANSIT_TO_DESTINATION_STORAGE)")
         Long countActiveParcelsByDriver(@Param("driver") Driver driver);
 
@@ -0,0 +1,9 @@
+package com.example.parcel_delivery.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.example.parcel_delivery.models.entities.StorageLane;
+
+public interface StorageLaneRepo extends JpaRepository<StorageLane, Long> {
+
+}
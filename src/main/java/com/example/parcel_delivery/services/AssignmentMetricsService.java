@@ -0,0 +1,14 @@
+package com.example.parcel_delivery.services;
+
+import java.util.List;
+
+import com.example.parcel_delivery.models.dtos.responses.AssignmentLatencyResDTO;
+import com.example.parcel_delivery.models.entities.Parcel;
+
+public interface AssignmentMetricsService {
+
+    long recordAssignedParcels(List<Parcel> parcels);
+
+    AssignmentLatencyResDTO getAssignmentLatency();
+
+}
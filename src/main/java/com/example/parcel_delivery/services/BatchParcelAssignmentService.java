@@ -1,5 +1,18 @@
 package com.example.parcel_delivery.services;
 
+import java.util.List;
+
+import com.example.parcel_delivery.models.dtos.responses.AssignmentRunResDTO;
+import com.example.parcel_delivery.models.dtos.responses.CityAssignmentResDTO;
+
 public interface BatchParcelAssignmentService {
-    
+
+    AssignmentRunResDTO batchAssignParcels();
+
+    AssignmentRunResDTO dryRunBatchAssignParcels(String strategy, String intraMatching);
+
+    CityAssignmentResDTO assignCityParcels(String city, List<Long> parcelIds);
+
+    AssignmentRunResDTO getLastRunReport();
+
 }
@@ -0,0 +1,18 @@
+package com.example.parcel_delivery.services;
+
+import com.example.parcel_delivery.models.enums.CabinetSize;
+import com.example.parcel_delivery.models.events.CabinetStatusChangedEvent;
+
+public interface CabinetAvailabilityService {
+
+    boolean hasFreeCabinet(Long lockerId);
+
+    int freeCabinetCount(Long lockerId);
+
+    long pickFreeCabinet(Long lockerId, CabinetSize size);
+
+    void onCabinetStatusChanged(CabinetStatusChangedEvent event);
+
+    void rebuild();
+
+}
@@ -1,5 +1,6 @@
 package com.example.parcel_delivery.services;
 
+import com.example.parcel_delivery.models.dtos.responses.LockerUtilisationResDTO;
 import com.example.parcel_delivery.models.entities.Cabinet;
 import com.example.parcel_delivery.models.entities.Parcel;
 
@@ -11,11 +12,17 @@ public interface CabinetService {
 
     Boolean hasAnyAvailableCabinets(Long parcelLockerLocationId);
 
-    Cabinet reserveCabinetFromThe5Lockers(Long selectedLockerIdLong);
+    Cabinet reserveCabinetFromThe5Lockers(Long selectedLockerIdLong, Double width, Double height, Double depth);
 
-    Cabinet holdCabinetForRecipientLocker(Long lockerId);
+    Cabinet holdCabinetForRecipientLocker(Long lockerId, Double width, Double height, Double depth);
 
-    Cabinet associateHeldCabinetWithParcel(Parcel parcel, Long lockerId);
+    void bindHoldToParcel(Cabinet heldCabinet, Parcel parcel);
+
+    Cabinet associateHeldCabinetWithParcel(Parcel parcel);
+
+    int releaseExpiredHolds(int batchSize);
+
+    List<LockerUtilisationResDTO> getLockerUtilisation(String city);
 
     void save(Cabinet cabinet);
 
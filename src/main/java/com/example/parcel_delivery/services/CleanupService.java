@@ -3,5 +3,7 @@ package com.example.parcel_delivery.services;
 public interface CleanupService {
      
     void cleanupOldIdempotencyKeys();
+
+    void releaseExpiredCabinetHolds();
   
 }
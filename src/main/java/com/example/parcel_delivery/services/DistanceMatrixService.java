@@ -0,0 +1,12 @@
+package com.example.parcel_delivery.services;
+
+import com.example.parcel_delivery.models.entities.ParcelLocker;
+import com.example.parcel_delivery.utils.DistanceMatrix;
+
+public interface DistanceMatrixService {
+
+    DistanceMatrix getCityMatrix(String city);
+
+    int indexOf(ParcelLocker locker);
+
+}
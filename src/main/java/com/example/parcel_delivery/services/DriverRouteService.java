@@ -0,0 +1,9 @@
+package com.example.parcel_delivery.services;
+
+import com.example.parcel_delivery.models.dtos.responses.DriverRouteResDTO;
+
+public interface DriverRouteService {
+
+    DriverRouteResDTO getIntraCityDriverRoute(Long driverId);
+
+}
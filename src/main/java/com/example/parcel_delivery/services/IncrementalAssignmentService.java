@@ -0,0 +1,13 @@
+package com.example.parcel_delivery.services;
+
+import com.example.parcel_delivery.models.events.ParcelAssignableEvent;
+
+public interface IncrementalAssignmentService {
+
+    void onParcelAssignable(ParcelAssignableEvent event);
+
+    void assignOverdueCities();
+
+    void reconcile();
+
+}
@@ -0,0 +1,40 @@
+package com.example.parcel_delivery.services;
+
+import java.util.List;
+
+import com.example.parcel_delivery.models.assignment.VehicleLoad;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+
+/**
+ * Decides which of the pending parcels a driver takes. The batch assignment
+ * picks the strategy by name (property tendrilex.assignment.strategy).
+ */
+public interface ParcelAssignmentStrategy {
+
+    String getName();
+
+    /**
+     * Picks the next load of a driver. The picked parcels are removed from
+     * pending.
+     * 
+     * @param driver
+     * @param load             what the driver already carries on this leg
+     * @param pending
+     * @param parcelsPerDriver the count threshold of the driver type
+     * @return the picked parcels
+     */
+    List<Parcel> nextLoad(Driver driver, VehicleLoad load, List<Parcel> pending, int parcelsPerDriver);
+
+    /**
+     * Whether the driver is loaded for the day and has to be marked unavailable
+     * 
+     * @param driver
+     * @param assignedParcels  all parcels of the driver (database + this run)
+     * @param load
+     * @param parcelsPerDriver
+     * @return
+     */
+    boolean isLoaded(Driver driver, long assignedParcels, VehicleLoad load, int parcelsPerDriver);
+
+}
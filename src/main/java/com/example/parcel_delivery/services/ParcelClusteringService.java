@@ -0,0 +1,11 @@
+package com.example.parcel_delivery.services;
+
+import java.util.List;
+
+import com.example.parcel_delivery.models.entities.Parcel;
+
+public interface ParcelClusteringService {
+
+    List<Parcel> orderForIntraDrivers(List<Parcel> parcels);
+
+}
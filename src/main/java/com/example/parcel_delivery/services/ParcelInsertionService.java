@@ -0,0 +1,7 @@
+package com.example.parcel_delivery.services;
+
+public interface ParcelInsertionService {
+
+    boolean tryInsert(Long parcelId, String city);
+
+}
@@ -0,0 +1,12 @@
+package com.example.parcel_delivery.services;
+
+import java.util.List;
+
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+
+public interface ParcelMatchingService {
+
+    List<List<Parcel>> matchToDrivers(List<Driver> drivers, int[] freeSlots, List<Parcel> pending);
+
+}
@@ -1,7 +1,11 @@
 package com.example.parcel_delivery.services;
 
 import java.util.List;
+import java.util.function.BiConsumer;
 
+import com.example.parcel_delivery.models.assignment.AssignableParcel;
+import com.example.parcel_delivery.models.assignment.HubParcel;
+import com.example.parcel_delivery.models.assignment.InterCityLaneIndex;
 import com.example.parcel_delivery.models.dtos.requests.ParcelReqDTO;
 import com.example.parcel_delivery.models.entities.Driver;
 import com.example.parcel_delivery.models.entities.Parcel;
@@ -23,6 +27,14 @@ public interface ParcelService {
 
     List<Parcel> findParcelsForDriverAssignment();
 
+    List<Parcel> findParcelsForDriverAssignment(List<Long> parcelIds);
+
+    void streamParcelsForDriverAssignment(BiConsumer<String, List<AssignableParcel>> cityConsumer);
+
+    InterCityLaneIndex buildInterCityLaneIndex();
+
+    InterCityLaneIndex buildInterCityLaneIndex(String destinationCity);
+
     Long countParcelsByDriver(Driver driver);
 
     Parcel pickUpParcelFromLocker(Long parcelId, Integer transactionCode);
@@ -59,6 +71,12 @@ public interface ParcelService {
 
     List<Parcel> getParcelsForReturnTrip(String currentCity, String originCity);
 
+    List<Parcel> getParcelsOfActiveIntraCityDrivers(String city);
+
+    List<Parcel> getParcelsOnRouteOfDriver(Long driverId);
+
+    List<HubParcel> findParcelsWaitingInStorages();
+
     Parcel deliverToRecipientPickupPoint(Long parcelId, Integer recipientTransactionCode);
 
     Parcel pickUpParcelFromStorage(Long parcelId);
@@ -0,0 +1,7 @@
+package com.example.parcel_delivery.services;
+
+public interface StorageNetworkService {
+
+    int routeWaitingParcels();
+
+}
@@ -0,0 +1,92 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.parcel_delivery.models.assignment.ParcelPriority;
+import com.example.parcel_delivery.models.dtos.responses.AssignmentLatencyResDTO;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.ServiceLevel;
+import com.example.parcel_delivery.services.AssignmentMetricsService;
+
+/**
+ * Time from drop-off (the parcel became assignable) to assignment, over the
+ * last tendrilex.assignment.metrics.window assigned parcels of this node.
+ */
+@Service
+public class AssignmentMetricsServiceImpl implements AssignmentMetricsService {
+
+    private final long[] waits;
+    private final boolean[] express;
+    private int next;
+    private int samples;
+
+    public AssignmentMetricsServiceImpl(@Value("${tendrilex.assignment.metrics.window:10000}") int window) {
+        this.waits = new long[window];
+        this.express = new boolean[window];
+    }
+
+    /**
+     * Records the wait of every parcel that was just assigned
+     * 
+     * @param parcels
+     * @return p95 of the given parcels (seconds)
+     */
+    @Override
+    public synchronized long recordAssignedParcels(List<Parcel> parcels) {
+        LocalDateTime now = LocalDateTime.now();
+        long[] batch = new long[parcels.size()];
+        int i = 0;
+
+        for (Parcel parcel : parcels) {
+            if (parcel.getStatusUpdatedAt() == null) {
+                continue;
+            }
+            long wait = Math.max(0, Duration.between(parcel.getStatusUpdatedAt(), now).getSeconds());
+            batch[i++] = wait;
+
+            waits[next] = wait;
+            express[next] = ParcelPriority.serviceLevelOf(parcel) == ServiceLevel.EXPRESS;
+            next = (next + 1) % waits.length;
+            samples = Math.min(samples + 1, waits.length);
+        }
+        return percentile(Arrays.copyOf(batch, i), 0.95);
+    }
+
+    @Override
+    public synchronized AssignmentLatencyResDTO getAssignmentLatency() {
+        long[] all = Arrays.copyOf(waits, samples);
+
+        long[] expressWaits = new long[samples];
+        int expressCount = 0;
+        for (int i = 0; i < samples; i++) {
+            if (express[i]) {
+                expressWaits[expressCount++] = waits[i];
+            }
+        }
+
+        AssignmentLatencyResDTO latency = new AssignmentLatencyResDTO();
+        latency.setSamples(samples);
+        latency.setP50Seconds(percentile(all, 0.50));
+        latency.setP95Seconds(percentile(all, 0.95));
+        latency.setMaxSeconds(percentile(all, 1.0));
+        latency.setExpressP95Seconds(percentile(Arrays.copyOf(expressWaits, expressCount), 0.95));
+        return latency;
+    }
+
+    // nearest rank, sorts the given array
+    private static long percentile(long[] values, double percentile) {
+        if (values.length == 0) {
+            return 0;
+        }
+        Arrays.sort(values);
+        int rank = (int) Math.ceil(percentile * values.length);
+        return values[Math.max(0, rank - 1)];
+    }
+
+}
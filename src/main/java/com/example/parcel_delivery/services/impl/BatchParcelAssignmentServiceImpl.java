@@ -1,22 +1,61 @@
 package com.example.parcel_delivery.services.impl;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.parcel_delivery.exceptions.TendrilExExceptionHandler;
+import com.example.parcel_delivery.models.assignment.AssignableParcel;
+import com.example.parcel_delivery.models.assignment.AssignmentOptions;
+import com.example.parcel_delivery.models.assignment.DriverLoadLedger;
+import com.example.parcel_delivery.models.assignment.FlushResult;
+import com.example.parcel_delivery.models.assignment.InterCityLaneIndex;
+import com.example.parcel_delivery.models.assignment.LaneFill;
+import com.example.parcel_delivery.models.assignment.ParcelAssignment;
+import com.example.parcel_delivery.models.assignment.ParcelAssignmentPlan;
+import com.example.parcel_delivery.models.assignment.ParcelGrouping;
+import com.example.parcel_delivery.models.assignment.ParcelPriority;
+import com.example.parcel_delivery.models.assignment.VehicleLoad;
+import com.example.parcel_delivery.models.dtos.responses.AssignmentRunResDTO;
+import com.example.parcel_delivery.models.dtos.responses.CityAssignmentResDTO;
+import com.example.parcel_delivery.models.dtos.responses.DriverPlanResDTO;
+import com.example.parcel_delivery.models.dtos.responses.LaneFillResDTO;
 import com.example.parcel_delivery.models.entities.Driver;
 import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.AssignmentOutcome;
+import com.example.parcel_delivery.models.enums.DriverType;
 import com.example.parcel_delivery.models.enums.ParcelStatus;
-import com.example.parcel_delivery.models.enums.ParcelType;
+import com.example.parcel_delivery.repositories.ParcelAssignmentJdbcRepo;
+import com.example.parcel_delivery.services.AssignmentMetricsService;
 import com.example.parcel_delivery.services.BatchParcelAssignmentService;
 import com.example.parcel_delivery.services.DriverService;
+import com.example.parcel_delivery.services.ParcelAssignmentStrategy;
+import com.example.parcel_delivery.services.ParcelClusteringService;
+import com.example.parcel_delivery.services.ParcelMatchingService;
 import com.example.parcel_delivery.services.ParcelService;
+import com.example.parcel_delivery.services.StorageNetworkService;
+import com.example.parcel_delivery.utils.GeoUtils;
 
 @Service
 public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentService {
@@ -27,51 +66,464 @@ public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentSe
     @Autowired
     private ParcelService parcelService;
 
+    @Autowired
+    private ParcelAssignmentJdbcRepo parcelAssignmentJdbcRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("cityAssignmentExecutor")
+    private ExecutorService cityAssignmentExecutor;
+
+    @Autowired
+    private List<ParcelAssignmentStrategy> assignmentStrategies;
+
+    @Autowired
+    private ParcelClusteringService parcelClusteringService;
+
+    @Autowired
+    private ParcelMatchingService parcelMatchingService;
+
+    @Autowired
+    private AssignmentMetricsService assignmentMetricsService;
+
+    @Autowired
+    private StorageNetworkService storageNetworkService;
+
+    @Value("${tendrilex.assignment.intra-matching:" + GREEDY_MATCHING + "}")
+    private String intraMatching;
+
+    @Value("${tendrilex.assignment.city-parallelism:4}")
+    private int cityParallelism;
+
+    @Value("${tendrilex.assignment.city-retries:2}")
+    private int cityRetries;
+
+    @Value("${tendrilex.assignment.strategy:" + CountBasedAssignmentStrategy.NAME + "}")
+    private String strategyName;
+
+    private static final Logger logger = Logger.getLogger(BatchParcelAssignmentServiceImpl.class.getName());
+
     // Define the minimum number of parcels each driver should handle per type
     private static final int INTRA_CITY_PARCELS_PER_DRIVER = 4;
     private static final int INTER_CITY_PARCELS_PER_DRIVER = 5;
 
-    @Transactional
+    // how the intra drivers get their parcels: one after the other, or all at once
+    // with the min-cost solver
+    private static final String GREEDY_MATCHING = "greedy";
+    private static final String MIN_COST_MATCHING = "min-cost";
+
+    private volatile AssignmentRunResDTO lastRunReport;
+
+    // the batch run and the incremental assignment never work on the same city at
+    // the same time on this node (between nodes the city advisory lock does it)
+    private final Map<String, ReentrantLock> cityLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the batch assignment. Every city is its own unit of work on the
+     * cityAssignmentExecutor pool: it has its own transaction and its own retries,
+     * so one slow or failing city neither holds locks for nor rolls back the
+     * others. The outcome of every city ends up in the returned report.
+     * 
+     * @return
+     */
+    @Override
     // @Scheduled(cron = "0 0 1 * * MON-FRI")
-    public void batchAssignParcels() {
+    public AssignmentRunResDTO batchAssignParcels() {
+
+        AssignmentRunResDTO report = runBatch(new AssignmentOptions(strategyName, intraMatching, false));
+
+        lastRunReport = report;
+
+        return report;
+    }
+
+    /**
+     * Runs the whole batch assignment on a read-only snapshot of every city and
+     * returns the plan it would apply: parcels per driver, utilisation, estimated
+     * km and the parcels left over. Nothing is written, so strategies and
+     * thresholds can be compared on the real backlog.
+     * 
+     * @param strategy      null for the configured one
+     * @param intraMatching null for the configured one
+     * @return
+     */
+    @Override
+    public AssignmentRunResDTO dryRunBatchAssignParcels(String strategy, String intraMatching) {
+
+        AssignmentOptions options = new AssignmentOptions(
+                strategy != null ? strategy : strategyName,
+                intraMatching != null ? intraMatching : this.intraMatching,
+                true);
+
+        if (assignmentStrategies.stream().noneMatch(s -> s.getName().equals(options.getStrategy()))) {
+            throw new TendrilExExceptionHandler(HttpStatus.BAD_REQUEST,
+                    "Unknown assignment strategy: " + options.getStrategy());
+        }
+        if (!GREEDY_MATCHING.equals(options.getIntraMatching())
+                && !MIN_COST_MATCHING.equals(options.getIntraMatching())) {
+            throw new TendrilExExceptionHandler(HttpStatus.BAD_REQUEST,
+                    "Unknown intra-city matching: " + options.getIntraMatching());
+        }
+
+        return runBatch(options);
+    }
+
+    private AssignmentRunResDTO runBatch(AssignmentOptions options) {
+
+        long runStart = System.nanoTime();
+
+        AssignmentRunResDTO report = new AssignmentRunResDTO();
+
+        report.setStartedAt(LocalDateTime.now());
+        report.setDryRun(options.isDryRun());
+        report.setStrategy(options.getStrategy());
+        report.setIntraMatching(options.getIntraMatching());
+
+        // Process every city on its own worker. The unassigned parcels are streamed
+        // city by city and a city only loads its entities once its worker holds the
+        // city; the permits keep the reader from running ahead of the workers.
+        Map<String, Future<CityAssignmentResDTO>> cityRuns = new LinkedHashMap<>();
+
+        Semaphore cityPermits = new Semaphore(cityParallelism);
+
+        // next hops first, the lanes below follow them
+        if (!options.isDryRun()) {
+            report.setHubRoutedParcels(storageNetworkService.routeWaitingParcels());
+        }
+
+        // both legs of every inter-city lane, read once for the whole run
+        InterCityLaneIndex laneIndex = parcelService.buildInterCityLaneIndex();
+
+        report.setInterCityLanes(laneIndex.laneCount());
+
+        parcelService.streamParcelsForDriverAssignment((city, cityParcels) -> {
+
+            report.setParcelsLoaded(report.getParcelsLoaded() + cityParcels.size());
+
+            List<Long> parcelIds = cityParcels.stream().map(AssignableParcel::getId).toList();
+
+            cityPermits.acquireUninterruptibly();
+
+            cityRuns.put(city, cityAssignmentExecutor.submit(() -> {
+                try {
+                    return assignCityParcels(city, parcelIds, laneIndex, options);
+                } finally {
+                    cityPermits.release();
+                }
+            }));
+        });
+
+        for (Map.Entry<String, Future<CityAssignmentResDTO>> cityRun : cityRuns.entrySet()) {
+
+            report.getCities().add(awaitCity(cityRun.getKey(), cityRun.getValue()));
+        }
+
+        report.setEstimatedRouteKm(report.getCities().stream()
+                .mapToDouble(CityAssignmentResDTO::getEstimatedRouteKm)
+                .sum());
+
+        report.setEmptyBackhauls(report.getCities().stream()
+                .mapToInt(CityAssignmentResDTO::getEmptyBackhauls)
+                .sum());
+
+        if (!options.isDryRun()) {
+            report.setWaitP95Seconds(assignmentMetricsService.getAssignmentLatency().getP95Seconds());
+        }
+
+        report.setDurationMs((System.nanoTime() - runStart) / 1_000_000);
+
+        logger.info((options.isDryRun() ? "Dry run" : "Batch assignment") + " finished in " + report.getDurationMs() + " ms: " + report.getCities());
+
+        return report;
+    }
+
+    /**
+     * Returns the report of the last batch assignment run of this node
+     * 
+     * @return
+     */
+    @Override
+    public AssignmentRunResDTO getLastRunReport() {
+        if (lastRunReport == null) {
+            throw new TendrilExExceptionHandler(HttpStatus.NOT_FOUND, "No batch assignment has run yet");
+        }
+        return lastRunReport;
+    }
+
+    /**
+     * The strategy that decides which parcels a driver takes (count or
+     * bin-packing)
+     * 
+     * @return
+     */
+    private ParcelAssignmentStrategy getAssignmentStrategy(String name) {
+        return assignmentStrategies.stream()
+                .filter(strategy -> strategy.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new TendrilExExceptionHandler(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Unknown assignment strategy: " + name));
+    }
+
+    private CityAssignmentResDTO awaitCity(String city, Future<CityAssignmentResDTO> cityRun) {
+        try {
+            return cityRun.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failedCity(city, e);
+        } catch (ExecutionException e) {
+            return failedCity(city, e.getCause());
+        }
+    }
+
+    private CityAssignmentResDTO failedCity(String city, Throwable e) {
+        CityAssignmentResDTO cityReport = new CityAssignmentResDTO(city);
+        cityReport.setOutcome(AssignmentOutcome.FAILED);
+        cityReport.setError(e.getMessage());
+        return cityReport;
+    }
+
+    /**
+     * Assigns the parcels of one city in its own transaction. A failed attempt is
+     * rolled back and retried with exponential backoff up to cityRetries times.
+     * Used by the batch run for every city and by the incremental assignment,
+     * which leaves out the low-volume fallback.
+     * 
+     * The parcels are read once the city is held, so the ones another node or
+     * run assigned in the meantime are left out.
+     * 
+     * @param city
+     * @param parcelIds
+     * @return
+     */
+    @Override
+    public CityAssignmentResDTO assignCityParcels(String city, List<Long> parcelIds) {
+        return assignCityParcels(city, parcelIds, parcelService.buildInterCityLaneIndex(city),
+                new AssignmentOptions(strategyName, intraMatching, false, true));
+    }
+
+    private CityAssignmentResDTO assignCityParcels(String city, List<Long> parcelIds,
+            InterCityLaneIndex laneIndex, AssignmentOptions options) {
+
+        // a dry run writes nothing, it does not need to wait for the other runs
+        if (options.isDryRun()) {
+            return assignCity(city, parcelIds, laneIndex, options);
+        }
+
+        ReentrantLock cityLock = cityLocks.computeIfAbsent(city, c -> new ReentrantLock());
+
+        cityLock.lock();
+
+        try {
+            return assignCity(city, parcelIds, laneIndex, options);
+        } finally {
+            cityLock.unlock();
+        }
+    }
+
+    /**
+     * Read-only, repeatable-read transaction: a dry run sees one consistent
+     * snapshot of the city and can not write even by mistake
+     * 
+     * @return
+     */
+    private TransactionTemplate snapshotTransactionTemplate() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        return template;
+    }
+
+    /**
+     * Counts the parcels the plan left over. Dry runs also get the full plan: the
+     * parcels of every driver with the utilisation of the van and the ids of the
+     * leftovers.
+     */
+    private void reportLeftovers(CityAssignmentResDTO cityReport, ParcelAssignmentPlan plan,
+            List<Parcel> cityParcels) {
+
+        Set<Long> assignedIds = plan.getAssignments().stream()
+                .map(ParcelAssignment::getParcelId)
+                .collect(Collectors.toSet());
+
+        // return parcels belong to their own city, they are not leftovers here
+        List<Long> unassignedIds = cityParcels.stream()
+                .map(Parcel::getId)
+                .filter(id -> !assignedIds.contains(id))
+                .toList();
+
+        cityReport.setParcelsUnassigned(unassignedIds.size());
 
-        // Fetch unassigned parcels
-        List<Parcel> parcels = parcelService.findParcelsForDriverAssignment();
+        if (!plan.getOptions().isDryRun()) {
+            return;
+        }
+
+        cityReport.setUnassignedParcelIds(unassignedIds);
+
+        List<DriverPlanResDTO> driverPlans = new ArrayList<>();
 
-        if (parcels.isEmpty()) {
+        for (Map.Entry<Long, List<Parcel>> entry : plan.getParcelsByDriver().entrySet()) {
 
-            return; // Exit if no parcels are available
+            Driver driver = plan.getDriversById().get(entry.getKey());
+            VehicleLoad load = plan.loadOf(driver);
+
+            DriverPlanResDTO driverPlan = new DriverPlanResDTO();
+            driverPlan.setDriverId(driver.getId());
+            driverPlan.setParcelIds(entry.getValue().stream().map(Parcel::getId).toList());
+            driverPlan.setVolumeUtilisation(load.getVolume() / BinPackingAssignmentStrategy.volumeCapacityOf(driver));
+            driverPlan.setMassUtilisation(load.getMass() / BinPackingAssignmentStrategy.massCapacityOf(driver));
+            driverPlan.setEstimatedRouteKm(estimateRouteKm(driver, entry.getValue()));
+            driverPlans.add(driverPlan);
         }
 
-        // Group parcels by sender city to optimize driver assignment
-        Map<String, List<Parcel>> parcelsByCity = parcels.stream()
+        cityReport.setDriverPlans(driverPlans);
+    }
 
-                .collect(Collectors.groupingBy(parcel -> parcel.getSender().getUser().getCity()));
+    /**
+     * Estimated route of the parcels of a driver, only for intra-city drivers:
+     * GeoUtils models a city tour (lockers and recipients), an inter-city trip
+     * goes from storage to storage and has no estimate
+     * 
+     * @return km, null for inter-city drivers
+     */
+    private static Double estimateRouteKm(Driver driver, List<Parcel> parcels) {
+        return driver.getDriverType() == DriverType.INTRA_CITY ? GeoUtils.estimateRouteKm(parcels) : null;
+    }
 
-        // Process parcels for each city
-        for (Map.Entry<String, List<Parcel>> entry : parcelsByCity.entrySet()) {
+    /**
+     * The parcels that can travel back with the inter-city drivers of the city:
+     * the ones waiting on the opposite lane of every destination the city sends
+     * to. One query for all lanes, taken from the lane index.
+     */
+    private List<Parcel> loadReturnParcels(String city, List<Parcel> cityParcels, InterCityLaneIndex laneIndex) {
+
+        List<Long> returnParcelIds = cityParcels.stream()
+                .filter(ParcelGrouping::isForInterDriver)
+                .map(ParcelGrouping::hopCityOf)
+                .distinct()
+                .flatMap(hopCity -> laneIndex.pendingIds(hopCity, city).stream())
+                .toList();
+
+        return returnParcelIds.isEmpty() ? List.of() : parcelService.findParcelsForDriverAssignment(returnParcelIds);
+    }
+
+    private CityAssignmentResDTO assignCity(String city, List<Long> parcelIds, InterCityLaneIndex laneIndex,
+            AssignmentOptions options) {
+
+        CityAssignmentResDTO cityReport = new CityAssignmentResDTO(city);
 
-            String city = entry.getKey();
+        long cityStart = System.nanoTime();
 
-            List<Parcel> cityParcels = entry.getValue();
+        for (int attempt = 1;; attempt++) {
+
+            cityReport.setAttempts(attempt);
 
             try {
 
-                assignParcelsToIntraDrivers(cityParcels, city);
+                TransactionTemplate cityTransaction = options.isDryRun() ? snapshotTransactionTemplate()
+                        : transactionTemplate;
+
+                ParcelAssignmentPlan plan = cityTransaction.execute(status -> {
+
+                    // another node is on this city right now, it gets all of it
+                    if (!options.isDryRun() && !parcelAssignmentJdbcRepo.tryLockCity(city)) {
+                        return null;
+                    }
+
+                    // read under the lock: what another node assigned before is not waiting anymore
+                    List<Parcel> cityParcels = parcelService.findParcelsForDriverAssignment(parcelIds);
+                    if (cityParcels.isEmpty()) {
+                        return new ParcelAssignmentPlan(city, options, new DriverLoadLedger(List.of()));
+                    }
+                    List<Parcel> returnParcels = loadReturnParcels(city, cityParcels, laneIndex);
+
+                    // decisions are collected here and written at the end of the city with a few
+                    // set-based statements instead of one save per parcel and driver
+                    List<Driver> intraDrivers = driverService.getActiveAvailableIntraCityDrivers(city);
+                    List<Driver> interDrivers = driverService.getActiveAvailableInterCityDrivers(city);
+
+                    // one grouped query for what every driver already carries, the loops below
+                    // only read and update this ledger
+                    List<Driver> cityDrivers = new ArrayList<>(intraDrivers);
+                    cityDrivers.addAll(interDrivers);
+
+                    ParcelAssignmentPlan cityPlan = new ParcelAssignmentPlan(city, options,
+                            parcelAssignmentJdbcRepo.loadDriverLedger(cityDrivers));
+
+                    assignParcelsToIntraDrivers(cityParcels, intraDrivers, cityPlan);
+
+                    assignParcelsToInterDrivers(cityParcels, returnParcels, interDrivers, cityPlan);
+
+                    if (options.isDryRun()) {
+                        status.setRollbackOnly();
+                    } else {
+                        FlushResult flushed = parcelAssignmentJdbcRepo.flush(cityPlan);
+                        cityReport.setStatements(flushed.getStatements());
+                        cityPlan.retainWritten(flushed);
+                    }
 
-                assignParcelsToInterDrivers(cityParcels, city);
+                    reportLeftovers(cityReport, cityPlan, cityParcels);
+
+                    return cityPlan;
+                });
+
+                if (plan == null) {
+                    cityReport.setOutcome(AssignmentOutcome.SKIPPED);
+                    cityReport.setError(null);
+                    break;
+                }
+
+                cityReport.setOutcome(AssignmentOutcome.SUCCEEDED);
+                cityReport.setParcelsAssigned(plan.getAssignments().size());
+                cityReport.setDriversLoaded(plan.getUnavailableDriverIds().size());
+                cityReport.setEstimatedRouteKm(plan.getParcelsByDriver().entrySet().stream()
+                        .map(entry -> estimateRouteKm(plan.getDriversById().get(entry.getKey()), entry.getValue()))
+                        .filter(Objects::nonNull)
+                        .mapToDouble(Double::doubleValue)
+                        .sum());
+                cityReport.setLanes(plan.getLanes().stream().map(this::toLaneFillResDTO).toList());
+                cityReport.setEmptyBackhauls(plan.getLanes().stream().mapToInt(LaneFill::getEmptyBackhauls).sum());
+
+                if (!options.isDryRun()) {
+                    cityReport.setWaitP95Seconds(assignmentMetricsService.recordAssignedParcels(
+                            plan.getParcelsByDriver().values().stream().flatMap(List::stream).toList()));
+                }
+                cityReport.setError(null);
+                break;
 
             } catch (Exception e) {
 
-                throw new TendrilExExceptionHandler(HttpStatus.INTERNAL_SERVER_ERROR,
-                        "Batch assignment failed for city " + city + ": " + e.getMessage());
+                logger.warning("Batch assignment attempt " + attempt + " failed for city " + city + ": "
+                        + e.getMessage());
 
+                cityReport.setOutcome(AssignmentOutcome.FAILED);
+                cityReport.setError(e.getMessage());
+
+                if (attempt > cityRetries) {
+                    break;
+                }
+
+                try {
+                    // Exponential backoff before retrying
+                    Thread.sleep((long) Math.pow(2, attempt) * 250);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
             }
         }
 
+        cityReport.setDurationMs((System.nanoTime() - cityStart) / 1_000_000);
+
+        return cityReport;
     }
 
-    private void assignParcelsToIntraDrivers(List<Parcel> parcels, String city) {
+    private void assignParcelsToIntraDrivers(List<Parcel> parcels, List<Driver> availableIntraDrivers,
+            ParcelAssignmentPlan plan) {
 
         /*
          * STEP1: access the parcels that are ready to be assigned to intra
@@ -84,25 +536,22 @@ public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentSe
          * - AWAITING_INTRA_CITY_PICKUP)
          */
 
-        List<Parcel> parcelsForIntraDriver = parcels.stream()
-                .filter(parcel -> parcel.getStatus() == ParcelStatus.AWAITING_DEPARTURE_STORAGE_PICKUP
-                        && parcel.getParcelType() == ParcelType.INTER_CITY ||
-                        parcel.getStatus() == ParcelStatus.AWAITING_FINAL_DELIVERY
-                                && parcel.getParcelType() == ParcelType.INTER_CITY
-                        ||
-                        parcel.getStatus() == ParcelStatus.AWAITING_INTRA_CITY_PICKUP && parcel
-                                .getParcelType() == ParcelType.INTRA_CITY)
-                .collect(Collectors.toList());
+        List<Parcel> parcelsForIntraDriver = ParcelGrouping.forIntraDrivers(parcels);
+
+        // the most urgent parcels first: the strategy decides how many parcels a
+        // driver takes, the priority only in which order they are offered
+        parcelsForIntraDriver = orderForIntraDrivers(ParcelPriority.mostUrgentFirst(parcelsForIntraDriver),
+                availableIntraDrivers.size());
 
         /*
-         * STEP 2. Get the available intra drivers
+         * STEP 2. The available intra drivers are loaded with the ledger of the city
          * 
          */
-        List<Driver> availableIntraDrivers = driverService.getActiveAvailableIntraCityDrivers(city);
 
         /*
-         * STEP 3. Assign.
+         * STEP 3. Assign. Which parcels a driver takes is up to the strategy
          */
+        ParcelAssignmentStrategy strategy = getAssignmentStrategy(plan.getOptions().getStrategy());
 
         /**
          * Scenario 1: High Volume Assignment
@@ -115,30 +564,30 @@ public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentSe
          * their assignment for the day (the batch works daily at 1:00 am)
          * 
          */
-        if (!parcelsForIntraDriver.isEmpty() && parcelsForIntraDriver.size() >= INTRA_CITY_PARCELS_PER_DRIVER) {
+        if (!parcelsForIntraDriver.isEmpty() && parcelsForIntraDriver.size() >= INTRA_CITY_PARCELS_PER_DRIVER
+                && MIN_COST_MATCHING.equals(plan.getOptions().getIntraMatching())) {
+
+            assignParcelsByMinCost(parcelsForIntraDriver, availableIntraDrivers, strategy, plan);
+
+        } else if (!parcelsForIntraDriver.isEmpty()
+                && parcelsForIntraDriver.size() >= INTRA_CITY_PARCELS_PER_DRIVER) {
 
             for (Driver driver : availableIntraDrivers) {
 
                 if (parcelsForIntraDriver.isEmpty())
                     break;
 
-                int parcelsToAssign = Math.min(parcelsForIntraDriver.size(), INTRA_CITY_PARCELS_PER_DRIVER);
+                for (Parcel parcel : strategy.nextLoad(driver, plan.loadOf(driver), parcelsForIntraDriver,
+                        INTRA_CITY_PARCELS_PER_DRIVER)) {
 
-                for (int i = 0; i < parcelsToAssign; i++) {
-
-                    Parcel parcel = parcelsForIntraDriver.remove(0);
-
-                    parcel.setDriver(driver);
-
-                    parcel.setStatus(ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER);
-
-                    parcelService.save(parcel);
+                    plan.assign(parcel, driver, ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER);
 
                 }
 
-                if (parcelService.countParcelsByDriver(driver) >= INTRA_CITY_PARCELS_PER_DRIVER) {
+                if (strategy.isLoaded(driver, plan.countAssignedTo(driver), plan.loadOf(driver),
+                        INTRA_CITY_PARCELS_PER_DRIVER)) {
 
-                    driverService.updateDriverAvailability(driver, false);
+                    plan.markUnavailable(driver);
 
                 }
             }
@@ -159,27 +608,97 @@ public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentSe
          * ******************
          * 
          * Purpose: To handle leftover parcels after processing the majority of parcels.
+         * 
+         * Not for the incremental assignment: its few parcels wait for more parcels,
+         * a driver on the road or the reconciliation run instead of loading a driver
+         * each.
          */
-        if (!parcelsForIntraDriver.isEmpty() && parcelsForIntraDriver.size() < INTRA_CITY_PARCELS_PER_DRIVER) {
+        if (!parcelsForIntraDriver.isEmpty() && parcelsForIntraDriver.size() < INTRA_CITY_PARCELS_PER_DRIVER
+                && !plan.getOptions().isIncremental() && !availableIntraDrivers.isEmpty()) {
 
             Driver firstDriver = availableIntraDrivers.get(0);
 
-            for (Parcel parcel : parcelsForIntraDriver) {
+            // the count strategy takes all of them, bin-packing only what still fits
+            for (Parcel parcel : strategy.nextLoad(firstDriver, plan.loadOf(firstDriver), parcelsForIntraDriver,
+                    INTRA_CITY_PARCELS_PER_DRIVER)) {
 
-                parcel.setDriver(firstDriver);
+                plan.assign(parcel, firstDriver, ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER);
 
-                parcel.setStatus(ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER);
+            }
 
-                parcelService.save(parcel);
+            plan.markUnavailable(firstDriver);
+        }
 
-            }
+    }
 
-            driverService.updateDriverAvailability(firstDriver, false);
+    /**
+     * Geographically close parcels next to each other, so every driver gets a
+     * compact set of stops. The clustering is done per priority window (one
+     * window is what the drivers take at INTRA_CITY_PARCELS_PER_DRIVER each), so
+     * it never moves a standard parcel in front of an express one of an earlier
+     * window. No parcel is left out.
+     */
+    private List<Parcel> orderForIntraDrivers(List<Parcel> mostUrgentFirst, int drivers) {
+        int window = Math.max(1, drivers) * INTRA_CITY_PARCELS_PER_DRIVER;
+
+        List<Parcel> ordered = new ArrayList<>(mostUrgentFirst.size());
+        for (int from = 0; from < mostUrgentFirst.size(); from += window) {
+            ordered.addAll(parcelClusteringService.orderForIntraDrivers(
+                    mostUrgentFirst.subList(from, Math.min(from + window, mostUrgentFirst.size()))));
         }
+        return ordered;
+    }
+
+    /**
+     * Scenario 1 with tendrilex.assignment.intra-matching=min-cost: instead of
+     * filling the drivers one after the other in repository order, every driver
+     * gets the parcels that minimise the total distance from the drivers' home to
+     * the pickups, with at most INTRA_CITY_PARCELS_PER_DRIVER parcels per driver.
+     * The strategy still has the last word on what fits in the van, what does not
+     * fit goes back to the pending parcels.
+     */
+    private void assignParcelsByMinCost(List<Parcel> parcelsForIntraDriver, List<Driver> availableIntraDrivers,
+            ParcelAssignmentStrategy strategy, ParcelAssignmentPlan plan) {
+
+        List<Driver> drivers = availableIntraDrivers.stream()
+                .filter(driver -> !plan.isUnavailable(driver))
+                .toList();
+
+        int[] freeSlots = drivers.stream()
+                .mapToInt(driver -> Math.max(0, INTRA_CITY_PARCELS_PER_DRIVER - plan.countAssignedTo(driver)))
+                .toArray();
+
+        List<List<Parcel>> matched = parcelMatchingService.matchToDrivers(drivers, freeSlots,
+                parcelsForIntraDriver);
+
+        for (int d = 0; d < drivers.size(); d++) {
+
+            Driver driver = drivers.get(d);
+            List<Parcel> driverParcels = matched.get(d);
 
+            if (driverParcels.isEmpty())
+                continue;
+
+            for (Parcel parcel : strategy.nextLoad(driver, plan.loadOf(driver), driverParcels,
+                    INTRA_CITY_PARCELS_PER_DRIVER)) {
+
+                plan.assign(parcel, driver, ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER);
+
+            }
+
+            parcelsForIntraDriver.addAll(driverParcels);
+
+            if (strategy.isLoaded(driver, plan.countAssignedTo(driver), plan.loadOf(driver),
+                    INTRA_CITY_PARCELS_PER_DRIVER)) {
+
+                plan.markUnavailable(driver);
+
+            }
+        }
     }
 
-    private void assignParcelsToInterDrivers(List<Parcel> parcels, String city) {
+    private void assignParcelsToInterDrivers(List<Parcel> parcels, List<Parcel> returnParcelsOfCity,
+            List<Driver> availableInterDrivers, ParcelAssignmentPlan plan) {
 
         /*
          * STEP 1. i will access the parcels that are ready to be assigned to inter
@@ -189,19 +708,13 @@ public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentSe
          * reason( for a smoonther handling of retunrn parcels)
          */
 
-        Map<String, List<Parcel>> interCityParcelsByDestination = parcels.stream()
-
-                .filter(parcel -> parcel.getStatus() == ParcelStatus.AWAITING_INTER_CITY_PICKUP
-
-                        && parcel.getParcelType() == ParcelType.INTER_CITY)
+        // most urgent parcels (and destinations) first
+        Map<String, List<Parcel>> interCityParcelsByDestination = ParcelGrouping.forInterDriversByHop(parcels);
 
-                .collect(Collectors.groupingBy(parcel -> parcel.getRecipient() != null
+        // parcels for the way back, grouped by the city they wait in
+        Map<String, List<Parcel>> returnParcelsByOrigin = ParcelGrouping.byCurrentCity(returnParcelsOfCity);
 
-                        ? parcel.getRecipient().getUser().getCity()
-
-                        : parcel.getUnregisteredRecipientCity()));
-
-        List<Driver> availableInterDrivers = driverService.getActiveAvailableInterCityDrivers(city);
+        ParcelAssignmentStrategy strategy = getAssignmentStrategy(plan.getOptions().getStrategy());
 
         // run for every destination city
         for (String destinationCity : interCityParcelsByDestination.keySet()) {
@@ -211,7 +724,9 @@ public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentSe
             if (outgoingParcels == null || outgoingParcels.isEmpty())
                 continue;
 
-            List<Parcel> returnParcels = parcelService.getParcelsForReturnTrip(destinationCity, city);
+            List<Parcel> returnParcels = returnParcelsByOrigin.getOrDefault(destinationCity, new ArrayList<>());
+
+            LaneFill lane = plan.openLane(destinationCity);
 
             if (returnParcels.isEmpty() && outgoingParcels.isEmpty()) {
                 break; // No more parcels to process
@@ -232,32 +747,28 @@ public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentSe
 
                         break;
 
-                    int outgoingToAssign = Math.min(outgoingParcels.size(), INTER_CITY_PARCELS_PER_DRIVER);
-
-                    int returnToAssign = Math.min(returnParcels.size(), INTER_CITY_PARCELS_PER_DRIVER);
-
-                    assignParcelsToDriver(driver, outgoingParcels, outgoingToAssign,
-
-                            ParcelStatus.ASSIGNED_TO_INTER_CITY_DRIVER);
-
-                    assignParcelsToDriver(driver, returnParcels, returnToAssign,
-
-                            ParcelStatus.ASSIGNED_TO_INTER_CITY_DRIVER);
+                    lane.addDriver(assignParcelsToDriver(driver, outgoingParcels, strategy, plan, false),
+                            assignParcelsToDriver(driver, returnParcels, strategy, plan, true));
 
                     // check if driver is loaded by now
 
-                    if (parcelService.countParcelsByDriver(driver) >= 2 * INTER_CITY_PARCELS_PER_DRIVER) {
+                    if (strategy.isLoaded(driver, plan.countAssignedTo(driver), plan.loadOf(driver),
+                            2 * INTER_CITY_PARCELS_PER_DRIVER)) {
 
-                        driverService.updateDriverAvailability(driver, false);
+                        plan.markUnavailable(driver);
 
                         break;
                     }
                 }
 
-            } else {
+            } else if (!plan.getOptions().isIncremental()) {
 
                 /*
                  * Scenario 2 & 3:
+                 * Not for the incremental assignment, as for the intra-city drivers: a
+                 * trickle of one or two parcels would take a whole truck for the day.
+                 * They wait for the threshold, their max wait or the reconciliation run.
+                 *
                  * if there are only few inter parcels ( fewer than the threshold of inter
                  * parcels multiplied by two), then we will assgin all of these few parcels into
                  * one driver
@@ -273,24 +784,13 @@ public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentSe
 
                         break;
 
-                    if (!driver.getIsAvailable())
+                    if (plan.isUnavailable(driver))
                         continue;
 
-                    int outgoingToAssign = Math.min(outgoingParcels.size(), INTER_CITY_PARCELS_PER_DRIVER);
-
-                    int returnToAssign = Math.min(returnParcels.size(), INTER_CITY_PARCELS_PER_DRIVER);
-
-                    assignParcelsToDriver(driver, outgoingParcels,
-                            outgoingToAssign,
-
-                            ParcelStatus.ASSIGNED_TO_INTER_CITY_DRIVER);
-
-                    assignParcelsToDriver(driver, returnParcels,
-                            returnToAssign,
+                    lane.addDriver(assignParcelsToDriver(driver, outgoingParcels, strategy, plan, false),
+                            assignParcelsToDriver(driver, returnParcels, strategy, plan, true));
 
-                            ParcelStatus.ASSIGNED_TO_INTER_CITY_DRIVER);
-
-                    driverService.updateDriverAvailability(driver, false);
+                    plan.markUnavailable(driver);
 
                 }
             }
@@ -299,18 +799,42 @@ public class BatchParcelAssignmentServiceImpl implements BatchParcelAssignmentSe
 
     }
 
-    private void assignParcelsToDriver(Driver driver, List<Parcel> parcels, int count, ParcelStatus status) {
+    private LaneFillResDTO toLaneFillResDTO(LaneFill lane) {
+        LaneFillResDTO laneRes = new LaneFillResDTO();
+        laneRes.setOrigin(lane.getOrigin());
+        laneRes.setDestination(lane.getDestination());
+        laneRes.setDrivers(lane.getDrivers());
+        laneRes.setOutgoingParcels(lane.getOutgoingParcels());
+        laneRes.setReturnParcels(lane.getReturnParcels());
+        laneRes.setOutgoingFillRate(lane.fillRate(lane.getOutgoingParcels(), INTER_CITY_PARCELS_PER_DRIVER));
+        laneRes.setReturnFillRate(lane.fillRate(lane.getReturnParcels(), INTER_CITY_PARCELS_PER_DRIVER));
+        laneRes.setEmptyBackhauls(lane.getEmptyBackhauls());
+        return laneRes;
+    }
 
-        for (int i = 0; i < count && !parcels.isEmpty(); i++) {
+    /**
+     * Gives one leg (outgoing or way back) of an inter-city trip to a driver. Both
+     * legs are loaded independently since the van is emptied at the destination.
+     */
+    private int assignParcelsToDriver(Driver driver, List<Parcel> parcels, ParcelAssignmentStrategy strategy,
+            ParcelAssignmentPlan plan, boolean returnLeg) {
 
-            Parcel parcel = parcels.remove(0);
+        if (parcels.isEmpty())
+            return 0;
 
-            parcel.setDriver(driver);
+        List<Parcel> load = strategy.nextLoad(driver, returnLeg ? plan.returnLoadOf(driver) : plan.loadOf(driver),
+                parcels, INTER_CITY_PARCELS_PER_DRIVER);
 
-            parcel.setStatus(status);
+        for (Parcel parcel : load) {
 
-            parcelService.save(parcel);
+            if (returnLeg) {
+                plan.assignReturnLeg(parcel, driver, ParcelStatus.ASSIGNED_TO_INTER_CITY_DRIVER);
+            } else {
+                plan.assign(parcel, driver, ParcelStatus.ASSIGNED_TO_INTER_CITY_DRIVER);
+            }
 
         }
+
+        return load.size();
     }
 }
\ No newline at end of file
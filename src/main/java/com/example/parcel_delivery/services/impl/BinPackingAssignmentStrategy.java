@@ -0,0 +1,95 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+
+import com.example.parcel_delivery.models.assignment.ParcelPriority;
+import com.example.parcel_delivery.models.assignment.VehicleLoad;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.DriverType;
+import com.example.parcel_delivery.services.ParcelAssignmentStrategy;
+
+/**
+ * Loads vans by real volume and mass instead of a flat count.
+ *
+ * The drivers are filled one after the other with first-fit: the pending
+ * parcels are visited most urgent first (ParcelPriority.URGENCY) and every
+ * parcel that still fits (volume AND mass) goes into the van. The size only
+ * decides between parcels that are just as urgent, bigger first as in
+ * first-fit-decreasing, and the sort is stable so the order of the caller (the
+ * sweep clustering) is kept beyond that. A parcel that waited longer never
+ * stays behind a fresher one that fits in its place.
+ */
+@Service
+public class BinPackingAssignmentStrategy implements ParcelAssignmentStrategy {
+
+    public static final String NAME = "bin-packing";
+
+    // defaults for drivers without a registered vehicle (cm3 / kg)
+    public static final double DEFAULT_INTRA_CITY_VOLUME = 3_000_000;
+    public static final double DEFAULT_INTRA_CITY_MASS = 700;
+    public static final double DEFAULT_INTER_CITY_VOLUME = 15_000_000;
+    public static final double DEFAULT_INTER_CITY_MASS = 3_000;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Parcel> nextLoad(Driver driver, VehicleLoad load, List<Parcel> pending, int parcelsPerDriver) {
+        double freeVolume = volumeCapacityOf(driver) - load.getVolume();
+        double freeMass = massCapacityOf(driver) - load.getMass();
+
+        List<Parcel> mostUrgentFirst = new ArrayList<>(pending);
+        mostUrgentFirst.sort(ParcelPriority.URGENCY
+                .thenComparing(Comparator.comparingDouble(VehicleLoad::volumeOf).reversed()));
+
+        List<Parcel> picked = new ArrayList<>();
+        for (Parcel parcel : mostUrgentFirst) {
+            double volume = VehicleLoad.volumeOf(parcel);
+            if (volume <= freeVolume && parcel.getMass() <= freeMass) {
+                picked.add(parcel);
+                freeVolume -= volume;
+                freeMass -= parcel.getMass();
+            }
+        }
+
+        Set<Parcel> pickedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        pickedSet.addAll(picked);
+        pending.removeIf(pickedSet::contains);
+
+        return picked;
+    }
+
+    /**
+     * A van that got a load went out with the best packing the pending parcels
+     * allow, so it is done for the day.
+     */
+    @Override
+    public boolean isLoaded(Driver driver, long assignedParcels, VehicleLoad load, int parcelsPerDriver) {
+        return load.getParcels() > 0;
+    }
+
+    public static double volumeCapacityOf(Driver driver) {
+        if (driver.getVehicleVolumeCapacity() != null) {
+            return driver.getVehicleVolumeCapacity();
+        }
+        return driver.getDriverType() == DriverType.INTER_CITY ? DEFAULT_INTER_CITY_VOLUME : DEFAULT_INTRA_CITY_VOLUME;
+    }
+
+    public static double massCapacityOf(Driver driver) {
+        if (driver.getVehicleMassCapacity() != null) {
+            return driver.getVehicleMassCapacity();
+        }
+        return driver.getDriverType() == DriverType.INTER_CITY ? DEFAULT_INTER_CITY_MASS : DEFAULT_INTRA_CITY_MASS;
+    }
+
+}
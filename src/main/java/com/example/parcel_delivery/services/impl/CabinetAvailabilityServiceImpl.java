@@ -0,0 +1,208 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.parcel_delivery.models.enums.CabinetSize;
+import com.example.parcel_delivery.models.enums.CabinetStatus;
+import com.example.parcel_delivery.models.events.CabinetStatusChangedEvent;
+import com.example.parcel_delivery.services.CabinetAvailabilityService;
+import com.example.parcel_delivery.utils.LockerCabinets;
+
+/**
+ * Cabinet statuses of every locker in memory (one LockerCabinets per locker),
+ * so "which cabinet fits best" does not query the cabinets table. It is
+ * rebuilt from the database once the application is ready and follows the
+ * status changes of the cabinet service after they commit; changes that commit
+ * while it is rebuilt are replayed on the new statuses. A locker that is not
+ * known yet is loaded when first asked for.
+ *
+ * The in-memory statuses only see the changes made by this node, so they are
+ * a hint: a picked cabinet is checked by the claim, which falls back to any
+ * free cabinet when the hint is stale. "Has this locker space" is answered by
+ * parcel_lockers.free_cabinet_count, which the cabinets trigger keeps for all
+ * nodes.
+ */
+@Service
+public class CabinetAvailabilityServiceImpl implements CabinetAvailabilityService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final CabinetSize[] SIZES = CabinetSize.values();
+
+    private static final Logger logger = Logger.getLogger(CabinetAvailabilityServiceImpl.class.getName());
+
+    private static final String FREE_CABINET_COUNT_SQL = "SELECT free_cabinet_count FROM parcel_lockers WHERE id = ?";
+
+    private volatile Map<Long, LockerCabinets> byLocker = new ConcurrentHashMap<>();
+
+    // status changes that commit during a rebuild, replayed on the rebuilt map
+    private volatile boolean rebuilding;
+
+    private final Queue<CabinetStatusChangedEvent> changedDuringRebuild = new ConcurrentLinkedQueue<>();
+
+    // one instance, a method reference per lookup would allocate
+    private final Function<Long, LockerCabinets> lockerLoader = this::loadLocker;
+
+    /**
+     * Checks if a locker has a free cabinet, on the count maintained in the
+     * database (the same for all nodes)
+     *
+     * @param lockerId
+     * @return
+     */
+    @Override
+    public boolean hasFreeCabinet(Long lockerId) {
+        return freeCabinetCount(lockerId) > 0;
+    }
+
+    @Override
+    public int freeCabinetCount(Long lockerId) {
+        List<Integer> count = jdbcTemplate.queryForList(FREE_CABINET_COUNT_SQL, Integer.class, lockerId);
+        return count.isEmpty() || count.get(0) == null ? 0 : count.get(0);
+    }
+
+    /**
+     * The smallest free cabinet of the locker for a parcel of the size class,
+     * concurrent calls get different cabinets while the locker has enough of them
+     *
+     * @param lockerId
+     * @param size
+     * @return the cabinet id, -1 when no free cabinet is large enough
+     */
+    @Override
+    public long pickFreeCabinet(Long lockerId, CabinetSize size) {
+        return locker(lockerId).pickFree(size);
+    }
+
+    /**
+     * Applies a status change once its transaction has committed
+     *
+     * @param event
+     */
+    @Override
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCabinetStatusChanged(CabinetStatusChangedEvent event) {
+        if (event.getLockerId() == null) {
+            return;
+        }
+        // queued before the map is read: a change that still reaches the old map
+        // is in the queue before the rebuilt map is published
+        if (rebuilding) {
+            changedDuringRebuild.add(event);
+        }
+        apply(byLocker, event);
+    }
+
+    private static void apply(Map<Long, LockerCabinets> statuses, CabinetStatusChangedEvent event) {
+        LockerCabinets cabinets = statuses.get(event.getLockerId());
+        // a cabinet added to the locker after it was loaded, load it again
+        if (cabinets != null && !cabinets.set(event.getCabinetId(), event.getStatus())) {
+            statuses.remove(event.getLockerId());
+        }
+    }
+
+    /**
+     * Loads the statuses of all cabinets, runs before the load simulator starts.
+     * Cabinets from before the size classes get their class first.
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        int classified = jdbcTemplate.update(
+                "UPDATE cabinets SET size_class = " + CabinetSize.sqlOfCabinet() + " WHERE size_class IS NULL");
+        if (classified > 0) {
+            logger.info("Size class set on " + classified + " cabinets");
+        }
+
+        changedDuringRebuild.clear();
+        rebuilding = true;
+
+        Map<Long, LockerCabinets> loaded = new ConcurrentHashMap<>();
+        LockerBuilder builder = new LockerBuilder();
+
+        jdbcTemplate.query("SELECT parcel_locker_id, id, size_class, status FROM cabinets "
+                + "WHERE parcel_locker_id IS NOT NULL ORDER BY parcel_locker_id, id", rs -> {
+                    long lockerId = rs.getLong(1);
+                    if (builder.size > 0 && lockerId != builder.lockerId) {
+                        loaded.put(builder.lockerId, builder.build());
+                    }
+                    builder.lockerId = lockerId;
+                    builder.add(rs.getLong(2), SIZES[rs.getInt(3)], CabinetStatus.valueOf(rs.getString(4)));
+                });
+        if (builder.size > 0) {
+            loaded.put(builder.lockerId, builder.build());
+        }
+
+        byLocker = loaded;
+        rebuilding = false;
+
+        // the changes the query may have missed
+        for (CabinetStatusChangedEvent event; (event = changedDuringRebuild.poll()) != null;) {
+            apply(loaded, event);
+        }
+
+        logger.info("Cabinet availability of " + loaded.size() + " lockers loaded in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private LockerCabinets locker(Long lockerId) {
+        return byLocker.computeIfAbsent(lockerId, lockerLoader);
+    }
+
+    private LockerCabinets loadLocker(Long lockerId) {
+        LockerBuilder builder = new LockerBuilder();
+        jdbcTemplate.query("SELECT id, size_class, status FROM cabinets WHERE parcel_locker_id = ? ORDER BY id",
+                rs -> {
+                    builder.add(rs.getLong(1), SIZES[rs.getInt(2)], CabinetStatus.valueOf(rs.getString(3)));
+                }, lockerId);
+        return builder.build();
+    }
+
+    // collects the cabinets of one locker, in id order
+    private static final class LockerBuilder {
+
+        private long lockerId;
+        private int size;
+        private long[] ids = new long[16];
+        private CabinetSize[] sizes = new CabinetSize[16];
+        private CabinetStatus[] statuses = new CabinetStatus[16];
+
+        void add(long id, CabinetSize cabinetSize, CabinetStatus status) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                sizes = Arrays.copyOf(sizes, size * 2);
+                statuses = Arrays.copyOf(statuses, size * 2);
+            }
+            ids[size] = id;
+            sizes[size] = cabinetSize;
+            statuses[size] = status;
+            size++;
+        }
+
+        LockerCabinets build() {
+            LockerCabinets cabinets = new LockerCabinets(ids, sizes, statuses, size);
+            size = 0;
+            return cabinets;
+        }
+    }
+
+}
@@ -1,17 +1,28 @@
 package com.example.parcel_delivery.services.impl;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.logging.Logger;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.parcel_delivery.exceptions.TendrilExExceptionHandler;
 import com.example.parcel_delivery.models.entities.Cabinet;
 import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.entities.ParcelLocker;
+import com.example.parcel_delivery.models.dtos.responses.LockerUtilisationResDTO;
+import com.example.parcel_delivery.models.enums.CabinetSize;
 import com.example.parcel_delivery.models.enums.CabinetStatus;
+import com.example.parcel_delivery.models.events.CabinetStatusChangedEvent;
 import com.example.parcel_delivery.repositories.CabinetRepo;
+import com.example.parcel_delivery.repositories.CabinetUtilisationJdbcRepo;
+import com.example.parcel_delivery.services.CabinetAvailabilityService;
 import com.example.parcel_delivery.services.CabinetService;
 
 @Service
@@ -20,6 +31,25 @@ public class CabinetServiceImpl implements CabinetService {
     @Autowired
     private CabinetRepo cabinetRepo;
 
+    @Autowired
+    private CabinetUtilisationJdbcRepo cabinetUtilisationJdbcRepo;
+
+    @Autowired
+    private CabinetAvailabilityService cabinetAvailabilityService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // a hold that was never bound to its parcel (the send failed half way)
+    @Value("${tendrilex.cabinet.hold-ttl-minutes:30}")
+    private long unboundHoldTtlMinutes;
+
+    // a hold bound to its parcel: sender drop-off (12 days) plus the transit
+    @Value("${tendrilex.cabinet.hold-ttl-days:14}")
+    private long holdTtlDays;
+
+    private static final Logger logger = Logger.getLogger(CabinetServiceImpl.class.getName());
+
     /**
      * Retrieves a free cabinet from a specified parcel lokcker
      * 
@@ -32,87 +62,208 @@ public class CabinetServiceImpl implements CabinetService {
     }
 
     /**
-     * Checks if a specified lokcer has some free slots ( cabinets)
+     * Checks if a specified lokcer has some free slots ( cabinets), from the
+     * in memory availability
      * 
      * @param parcelLockerId
      * @return
      */
     @Override
     public Boolean hasAnyAvailableCabinets(Long parcelLockerId) {
-        return !cabinetRepo.findAvailableCabinetsByLockerId(parcelLockerId).isEmpty();
+        return cabinetAvailabilityService.hasFreeCabinet(parcelLockerId);
     }
 
     /**
-     * It finds a random free cabinet from the selected parcel locker and then it
-     * reserves that cabinet (it sets it OCCUPIED )
+     * It claims the smallest free cabinet of the selected parcel locker that fits
+     * the parcel (in any rotation) and reserves it (it sets it OCCUPIED) in one
+     * statement, concurrent sends to the same locker always get different
+     * cabinets
      * It means now the cabinet is assoicated with the parcel
      * 
      * @param selectedLockerId
+     * @param width            of the parcel
+     * @param height           of the parcel
+     * @param depth            of the parcel
      * @return
      */
     @Override
-    public Cabinet reserveCabinetFromThe5Lockers(Long selectedLockerId) {
-        Optional<Cabinet> freeCabinet = cabinetRepo.findRandomFreeCabinetByLockerId(selectedLockerId);
+    @Transactional
+    public Cabinet reserveCabinetFromThe5Lockers(Long selectedLockerId, Double width, Double height, Double depth) {
+        Optional<Cabinet> freeCabinet = claimFree(selectedLockerId, CabinetStatus.OCCUPIED, width, height, depth,
+                LocalDateTime.now());
         if (freeCabinet.isPresent()) {
-            Cabinet cabinet = freeCabinet.get();
-            cabinet.setStatus(CabinetStatus.OCCUPIED);
-            return cabinetRepo.save(cabinet);
+            return freeCabinet.get();
         } else {
             throw new TendrilExExceptionHandler(HttpStatus.NOT_FOUND,
-                    "No free cabinets available in locker with id: " + selectedLockerId);
+                    "No free cabinets for the parcel available in locker with id: " + selectedLockerId);
         }
     }
 
     /**
-     * It finds a random free cabinet from the selected parcel locker and then it
-     * holds that cabinet (it sets it RESERVED )
+     * It claims the smallest free cabinet of the selected parcel locker that fits
+     * the parcel and holds it (it sets it RESERVED) in one statement
      * it is used to hold (temporarily) the cabinet in the recipient area (if pickup
      * point
-     * delivery chosen)
+     * delivery chosen). The hold runs out after a short time unless it is bound to
+     * the parcel with bindHoldToParcel
      * 
      * @param lockerId
+     * @param width    of the parcel
+     * @param height   of the parcel
+     * @param depth    of the parcel
      * @return
      */
     @Override
-    public Cabinet holdCabinetForRecipientLocker(Long lockerId) {
-        Optional<Cabinet> freeCabinet = cabinetRepo.findRandomFreeCabinetByLockerId(lockerId);
+    @Transactional
+    public Cabinet holdCabinetForRecipientLocker(Long lockerId, Double width, Double height, Double depth) {
+        Optional<Cabinet> freeCabinet = claimFree(lockerId, CabinetStatus.RESERVED, width, height, depth,
+                LocalDateTime.now().plusMinutes(unboundHoldTtlMinutes));
         if (freeCabinet.isPresent()) {
-            Cabinet cabinet = freeCabinet.get();
-            cabinet.setStatus(CabinetStatus.RESERVED);
-            return cabinetRepo.save(cabinet);
+            return freeCabinet.get();
         } else {
             throw new TendrilExExceptionHandler(HttpStatus.NOT_FOUND,
-                    "No free cabinets available in locker with id: " + lockerId);
+                    "No free cabinets for the parcel available in locker with id: " + lockerId);
         }
     }
 
     /**
-     * it sets the cabinet now as not available and associates it with the parcel
+     * Binds a hold to the parcel it was made for, the hold then lasts until the
+     * parcel can reach the recipient locker
+     * 
+     * @param heldCabinet
+     * @param parcel
+     */
+    @Override
+    @Transactional
+    public void bindHoldToParcel(Cabinet heldCabinet, Parcel parcel) {
+        LocalDateTime expiresAt = LocalDateTime.now().plusDays(holdTtlDays);
+        if (cabinetRepo.bindHold(heldCabinet.getId(), parcel.getId(), expiresAt) == 0) {
+            // ran out already, the parcel gets a free cabinet on arrival instead
+            logger.warning("Hold of cabinet " + heldCabinet.getId() + " expired before parcel " + parcel.getId()
+                    + " was saved");
+            return;
+        }
+        heldCabinet.setHeldForParcelId(parcel.getId());
+        heldCabinet.setHoldExpiresAt(expiresAt);
+    }
+
+    /**
+     * it sets the cabinet held for the parcel now as not available and associates
+     * it with the parcel
      * it is used when we decide to ship the parcel to the recipient chosen pickup
-     * address (parcel locker)
+     * address (parcel locker). When the hold has run out, the smallest free
+     * cabinet of the recipient locker that fits is taken instead
      * 
-     * @param lockerId
      * @param parcel
      * 
      * @return
      */
     @Override
-    public Cabinet associateHeldCabinetWithParcel(Parcel parcel, Long lockerId) {
-        Optional<Cabinet> heldCabinet = cabinetRepo.findHeldCabinetByLockerId(lockerId);
+    @Transactional
+    public Cabinet associateHeldCabinetWithParcel(Parcel parcel) {
+        Optional<Cabinet> heldCabinet = cabinetRepo.claimHeldCabinet(parcel.getId());
+        if (heldCabinet.isPresent()) {
+            Long lockerId = heldCabinet.get().getParcelLocker().getId();
+            heldCabinet = claimed(heldCabinet, lockerId, CabinetStatus.OCCUPIED);
+        } else if (recipientLockerOf(parcel) != null) {
+            heldCabinet = claimFree(recipientLockerOf(parcel).getId(), CabinetStatus.OCCUPIED, parcel.getWidth(),
+                    parcel.getHeight(), parcel.getDepth(), LocalDateTime.now());
+        }
+
         if (heldCabinet.isPresent()) {
             Cabinet cabinet = heldCabinet.get();
-            cabinet.setStatus(CabinetStatus.OCCUPIED);
             cabinet.setCurrentParcel(parcel);
             return cabinetRepo.save(cabinet);
         } else {
             throw new TendrilExExceptionHandler(HttpStatus.NOT_FOUND,
-                    "No held cabinets available in locker with id: " + lockerId);
+                    "No held or free cabinet available for parcel with id: " + parcel.getId());
         }
     }
 
+    // parcels sent before the recipient locker was stored (by a node not updated
+    // yet) had their cabinet taken from the selected locker
+    private static ParcelLocker recipientLockerOf(Parcel parcel) {
+        return parcel.getRecipientLocker() != null ? parcel.getRecipientLocker() : parcel.getSelectedLockerLocation();
+    }
+
+    /**
+     * Frees one batch of holds that ran out
+     * 
+     * @param batchSize
+     * @return number of holds freed, less than batchSize when none are left
+     */
+    @Override
+    @Transactional
+    public int releaseExpiredHolds(int batchSize) {
+        List<Cabinet> released = cabinetRepo.releaseExpiredHolds(LocalDateTime.now(), batchSize);
+        for (Cabinet cabinet : released) {
+            cabinet.setStatus(CabinetStatus.FREE);
+            cabinet.setHeldForParcelId(null);
+            cabinet.setHoldExpiresAt(null);
+            eventPublisher.publishEvent(new CabinetStatusChangedEvent(cabinet.getId(),
+                    cabinet.getParcelLocker().getId(), CabinetStatus.FREE));
+        }
+        return released.size();
+    }
+
+    /**
+     * Cabinet counts, utilisation and fragmentation of the lockers of a city
+     * 
+     * @param city all lockers when null
+     * @return
+     */
+    @Override
+    public List<LockerUtilisationResDTO> getLockerUtilisation(String city) {
+        return cabinetUtilisationJdbcRepo.findLockerUtilisation(city);
+    }
+
+    // tries the cabinet picked in memory first (a primary key update), the
+    // indexed best fit of the locker when the pick is stale or taken concurrently
+    private Optional<Cabinet> claimFree(Long lockerId, CabinetStatus to, Double width, Double height, Double depth,
+            LocalDateTime holdExpiresAt) {
+        CabinetSize size = sizeOf(width, height, depth);
+        double[] sides = CabinetSize.sortedSides(width, height, depth);
+
+        long picked = cabinetAvailabilityService.pickFreeCabinet(lockerId, size);
+        if (picked >= 0) {
+            Optional<Cabinet> cabinet = cabinetRepo.claimCabinetById(picked, CabinetStatus.FREE.name(), to.name(),
+                    sides[0], sides[1], sides[2], holdExpiresAt);
+            if (cabinet.isPresent()) {
+                return claimed(cabinet, lockerId, to);
+            }
+        }
+        return claimed(cabinetRepo.claimCabinet(lockerId, CabinetStatus.FREE.name(), to.name(), size.ordinal(),
+                sides[0], sides[1], sides[2], holdExpiresAt), lockerId, to);
+    }
+
+    private CabinetSize sizeOf(Double width, Double height, Double depth) {
+        CabinetSize size = CabinetSize.ofParcel(width, height, depth);
+        if (size == null) {
+            throw new TendrilExExceptionHandler(HttpStatus.BAD_REQUEST,
+                    "The parcel does not fit in any cabinet, the largest is " + CabinetSize.LARGE.getShortSide()
+                            + " x " + CabinetSize.LARGE.getMiddleSide() + " x " + CabinetSize.LARGE.getLongSide()
+                            + " cm");
+        }
+        return size;
+    }
+
+    // a cabinet already loaded in this persistence context comes back with its
+    // old state, the status is set again so it matches the claimed row
+    private Optional<Cabinet> claimed(Optional<Cabinet> cabinet, Long lockerId, CabinetStatus status) {
+        cabinet.ifPresent(c -> {
+            c.setStatus(status);
+            eventPublisher.publishEvent(new CabinetStatusChangedEvent(c.getId(), lockerId, status));
+        });
+        return cabinet;
+    }
+
     @Override
     public void save(Cabinet cabinet) {
         cabinetRepo.save(cabinet);
+        if (cabinet.getParcelLocker() != null) {
+            eventPublisher.publishEvent(new CabinetStatusChangedEvent(cabinet.getId(),
+                    cabinet.getParcelLocker().getId(), cabinet.getStatus()));
+        }
 
     }
 
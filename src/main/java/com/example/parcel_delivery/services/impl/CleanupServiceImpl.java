@@ -1,13 +1,16 @@
 package com.example.parcel_delivery.services.impl;
 
 import java.time.LocalDateTime;
+import java.util.logging.Logger;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.example.parcel_delivery.repositories.ParcelRepo;
+import com.example.parcel_delivery.services.CabinetService;
 import com.example.parcel_delivery.services.CleanupService;
 
 import jakarta.transaction.Transactional;
@@ -20,6 +23,14 @@ public class CleanupServiceImpl implements CleanupService{
     @Autowired
     private ParcelRepo parcelRepository;
 
+    @Autowired
+    private CabinetService cabinetService;
+
+    @Value("${tendrilex.cabinet.hold-sweep-batch:500}")
+    private int holdSweepBatch;
+
+    private static final Logger logger = Logger.getLogger(CleanupServiceImpl.class.getName());
+
     @Override
     @Scheduled(fixedRate = 86400000) // runs once every 24 h
     @Transactional
@@ -30,5 +41,24 @@ public class CleanupServiceImpl implements CleanupService{
 
        
     }
-    
+
+    /**
+     * Gives cabinets whose hold ran out back as FREE, one transaction per batch so
+     * a large backlog never locks many rows at once
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${tendrilex.cabinet.hold-sweep-ms:60000}")
+    public void releaseExpiredCabinetHolds() {
+        int released = 0;
+        int batch;
+        do {
+            batch = cabinetService.releaseExpiredHolds(holdSweepBatch);
+            released += batch;
+        } while (batch == holdSweepBatch);
+
+        if (released > 0) {
+            logger.info("Released " + released + " expired cabinet holds");
+        }
+    }
+
 }
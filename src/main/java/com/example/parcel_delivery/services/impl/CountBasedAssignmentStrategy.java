@@ -0,0 +1,42 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.example.parcel_delivery.models.assignment.VehicleLoad;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.services.ParcelAssignmentStrategy;
+
+/**
+ * The original behaviour: every driver takes the next INTRA/INTER threshold
+ * parcels in list order, whatever their size.
+ */
+@Service
+public class CountBasedAssignmentStrategy implements ParcelAssignmentStrategy {
+
+    public static final String NAME = "count";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<Parcel> nextLoad(Driver driver, VehicleLoad load, List<Parcel> pending, int parcelsPerDriver) {
+        int parcelsToAssign = Math.min(pending.size(), parcelsPerDriver);
+
+        List<Parcel> picked = new ArrayList<>(pending.subList(0, parcelsToAssign));
+        pending.subList(0, parcelsToAssign).clear();
+
+        return picked;
+    }
+
+    @Override
+    public boolean isLoaded(Driver driver, long assignedParcels, VehicleLoad load, int parcelsPerDriver) {
+        return assignedParcels >= parcelsPerDriver;
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.parcel_delivery.models.entities.ParcelLocker;
+import com.example.parcel_delivery.repositories.ParcelLockerRepo;
+import com.example.parcel_delivery.services.DistanceMatrixService;
+import com.example.parcel_delivery.utils.DistanceMatrix;
+
+/**
+ * Keeps one DistanceMatrix per city, built from the lockers of the city the
+ * first time the city is asked for. A locker that is not in the matrix yet
+ * (created later, or without a city) is added when it is first looked up, so
+ * the matrices grow with the lockers and are never rebuilt.
+ */
+@Service
+public class DistanceMatrixServiceImpl implements DistanceMatrixService {
+
+    // lockers without a city share one matrix
+    private static final String NO_CITY = "";
+
+    @Autowired
+    private ParcelLockerRepo parcelLockerRepo;
+
+    @Value("${tendrilex.routing.road-factor:1.0}")
+    private double roadFactor;
+
+    private static final Logger logger = Logger.getLogger(DistanceMatrixServiceImpl.class.getName());
+
+    private final Map<String, DistanceMatrix> matrixByCity = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves the distance matrix of the lockers of a city
+     *
+     * @param city
+     * @return
+     */
+    @Override
+    public DistanceMatrix getCityMatrix(String city) {
+        String key = city != null ? city : NO_CITY;
+
+        DistanceMatrix matrix = matrixByCity.get(key);
+        if (matrix != null) {
+            return matrix;
+        }
+
+        // loaded outside of the map, a computeIfAbsent would hold the lock of the
+        // bin (and the other cities in it) during the query. Two callers may both
+        // load the city, the first one published wins.
+        DistanceMatrix loaded = loadCity(key);
+        DistanceMatrix published = matrixByCity.putIfAbsent(key, loaded);
+        return published != null ? published : loaded;
+    }
+
+    /**
+     * Index of a locker in the matrix of its city, the locker is added when
+     * missing
+     *
+     * @param locker
+     * @return -1 when the locker has no location
+     */
+    @Override
+    public int indexOf(ParcelLocker locker) {
+        DistanceMatrix matrix = getCityMatrix(locker.getCity());
+
+        int index = matrix.indexOf(locker.getId());
+        if (index >= 0 || locker.getGeoLocation() == null) {
+            return index;
+        }
+        return matrix.add(locker.getId(), locker.getGeoLocation().getY(), locker.getGeoLocation().getX());
+    }
+
+    private DistanceMatrix loadCity(String city) {
+        long start = System.currentTimeMillis();
+        List<ParcelLocker> lockers = NO_CITY.equals(city) ? List.of() : parcelLockerRepo.findByCity(city);
+
+        // sized by the lockers of the city, with some room for new ones
+        DistanceMatrix matrix = new DistanceMatrix(roadFactor, lockers.size() + lockers.size() / 16 + 16);
+        for (ParcelLocker locker : lockers) {
+            if (locker.getGeoLocation() != null) {
+                matrix.add(locker.getId(), locker.getGeoLocation().getY(), locker.getGeoLocation().getX());
+            }
+        }
+
+        logger.info("Distance matrix of " + (NO_CITY.equals(city) ? "lockers without city" : city) + ": "
+                + matrix.size() + " lockers in " + (System.currentTimeMillis() - start) + " ms");
+        return matrix;
+    }
+
+}
@@ -0,0 +1,251 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.parcel_delivery.exceptions.TendrilExExceptionHandler;
+import com.example.parcel_delivery.models.dtos.responses.DriverRouteResDTO;
+import com.example.parcel_delivery.models.dtos.responses.GeoPointDTO;
+import com.example.parcel_delivery.models.dtos.responses.RouteStopResDTO;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.entities.ParcelLocker;
+import com.example.parcel_delivery.models.enums.DriverType;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+import com.example.parcel_delivery.models.enums.ParcelType;
+import com.example.parcel_delivery.models.enums.RouteStopType;
+import com.example.parcel_delivery.services.DistanceMatrixService;
+import com.example.parcel_delivery.services.DriverRouteService;
+import com.example.parcel_delivery.services.DriverService;
+import com.example.parcel_delivery.services.ParcelService;
+import com.example.parcel_delivery.utils.DistanceMatrix;
+import com.example.parcel_delivery.utils.GeoUtils;
+import com.example.parcel_delivery.utils.RouteSequencer;
+
+/**
+ * Gives an intra-city driver the order in which to visit the stops of the
+ * parcels they carry or still have to collect.
+ *
+ * The located stops (lockers, recipients) are ordered by RouteSequencer from
+ * the driver's position, pickups before their deliveries. Storages have no
+ * location yet: storage pickups are put first and storage drop-offs last.
+ *
+ * Routes are cached per driver together with the (parcel, status) pairs they
+ * were built from. Any assignment, pickup or delivery changes those pairs, so
+ * the next read rebuilds the route; nothing has to be evicted by hand and the
+ * cache stays right when another node changed the parcels.
+ */
+@Service
+public class DriverRouteServiceImpl implements DriverRouteService {
+
+    @Autowired
+    private ParcelService parcelService;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private DistanceMatrixService distanceMatrixService;
+
+    @Value("${tendrilex.routing.max-passes:50}")
+    private int maxPasses;
+
+    private final Map<Long, CachedRoute> routesByDriver = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves the optimised stop sequence of an intra-city driver
+     *
+     * @param driverId
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public DriverRouteResDTO getIntraCityDriverRoute(Long driverId) {
+        Driver authenticated = driverService.getAuthenticatedDriver();
+
+        // Ensure the driver is an intra-city driver
+        if (authenticated.getDriverType() != DriverType.INTRA_CITY) {
+            throw new TendrilExExceptionHandler(HttpStatus.BAD_REQUEST, "Driver is not an intra-city driver.");
+        }
+
+        List<Parcel> parcels = new ArrayList<>(parcelService.getParcelsOnRouteOfDriver(driverId));
+        parcels.sort(Comparator.comparing(Parcel::getId));
+
+        if (parcels.isEmpty()) {
+            routesByDriver.remove(driverId);
+            return emptyRoute(driverId);
+        }
+
+        String fingerprint = fingerprintOf(parcels);
+        CachedRoute cached = routesByDriver.get(driverId);
+        if (cached != null && cached.fingerprint().equals(fingerprint)) {
+            return cached.route();
+        }
+
+        Driver driver = driverService.getDriverById(driverId);
+        DriverRouteResDTO route = buildRoute(driver, parcels);
+        routesByDriver.put(driverId, new CachedRoute(fingerprint, route));
+        return route;
+    }
+
+    private DriverRouteResDTO buildRoute(Driver driver, List<Parcel> parcels) {
+        long start = System.nanoTime();
+
+        List<Stop> first = new ArrayList<>();
+        List<Stop> located = new ArrayList<>();
+        List<Stop> last = new ArrayList<>();
+
+        for (Parcel parcel : parcels) {
+            Stop pickup = pickupOf(parcel);
+            Stop delivery = deliveryOf(parcel);
+
+            if (pickup != null) {
+                (pickup.point() != null ? located : first).add(pickup);
+            }
+            if (delivery.point() != null) {
+                located.add(delivery);
+            } else {
+                last.add(delivery);
+            }
+        }
+
+        // node 0 is the driver, nodes 1..n the located stops
+        Point origin = driver.getUser() != null ? driver.getUser().getUserPoint() : null;
+        int n = located.size() + 1;
+        double[] dist = new double[n * n];
+        int[] before = new int[n];
+        before[0] = -1;
+
+        // locker to locker legs come from the distance matrix of the city
+        String city = driver.getUser() != null ? driver.getUser().getCity() : null;
+        DistanceMatrix lockers = distanceMatrixService.getCityMatrix(city);
+        int[] lockerIndexes = new int[n];
+        lockerIndexes[0] = -1;
+
+        Map<Long, Integer> pickupNodes = new HashMap<>();
+        for (int i = 1; i < n; i++) {
+            ParcelLocker locker = located.get(i - 1).locker();
+            lockerIndexes[i] = locker != null && Objects.equals(locker.getCity(), city)
+                    ? distanceMatrixService.indexOf(locker)
+                    : -1;
+            if (located.get(i - 1).type() == RouteStopType.LOCKER_PICKUP) {
+                pickupNodes.put(located.get(i - 1).parcelId(), i);
+            }
+        }
+
+        for (int i = 1; i < n; i++) {
+            Stop stop = located.get(i - 1);
+            before[i] = stop.type() == RouteStopType.RECIPIENT_DELIVERY
+                    ? pickupNodes.getOrDefault(stop.parcelId(), -1)
+                    : -1;
+
+            // without a known position the route simply starts at the first stop
+            dist[i] = origin != null ? lockers.getRoadFactor() * GeoUtils.haversineKm(origin, stop.point()) : 0;
+            for (int j = 1; j < n; j++) {
+                dist[i * n + j] = lockerIndexes[i] >= 0 && lockerIndexes[j] >= 0
+                        ? lockers.km(lockerIndexes[i], lockerIndexes[j])
+                        : lockers.getRoadFactor() * GeoUtils.haversineKm(stop.point(), located.get(j - 1).point());
+            }
+        }
+
+        int[] order = new RouteSequencer(n, dist, before).solve(maxPasses);
+
+        List<Stop> sequence = new ArrayList<>(first);
+        for (int i = 1; i < order.length; i++) {
+            sequence.add(located.get(order[i] - 1));
+        }
+        sequence.addAll(last);
+
+        List<RouteStopResDTO> stops = new ArrayList<>(sequence.size());
+        Point previous = origin;
+        double totalKm = 0;
+        for (Stop stop : sequence) {
+            RouteStopResDTO dto = new RouteStopResDTO();
+            dto.setSequence(stops.size() + 1);
+            dto.setParcelId(stop.parcelId());
+            dto.setType(stop.type());
+            dto.setStorageId(stop.storageId());
+            if (stop.point() != null) {
+                dto.setLocation(new GeoPointDTO(stop.point().getY(), stop.point().getX()));
+                if (previous != null) {
+                    dto.setLegKm(GeoUtils.haversineKm(previous, stop.point()));
+                    totalKm += dto.getLegKm();
+                }
+                previous = stop.point();
+            }
+            stops.add(dto);
+        }
+
+        DriverRouteResDTO route = new DriverRouteResDTO();
+        route.setDriverId(driver.getId());
+        route.setComputedAt(LocalDateTime.now());
+        route.setTotalKm(totalKm);
+        route.setStops(stops);
+        route.setDurationMicros((System.nanoTime() - start) / 1_000);
+        return route;
+    }
+
+    // null when the parcel is already in the van
+    private Stop pickupOf(Parcel parcel) {
+        if (parcel.getStatus() != ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER) {
+            return null;
+        }
+        if (parcel.getStorage() != null) {
+            return new Stop(parcel.getId(), RouteStopType.STORAGE_PICKUP, null, parcel.getStorage().getId(), null);
+        }
+        ParcelLocker locker = parcel.getSelectedLockerLocation();
+        return new Stop(parcel.getId(), RouteStopType.LOCKER_PICKUP, locker != null ? locker.getGeoLocation() : null,
+                null, locker);
+    }
+
+    private Stop deliveryOf(Parcel parcel) {
+        // an inter-city parcel collected from a locker goes to the departure storage
+        boolean toStorage = parcel.getStatus() == ParcelStatus.IN_TRANSIT_TO_DEPARTURE_STORAGE
+                || parcel.getStatus() == ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER
+                        && parcel.getParcelType() == ParcelType.INTER_CITY && parcel.getStorage() == null;
+
+        if (toStorage) {
+            return new Stop(parcel.getId(), RouteStopType.STORAGE_DROP_OFF, null, null, null);
+        }
+        Point recipient = parcel.getRecipient() != null && parcel.getRecipient().getUser() != null
+                ? parcel.getRecipient().getUser().getUserPoint()
+                : null;
+        return new Stop(parcel.getId(), RouteStopType.RECIPIENT_DELIVERY, recipient, null, null);
+    }
+
+    private String fingerprintOf(List<Parcel> parcels) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Parcel parcel : parcels) {
+            fingerprint.append(parcel.getId()).append(':').append(parcel.getStatus().ordinal()).append(',');
+        }
+        return fingerprint.toString();
+    }
+
+    private DriverRouteResDTO emptyRoute(Long driverId) {
+        DriverRouteResDTO route = new DriverRouteResDTO();
+        route.setDriverId(driverId);
+        route.setComputedAt(LocalDateTime.now());
+        route.setStops(List.of());
+        return route;
+    }
+
+    private record Stop(Long parcelId, RouteStopType type, Point point, Long storageId, ParcelLocker locker) {
+    }
+
+    private record CachedRoute(String fingerprint, DriverRouteResDTO route) {
+    }
+
+}
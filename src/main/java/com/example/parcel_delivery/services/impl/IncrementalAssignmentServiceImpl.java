@@ -0,0 +1,188 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.parcel_delivery.models.dtos.responses.CityAssignmentResDTO;
+import com.example.parcel_delivery.models.enums.AssignmentOutcome;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+import com.example.parcel_delivery.models.events.ParcelAssignableEvent;
+import com.example.parcel_delivery.services.BatchParcelAssignmentService;
+import com.example.parcel_delivery.services.IncrementalAssignmentService;
+import com.example.parcel_delivery.services.ParcelInsertionService;
+
+/**
+ * Assigns parcels as soon as they become assignable instead of waiting for the
+ * next batch run.
+ *
+ * Every committed drop-off / storage arrival puts the parcel in the pending
+ * queue of its city. A city is assigned when its queue reaches the threshold or
+ * when its oldest parcel waited longer than the max wait. The batch run still
+ * runs periodically as a reconciliation pass and picks up whatever the event
+ * path missed (node restart, failed attempt...).
+ *
+ * Parcels for intra-city drivers are first offered to the drivers already on
+ * the road (see ParcelInsertionService), only the ones nobody can take on their
+ * way are queued.
+ */
+@Service
+public class IncrementalAssignmentServiceImpl implements IncrementalAssignmentService {
+
+    @Autowired
+    private BatchParcelAssignmentService batchParcelAssignmentService;
+
+    @Autowired
+    private ParcelInsertionService parcelInsertionService;
+
+    @Autowired
+    @Qualifier("cityAssignmentExecutor")
+    private ExecutorService cityAssignmentExecutor;
+
+    @Value("${tendrilex.assignment.incremental.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tendrilex.assignment.incremental.threshold:4}")
+    private int threshold;
+
+    @Value("${tendrilex.assignment.incremental.max-wait-seconds:60}")
+    private long maxWaitSeconds;
+
+    private static final Logger logger = Logger.getLogger(IncrementalAssignmentServiceImpl.class.getName());
+
+    private final Map<String, PendingQueue> pendingByCity = new ConcurrentHashMap<>();
+
+    /**
+     * Queues a parcel once the transaction that made it assignable has committed
+     * 
+     * @param event
+     */
+    @Override
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onParcelAssignable(ParcelAssignableEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        if (event.getStatus() == ParcelStatus.AWAITING_INTRA_CITY_PICKUP
+                || event.getStatus() == ParcelStatus.AWAITING_DEPARTURE_STORAGE_PICKUP
+                || event.getStatus() == ParcelStatus.AWAITING_FINAL_DELIVERY) {
+            cityAssignmentExecutor.submit(() -> {
+                try {
+                    if (parcelInsertionService.tryInsert(event.getParcelId(), event.getCity())) {
+                        return;
+                    }
+                } catch (Exception e) {
+                    logger.warning("Insertion failed for parcel " + event.getParcelId() + ": " + e.getMessage());
+                }
+                enqueue(event);
+            });
+            return;
+        }
+
+        enqueue(event);
+    }
+
+    private void enqueue(ParcelAssignableEvent event) {
+        PendingQueue queue = pendingByCity.computeIfAbsent(event.getCity(), city -> new PendingQueue());
+
+        if (queue.add(event.getParcelId()) >= threshold) {
+            cityAssignmentExecutor.submit(() -> assignPending(event.getCity()));
+        }
+    }
+
+    /**
+     * Assigns the cities whose oldest pending parcel reached the max wait
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${tendrilex.assignment.incremental.tick-ms:5000}")
+    public void assignOverdueCities() {
+        long deadline = System.currentTimeMillis() - maxWaitSeconds * 1000;
+
+        pendingByCity.forEach((city, queue) -> {
+            if (queue.isOverdue(deadline)) {
+                cityAssignmentExecutor.submit(() -> assignPending(city));
+            }
+        });
+    }
+
+    /**
+     * Reconciliation pass: a full batch run catches anything the event path
+     * missed. The queued parcels it assigns are skipped later since they are no
+     * longer assignable.
+     */
+    @Override
+    @Scheduled(initialDelayString = "${tendrilex.assignment.reconciliation-interval-ms:900000}", fixedDelayString = "${tendrilex.assignment.reconciliation-interval-ms:900000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        batchParcelAssignmentService.batchAssignParcels();
+    }
+
+    private void assignPending(String city) {
+        PendingQueue queue = pendingByCity.get(city);
+        if (queue == null) {
+            return;
+        }
+
+        List<Long> parcelIds = queue.drain();
+        if (parcelIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            CityAssignmentResDTO report = batchParcelAssignmentService.assignCityParcels(city, parcelIds);
+            logger.info("Incremental assignment: " + report);
+
+            // another node had the city, or all attempts failed: try again once
+            // the parcels are overdue, the ones assigned meanwhile drop out then
+            if (report.getOutcome() != AssignmentOutcome.SUCCEEDED) {
+                parcelIds.forEach(queue::add);
+            }
+        } catch (Exception e) {
+            logger.warning("Incremental assignment failed for city " + city + ": " + e.getMessage());
+            parcelIds.forEach(queue::add);
+        }
+    }
+
+    /**
+     * Parcel ids of one city waiting for the incremental assignment
+     */
+    private static class PendingQueue {
+
+        private final List<Long> parcelIds = new ArrayList<>();
+
+        private long oldestQueuedAt;
+
+        synchronized int add(Long parcelId) {
+            if (parcelIds.isEmpty()) {
+                oldestQueuedAt = System.currentTimeMillis();
+            }
+            parcelIds.add(parcelId);
+            return parcelIds.size();
+        }
+
+        synchronized boolean isOverdue(long deadline) {
+            return !parcelIds.isEmpty() && oldestQueuedAt <= deadline;
+        }
+
+        synchronized List<Long> drain() {
+            List<Long> drained = new ArrayList<>(parcelIds);
+            parcelIds.clear();
+            return drained;
+        }
+    }
+
+}
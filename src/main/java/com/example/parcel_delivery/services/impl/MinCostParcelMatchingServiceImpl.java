@@ -0,0 +1,158 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.services.ParcelMatchingService;
+import com.example.parcel_delivery.utils.GeoUtils;
+import com.example.parcel_delivery.utils.MinCostFlow;
+
+@Service
+public class MinCostParcelMatchingServiceImpl implements ParcelMatchingService {
+
+    // distances are costed in steps of 100 m: plenty for choosing a driver, and
+    // the many equal paths let the solver augment them together
+    static final double COST_UNIT_METERS = 100;
+
+    // cost of a driver or a parcel without a known location: usable, but a
+    // located driver nearby is preferred (50 km)
+    static final long UNKNOWN_DISTANCE_COST = 500;
+
+    @Value("${tendrilex.assignment.solver.candidates:16}")
+    private int candidatesPerParcel = 16;
+
+    /**
+     * Gives the pending parcels to the drivers so that the total distance from the
+     * drivers' home (User.userPoint) to the first stop of their parcels is
+     * minimal, every driver taking at most its free slots.
+     * 
+     * It is solved as a min-cost flow: source -> parcel (1) -> driver (1, distance)
+     * -> sink (free slots). To keep the graph small every parcel is only linked to
+     * its nearest drivers (tendrilex.assignment.solver.candidates); with a few
+     * thousand parcels and hundreds of drivers this runs in about a second
+     * (IntraCityMatchingBenchmark). When that leaves parcels unmatched while
+     * drivers still have slots, a second flow links those parcels to all of
+     * them, so min(parcels, free slots) parcels are always matched.
+     * Parcels that could not be matched stay in the pending list.
+     * 
+     * @param drivers
+     * @param freeSlots how many parcels every driver can still take
+     * @param pending   the matched parcels are removed from it
+     * @return the parcels of every driver, same order as drivers
+     */
+    @Override
+    public List<List<Parcel>> matchToDrivers(List<Driver> drivers, int[] freeSlots, List<Parcel> pending) {
+        int driverCount = drivers.size();
+        int parcelCount = pending.size();
+
+        List<List<Parcel>> matched = new ArrayList<>(driverCount);
+        for (int d = 0; d < driverCount; d++) {
+            matched.add(new ArrayList<>());
+        }
+        if (driverCount == 0 || parcelCount == 0) {
+            return matched;
+        }
+
+        Point[] homes = new Point[driverCount];
+        for (int d = 0; d < driverCount; d++) {
+            Driver driver = drivers.get(d);
+            homes[d] = driver.getUser() != null ? driver.getUser().getUserPoint() : null;
+        }
+
+        int[] slotsLeft = freeSlots.clone();
+        match(homes, slotsLeft, pending, Math.min(candidatesPerParcel, driverCount), matched);
+
+        // the nearest drivers of some parcels were full (or all tie, without
+        // homes): the rest goes to every driver with slots left, so as many
+        // parcels are matched as the free slots allow
+        if (!pending.isEmpty() && Arrays.stream(slotsLeft).anyMatch(slots -> slots > 0)) {
+            match(homes, slotsLeft, pending, driverCount, matched);
+        }
+
+        return matched;
+    }
+
+    // one min-cost flow, every parcel linked to its nearest candidates with slots
+    // left; the matched parcels leave pending and take a slot of their driver
+    private void match(Point[] homes, int[] slotsLeft, List<Parcel> pending, int candidates,
+            List<List<Parcel>> matched) {
+        int driverCount = homes.length;
+        int parcelCount = pending.size();
+
+        int source = 0;
+        int sink = parcelCount + driverCount + 1;
+
+        MinCostFlow flow = new MinCostFlow(sink + 1, parcelCount * (candidates + 1) + driverCount);
+
+        int[] parcelEdges = new int[parcelCount * candidates];
+        int[] parcelEdgeDrivers = new int[parcelCount * candidates];
+        Arrays.fill(parcelEdges, -1);
+
+        // (cost << 20 | driver index), sorted to find the nearest drivers
+        long[] costs = new long[driverCount];
+
+        for (int p = 0; p < parcelCount; p++) {
+            Point stop = GeoUtils.firstStopOf(pending.get(p));
+
+            for (int d = 0; d < driverCount; d++) {
+                costs[d] = distanceCost(homes[d], stop) << 20 | d;
+            }
+            Arrays.sort(costs);
+
+            flow.addEdge(source, 1 + p, 1, 0);
+
+            int linked = 0;
+            for (int i = 0; i < driverCount && linked < candidates; i++) {
+                int d = (int) (costs[i] & 0xFFFFF);
+                if (slotsLeft[d] <= 0) {
+                    continue;
+                }
+                parcelEdges[p * candidates + linked] = flow.addEdge(1 + p, 1 + parcelCount + d, 1,
+                        costs[i] >>> 20);
+                parcelEdgeDrivers[p * candidates + linked] = d;
+                linked++;
+            }
+        }
+
+        for (int d = 0; d < driverCount; d++) {
+            if (slotsLeft[d] > 0) {
+                flow.addEdge(1 + parcelCount + d, sink, slotsLeft[d], 0);
+            }
+        }
+
+        flow.run(source, sink);
+
+        Set<Parcel> taken = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int p = 0; p < parcelCount; p++) {
+            for (int i = 0; i < candidates; i++) {
+                int edge = parcelEdges[p * candidates + i];
+                if (edge >= 0 && flow.flowOn(edge) > 0) {
+                    int d = parcelEdgeDrivers[p * candidates + i];
+                    matched.get(d).add(pending.get(p));
+                    slotsLeft[d]--;
+                    taken.add(pending.get(p));
+                    break;
+                }
+            }
+        }
+        pending.removeIf(taken::contains);
+    }
+
+    static long distanceCost(Point home, Point stop) {
+        if (home == null || stop == null) {
+            return UNKNOWN_DISTANCE_COST;
+        }
+        return Math.round(GeoUtils.haversineKm(home, stop) * 1000 / COST_UNIT_METERS);
+    }
+
+}
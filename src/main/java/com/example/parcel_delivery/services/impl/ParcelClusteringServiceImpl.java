@@ -0,0 +1,95 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.services.ParcelClusteringService;
+import com.example.parcel_delivery.utils.GeoUtils;
+
+@Service
+public class ParcelClusteringServiceImpl implements ParcelClusteringService {
+
+    @Value("${tendrilex.assignment.clustering:sweep}")
+    private String clustering;
+
+    /**
+     * Orders the intra-city parcels of a city so that the parcels dealt one after
+     * the other to the same driver are close to each other.
+     * 
+     * It is a sweep clustering: every parcel gets the angle of its stop (sender
+     * locker, or recipient for final deliveries) around the centre of all stops,
+     * and the parcels are sorted by that angle starting right after the widest
+     * empty sector, so no cluster is cut in two.
+     * Parcels without any location keep their order at the end.
+     * With tendrilex.assignment.clustering=none the list order is kept (old
+     * behaviour).
+     * 
+     * @param parcels
+     * @return the ordered parcels (a new list)
+     */
+    @Override
+    public List<Parcel> orderForIntraDrivers(List<Parcel> parcels) {
+        if (!"sweep".equalsIgnoreCase(clustering) || parcels.size() < 2) {
+            return new ArrayList<>(parcels);
+        }
+
+        List<Parcel> located = new ArrayList<>();
+        List<Parcel> unlocated = new ArrayList<>();
+        double latSum = 0;
+        double lonSum = 0;
+
+        for (Parcel parcel : parcels) {
+            Point stop = GeoUtils.firstStopOf(parcel);
+            if (stop == null) {
+                unlocated.add(parcel);
+            } else {
+                located.add(parcel);
+                latSum += stop.getY();
+                lonSum += stop.getX();
+            }
+        }
+
+        if (located.isEmpty()) {
+            return unlocated;
+        }
+
+        double centreLat = latSum / located.size();
+        double centreLon = lonSum / located.size();
+        double lonScale = Math.cos(Math.toRadians(centreLat));
+
+        double[] angles = new double[located.size()];
+        Integer[] order = new Integer[located.size()];
+        for (int i = 0; i < located.size(); i++) {
+            Point stop = GeoUtils.firstStopOf(located.get(i));
+            angles[i] = Math.atan2(stop.getY() - centreLat, (stop.getX() - centreLon) * lonScale);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> angles[i]));
+
+        // start the sweep after the widest gap between two neighbouring angles
+        int start = 0;
+        double widestGap = angles[order[0]] + 2 * Math.PI - angles[order[order.length - 1]];
+        for (int i = 1; i < order.length; i++) {
+            double gap = angles[order[i]] - angles[order[i - 1]];
+            if (gap > widestGap) {
+                widestGap = gap;
+                start = i;
+            }
+        }
+
+        List<Parcel> ordered = new ArrayList<>(parcels.size());
+        for (int i = 0; i < order.length; i++) {
+            ordered.add(located.get(order[(start + i) % order.length]));
+        }
+        ordered.addAll(unlocated);
+        return ordered;
+    }
+
+}
@@ -0,0 +1,282 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.locationtech.jts.geom.Point;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.parcel_delivery.models.assignment.ParcelGrouping;
+import com.example.parcel_delivery.models.assignment.VehicleLoad;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+import com.example.parcel_delivery.repositories.ParcelAssignmentJdbcRepo;
+import com.example.parcel_delivery.services.AssignmentMetricsService;
+import com.example.parcel_delivery.services.ParcelInsertionService;
+import com.example.parcel_delivery.services.ParcelService;
+import com.example.parcel_delivery.utils.GeoUtils;
+
+/**
+ * Gives a parcel that becomes assignable between two batch runs straight to an
+ * intra-city driver who is already on the road, if it fits on their way.
+ *
+ * Cheapest insertion: for every active driver the new pickup and delivery are
+ * put at the positions of the current stop sequence (home, pickups, deliveries)
+ * that add the least distance, pickup before delivery. The driver with the
+ * smallest detour wins if the detour stays below
+ * tendrilex.assignment.insertion.max-detour-km and the parcel fits in the van.
+ * All active routes of the city come with one query, the rest is in memory.
+ *
+ * The decision runs under the advisory lock of the city. Insertions only hold
+ * it for a few milliseconds, so one that finds the city taken retries a few
+ * times (tendrilex.assignment.insertion.lock-retries) before leaving the parcel
+ * to the pending queue of the city.
+ */
+@Service
+public class ParcelInsertionServiceImpl implements ParcelInsertionService {
+
+    @Autowired
+    private ParcelService parcelService;
+
+    @Autowired
+    private ParcelAssignmentJdbcRepo parcelAssignmentJdbcRepo;
+
+    @Autowired
+    private AssignmentMetricsService assignmentMetricsService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${tendrilex.assignment.insertion.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tendrilex.assignment.insertion.max-detour-km:5}")
+    private double maxDetourKm;
+
+    @Value("${tendrilex.assignment.insertion.max-parcels-per-driver:8}")
+    private int maxParcelsPerDriver;
+
+    @Value("${tendrilex.assignment.insertion.lock-retries:5}")
+    private int lockRetries;
+
+    @Value("${tendrilex.assignment.insertion.lock-retry-delay-ms:20}")
+    private long lockRetryDelayMs;
+
+    private static final Logger logger = Logger.getLogger(ParcelInsertionServiceImpl.class.getName());
+
+    /**
+     * Tries to insert the parcel into the route of an active intra-city driver
+     * 
+     * @param parcelId
+     * @param city
+     * @return true when the parcel was assigned
+     */
+    @Override
+    public boolean tryInsert(Long parcelId, String city) {
+        if (!enabled) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+
+        // every attempt is its own transaction, so no connection is held while
+        // waiting for the city
+        Attempt attempt = transactionTemplate.execute(status -> insertUnderCityLock(parcelId, city));
+        for (int retry = 0; attempt.cityBusy() && retry < lockRetries; retry++) {
+            try {
+                Thread.sleep(lockRetryDelayMs << retry);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            attempt = transactionTemplate.execute(status -> insertUnderCityLock(parcelId, city));
+        }
+
+        logger.fine("Insertion decision for parcel " + parcelId + " took "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        if (attempt.cityBusy()) {
+            // a batch run or other insertions kept the city, the pending queue of the
+            // city gets the parcel
+            logger.fine("City " + city + " stayed locked, parcel " + parcelId + " left to the batch queue");
+            return false;
+        }
+
+        Parcel inserted = attempt.inserted();
+        if (inserted == null) {
+            return false;
+        }
+
+        // committed, the wait counts in the drop-off to assignment p95 like a batch one
+        assignmentMetricsService.recordAssignedParcels(List.of(inserted));
+        return true;
+    }
+
+    // the parcels are read in the transaction (and connection) of the lock, after it
+    private Attempt insertUnderCityLock(Long parcelId, String city) {
+        // a batch run or another insertion (maybe on another node) is on the city
+        if (!parcelAssignmentJdbcRepo.tryLockCity(city)) {
+            return Attempt.CITY_BUSY;
+        }
+
+        List<Parcel> found = parcelService.findParcelsForDriverAssignment(List.of(parcelId));
+        if (found.isEmpty() || !ParcelGrouping.isForIntraDriver(found.get(0))) {
+            return Attempt.NOT_INSERTED;
+        }
+        Parcel parcel = found.get(0);
+
+        Map<Long, List<Parcel>> routes = new LinkedHashMap<>();
+        Map<Long, Driver> drivers = new LinkedHashMap<>();
+        for (Parcel active : parcelService.getParcelsOfActiveIntraCityDrivers(city)) {
+            routes.computeIfAbsent(active.getDriver().getId(), id -> new ArrayList<>()).add(active);
+            drivers.putIfAbsent(active.getDriver().getId(), active.getDriver());
+        }
+
+        Driver bestDriver = null;
+        double bestDetourKm = Double.MAX_VALUE;
+
+        for (Map.Entry<Long, List<Parcel>> route : routes.entrySet()) {
+            Driver driver = drivers.get(route.getKey());
+
+            if (route.getValue().size() >= maxParcelsPerDriver || !fits(driver, route.getValue(), parcel)) {
+                continue;
+            }
+
+            double detourKm = insertionCostKm(startOf(driver), stopsOf(route.getValue()),
+                    GeoUtils.pickupPointOf(parcel), GeoUtils.deliveryPointOf(parcel));
+
+            if (detourKm < bestDetourKm) {
+                bestDetourKm = detourKm;
+                bestDriver = driver;
+            }
+        }
+
+        if (bestDriver == null || bestDetourKm > maxDetourKm) {
+            return Attempt.NOT_INSERTED;
+        }
+
+        if (!parcelAssignmentJdbcRepo.assignParcel(parcel.getId(), bestDriver.getId(),
+                ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER)) {
+            return Attempt.NOT_INSERTED;
+        }
+
+        logger.info("Parcel " + parcel.getId() + " inserted into the route of driver " + bestDriver.getId()
+                + String.format(" (+%.1f km)", bestDetourKm));
+        return new Attempt(false, parcel);
+    }
+
+    /**
+     * Extra distance of the cheapest way to put pickup and delivery into the
+     * stops, pickup first. The driver is at the start already, so nothing goes
+     * before it. Null points are not visited.
+     * 
+     * @param start    the driver's position, null when unknown
+     * @param stops    current sequence after the start
+     * @param pickup
+     * @param delivery
+     * @return km
+     */
+    public static double insertionCostKm(Point start, List<Point> stops, Point pickup, Point delivery) {
+        if (pickup == null && delivery == null) {
+            return 0;
+        }
+        if (pickup == null || delivery == null) {
+            Point stop = pickup != null ? pickup : delivery;
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i <= stops.size(); i++) {
+                best = Math.min(best, detourKm(start, stops, i, stop));
+            }
+            return best;
+        }
+
+        int n = stops.size();
+
+        // best delivery detour at position j or later
+        double[] bestDeliveryFrom = new double[n + 2];
+        bestDeliveryFrom[n + 1] = Double.MAX_VALUE;
+        for (int j = n; j >= 0; j--) {
+            bestDeliveryFrom[j] = Math.min(bestDeliveryFrom[j + 1], detourKm(start, stops, j, delivery));
+        }
+
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i <= n; i++) {
+            // both between the same two stops
+            Point before = i > 0 ? stops.get(i - 1) : start;
+            Point after = i < n ? stops.get(i) : null;
+            double together = GeoUtils.haversineKm(pickup, delivery)
+                    + (before != null ? GeoUtils.haversineKm(before, pickup) : 0)
+                    + (after != null ? GeoUtils.haversineKm(delivery, after) : 0)
+                    - (before != null && after != null ? GeoUtils.haversineKm(before, after) : 0);
+            best = Math.min(best, together);
+
+            // delivery somewhere after the pickup
+            if (i + 1 <= n) {
+                best = Math.min(best, detourKm(start, stops, i, pickup) + bestDeliveryFrom[i + 1]);
+            }
+        }
+        return best;
+    }
+
+    // extra distance when the point is visited right before stops[position]
+    private static double detourKm(Point start, List<Point> stops, int position, Point point) {
+        Point before = position > 0 ? stops.get(position - 1) : start;
+        Point after = position < stops.size() ? stops.get(position) : null;
+        if (before == null && after == null) {
+            return 0;
+        }
+        if (before == null) {
+            return GeoUtils.haversineKm(point, after);
+        }
+        if (after == null) {
+            return GeoUtils.haversineKm(before, point);
+        }
+        return GeoUtils.haversineKm(before, point) + GeoUtils.haversineKm(point, after)
+                - GeoUtils.haversineKm(before, after);
+    }
+
+    // the driver's position, home for now
+    private static Point startOf(Driver driver) {
+        return driver.getUser() != null ? driver.getUser().getUserPoint() : null;
+    }
+
+    // after the driver's position: the pickups still to do, then the deliveries,
+    // the same model as the route estimate of the batch
+    private List<Point> stopsOf(List<Parcel> route) {
+        List<Point> stops = new ArrayList<>();
+        for (Parcel parcel : route) {
+            Point pickup = GeoUtils.pickupPointOf(parcel);
+            if (parcel.getStatus() == ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER && pickup != null) {
+                stops.add(pickup);
+            }
+        }
+        for (Parcel parcel : route) {
+            Point delivery = GeoUtils.deliveryPointOf(parcel);
+            if (delivery != null) {
+                stops.add(delivery);
+            }
+        }
+        return stops;
+    }
+
+    private boolean fits(Driver driver, List<Parcel> route, Parcel parcel) {
+        VehicleLoad load = new VehicleLoad();
+        route.forEach(load::add);
+        return load.getVolume() + VehicleLoad.volumeOf(parcel) <= BinPackingAssignmentStrategy.volumeCapacityOf(driver)
+                && load.getMass() + parcel.getMass() <= BinPackingAssignmentStrategy.massCapacityOf(driver);
+    }
+
+    private record Attempt(boolean cityBusy, Parcel inserted) {
+
+        static final Attempt CITY_BUSY = new Attempt(true, null);
+
+        static final Attempt NOT_INSERTED = new Attempt(false, null);
+    }
+
+}
@@ -1,7 +1,6 @@
 package com.example.parcel_delivery.services.impl;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.locationtech.jts.geom.Point;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,9 +41,7 @@ public class ParcelLockerServiceImpl implements ParcelLockerService {
 
         Customer customer = customerService.getCustomerByAuthenticatedUser();
         Point senderPoint = customer.getUser().getUserPoint();
-        List<ParcelLocker> nearestAvailableLockers = parcelLockerRepo.getFiveNearestAvailablelockers(senderPoint);
-
-        return nearestAvailableLockers.stream().limit(5).collect(Collectors.toList());
+        return parcelLockerRepo.getFiveNearestAvailablelockers(senderPoint);
     }
 
     /**
@@ -81,11 +78,9 @@ public class ParcelLockerServiceImpl implements ParcelLockerService {
         System.out.println(
                 "Geocoded Point: Latitude = " + locationPoint.getY() + ", Longitude = " + locationPoint.getX());
 
-        // Fetch the nearest lockers based on the calculated location point
-        List<ParcelLocker> nearestAvailableLockers = parcelLockerRepo.getFiveNearestAvailablelockers(locationPoint);
-
-        // Return only the top 5 nearest lockers
-        return nearestAvailableLockers.stream().limit(5).collect(Collectors.toList());
+        // Fetch the 5 nearest lockers with a free cabinet based on the calculated
+        // location point
+        return parcelLockerRepo.getFiveNearestAvailablelockers(locationPoint);
     }
 
 }
@@ -1,10 +1,15 @@
 package com.example.parcel_delivery.services.impl;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -13,6 +18,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.parcel_delivery.models.assignment.AssignableParcel;
+import com.example.parcel_delivery.models.assignment.HubParcel;
+import com.example.parcel_delivery.models.assignment.InterCityLaneIndex;
+import com.example.parcel_delivery.models.assignment.ParcelGrouping;
 import com.example.parcel_delivery.models.dtos.requests.CustomerLocationReqDTO;
 import com.example.parcel_delivery.models.dtos.requests.ParcelReqDTO;
 import com.example.parcel_delivery.models.entities.Cabinet;
@@ -26,6 +35,7 @@ import com.example.parcel_delivery.models.enums.DriverType;
 import com.example.parcel_delivery.models.enums.NotificationType;
 import com.example.parcel_delivery.models.enums.ParcelStatus;
 import com.example.parcel_delivery.models.enums.ParcelType;
+import com.example.parcel_delivery.models.events.ParcelAssignableEvent;
 import com.example.parcel_delivery.repositories.ParcelRepo;
 import com.example.parcel_delivery.services.CabinetService;
 import com.example.parcel_delivery.services.CustomerService;
@@ -71,6 +81,29 @@ public class ParcelServiceImpl implements ParcelService {
     @Autowired
     private DriverService driverService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${tendrilex.assignment.page-size:1000}")
+    private int assignmentPageSize;
+
+    // statuses in which a parcel waits for a driver
+    private static final List<ParcelStatus> ASSIGNABLE_STATUSES = List.of(
+            ParcelStatus.AWAITING_INTRA_CITY_PICKUP, // For intra-city deliveries
+            ParcelStatus.AWAITING_DEPARTURE_STORAGE_PICKUP, // For inter-city parcels waiting for pickup to
+                                                            // storage by intra-city drivers
+            ParcelStatus.AWAITING_INTER_CITY_PICKUP, // For inter-city parcels waiting for pickup by
+                                                     // inter-city drivers
+            ParcelStatus.AWAITING_FINAL_DELIVERY // For inter parcels ready for final delivery in the
+                                                 // destination city by intra-city drivers
+    );
+
+    // statuses in which a parcel is on the route of an intra-city driver
+    private static final List<ParcelStatus> ON_ROUTE_STATUSES = List.of(
+            ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER,
+            ParcelStatus.IN_TRANSIT_TO_RECIPIENT,
+            ParcelStatus.IN_TRANSIT_TO_DEPARTURE_STORAGE);
+
     // @Autowired
     // private ParcelLockerService parcelLockerService;
 
@@ -113,11 +146,14 @@ public class ParcelServiceImpl implements ParcelService {
 
             // Step 6: Reserve a Cabinet in the selected locker (sender's locker)
             Cabinet reservedCabinet = cabinetService
-                    .reserveCabinetFromThe5Lockers(parcelReqDTO.getSelectedSenderLockerId());
+                    .reserveCabinetFromThe5Lockers(parcelReqDTO.getSelectedSenderLockerId(), parcelReqDTO.getWidth(),
+                            parcelReqDTO.getHeight(), parcelReqDTO.getDepth());
 
             // Step 7: Hold a cabinet in the recipient's locker (if applicable)
+            Cabinet heldCabinet = null;
             if (parcelReqDTO.getIsDeliverToRecipientLocker() && parcelReqDTO.getSelectedRecipientLockerId() != null) {
-                cabinetService.holdCabinetForRecipientLocker(parcelReqDTO.getSelectedRecipientLockerId());
+                heldCabinet = cabinetService.holdCabinetForRecipientLocker(parcelReqDTO.getSelectedRecipientLockerId(),
+                        parcelReqDTO.getWidth(), parcelReqDTO.getHeight(), parcelReqDTO.getDepth());
             }
 
             // Step 8: Generate Transaction Code for the sender( will be useed by intra
@@ -133,6 +169,9 @@ public class ParcelServiceImpl implements ParcelService {
             parcel.setMass(parcelReqDTO.getMass());
             parcel.setDescription(parcelReqDTO.getDescription());
             parcel.setParcelType(parcelType);
+            if (parcelReqDTO.getServiceLevel() != null) {
+                parcel.setServiceLevel(parcelReqDTO.getServiceLevel());
+            }
             parcel.setStatus(ParcelStatus.CREATED);
             parcel.setCabinet(reservedCabinet);
             parcel.setSelectedLockerLocation(
@@ -160,12 +199,19 @@ public class ParcelServiceImpl implements ParcelService {
             if (parcelReqDTO.getIsDeliverToRecipientLocker()) {
                 parcel.setDeliverToRecipientLocker(true);
             }
+            if (heldCabinet != null) {
+                parcel.setRecipientLocker(
+                        ParcelLockerService.getParcelLockerById(parcelReqDTO.getSelectedRecipientLockerId()));
+            }
 
             // Set parcel in cabinet
             reservedCabinet.setCurrentParcel(parcel);
 
-            // Step 11: Save parcel
+            // Step 11: Save parcel, the held cabinet is now kept for it
             Parcel savedParcel = parcelRepository.save(parcel);
+            if (heldCabinet != null) {
+                cabinetService.bindHoldToParcel(heldCabinet, savedParcel);
+            }
 
             // Step 12: Send notifications
             if (recipient != null && recipient.getUser() != null) {
@@ -471,16 +517,114 @@ public class ParcelServiceImpl implements ParcelService {
 
     public List<Parcel> findParcelsForDriverAssignment() {
         // Fetch all parcels that are awaiting various stages of intra-city or
-        return parcelRepository.findByStatusIn(
-                List.of(
-                        ParcelStatus.AWAITING_INTRA_CITY_PICKUP, // For intra-city deliveries
-                        ParcelStatus.AWAITING_DEPARTURE_STORAGE_PICKUP, // For inter-city parcels waiting for pickup to
-                                                                        // storage by intra-city drivers
-                        ParcelStatus.AWAITING_INTER_CITY_PICKUP, // For inter-city parcels waiting for pickup by
-                                                                 // inter-city drivers
-                        ParcelStatus.AWAITING_FINAL_DELIVERY // For inter parcels ready for final delivery in the
-                                                             // destination city by intra-city drivers
-                ));
+        return parcelRepository.findByStatusIn(ASSIGNABLE_STATUSES);
+    }
+
+    /**
+     * Same as findParcelsForDriverAssignment() but only for the given parcels.
+     * Parcels that are no longer waiting for a driver are left out. They are
+     * loaded a page at a time, so the IN list of a statement stays at the page
+     * size whatever the number of ids. Joins the transaction of the caller, the
+     * assignment reads them while it holds the city.
+     * 
+     * @param parcelIds
+     * @return
+     */
+    @Override
+    @Transactional
+    public List<Parcel> findParcelsForDriverAssignment(List<Long> parcelIds) {
+        List<Parcel> parcels = new ArrayList<>(parcelIds.size());
+        for (int from = 0; from < parcelIds.size(); from += assignmentPageSize) {
+            parcels.addAll(parcelRepository.findByIdInAndStatusIn(
+                    parcelIds.subList(from, Math.min(from + assignmentPageSize, parcelIds.size())),
+                    ASSIGNABLE_STATUSES));
+        }
+        return parcels;
+    }
+
+    /**
+     * Streams the unassigned parcels city by city. They are read as lightweight
+     * rows in keyset pages ordered by (origin city, id), so only one page and the
+     * rows of the current city are held in memory whatever the size of the
+     * backlog. The consumer is called once per city, in city order.
+     * 
+     * @param cityConsumer
+     */
+    @Override
+    public void streamParcelsForDriverAssignment(BiConsumer<String, List<AssignableParcel>> cityConsumer) {
+        List<AssignableParcel> cityParcels = new ArrayList<>();
+
+        pageAssignableParcels(parcelRepository::findAssignablePage, parcel -> {
+            if (!cityParcels.isEmpty() && !cityParcels.get(0).getOriginCity().equals(parcel.getOriginCity())) {
+                cityConsumer.accept(cityParcels.get(0).getOriginCity(), new ArrayList<>(cityParcels));
+                cityParcels.clear();
+            }
+            cityParcels.add(parcel);
+        });
+
+        if (!cityParcels.isEmpty()) {
+            cityConsumer.accept(cityParcels.get(0).getOriginCity(), cityParcels);
+        }
+    }
+
+    /**
+     * Indexes every inter-city parcel waiting for pickup by lane (origin ->
+     * destination). Read with the same keyset pages as the assignment stream.
+     * 
+     * @return
+     */
+    @Override
+    public InterCityLaneIndex buildInterCityLaneIndex() {
+        InterCityLaneIndex laneIndex = new InterCityLaneIndex();
+        pageAssignableParcels(parcelRepository::findInterCityPickupPage, laneIndex::add);
+        return laneIndex;
+    }
+
+    /**
+     * Same as buildInterCityLaneIndex() but only with the lanes towards the given
+     * city (the ways back of its drivers)
+     * 
+     * @param destinationCity
+     * @return
+     */
+    @Override
+    public InterCityLaneIndex buildInterCityLaneIndex(String destinationCity) {
+        InterCityLaneIndex laneIndex = new InterCityLaneIndex();
+        parcelRepository.findAssignableTowards(destinationCity, ParcelStatus.AWAITING_INTER_CITY_PICKUP)
+                .forEach(laneIndex::add);
+        return laneIndex;
+    }
+
+    private void pageAssignableParcels(AssignablePageQuery pageQuery, Consumer<AssignableParcel> consumer) {
+        String afterCity = "";
+        Long afterId = 0L;
+
+        while (true) {
+            List<AssignableParcel> page = pageQuery.find(afterCity, afterId, PageRequest.of(0, assignmentPageSize));
+
+            page.forEach(consumer);
+
+            if (page.size() < assignmentPageSize) {
+                break;
+            }
+
+            AssignableParcel last = page.get(page.size() - 1);
+            afterCity = last.getOriginCity();
+            afterId = last.getId();
+        }
+    }
+
+    /**
+     * Tells the incremental assignment (after commit) that a parcel waits for a
+     * driver now
+     * 
+     * @param parcel
+     */
+    private void publishAssignable(Parcel parcel) {
+        // a parcel in a storage (departure, hub or destination) is picked up in the
+        // city of the storage, same city as its origin_city
+        String city = ParcelGrouping.currentCityOf(parcel);
+        eventPublisher.publishEvent(new ParcelAssignableEvent(parcel.getId(), city, parcel.getStatus()));
     }
 
     /**
@@ -503,6 +647,41 @@ public class ParcelServiceImpl implements ParcelService {
                 ParcelStatus.AWAITING_INTER_CITY_PICKUP);
     }
 
+    /**
+     * Retrieves the parcels the intra-city drivers of a city still have to pick up
+     * or deliver, i.e. the current routes of the active drivers.
+     * 
+     * @param city
+     * @return
+     */
+    @Override
+    public List<Parcel> getParcelsOfActiveIntraCityDrivers(String city) {
+        return parcelRepository.findByDriverTypeAndCityAndStatusIn(DriverType.INTRA_CITY, city,
+                ON_ROUTE_STATUSES);
+    }
+
+    /**
+     * Retrieves the inter-city parcels waiting in a storage, with where they are,
+     * their next hop and their destination
+     * 
+     * @return
+     */
+    @Override
+    public List<HubParcel> findParcelsWaitingInStorages() {
+        return parcelRepository.findWaitingInStorages(ParcelStatus.AWAITING_INTER_CITY_PICKUP);
+    }
+
+    /**
+     * Retrieves the parcels an intra-city driver still has to pick up or deliver
+     * 
+     * @param driverId
+     * @return
+     */
+    @Override
+    public List<Parcel> getParcelsOnRouteOfDriver(Long driverId) {
+        return parcelRepository.findByDriverIdAndStatusIn(driverId, ON_ROUTE_STATUSES);
+    }
+
     /**
      * saves a parcel
      * 
@@ -579,8 +758,7 @@ public class ParcelServiceImpl implements ParcelService {
             parcel.setRecipientTransactionCodeValidUntil(LocalDateTime.now().plusDays(5)); // Valid for 5 days
 
             // Associate the held cabinet with the parcel
-            Cabinet heldCabinet = cabinetService.associateHeldCabinetWithParcel(parcel,
-                    parcel.getSelectedLockerLocation().getId());
+            Cabinet heldCabinet = cabinetService.associateHeldCabinetWithParcel(parcel);
             parcel.setCabinet(heldCabinet);
         }
 
@@ -630,7 +808,11 @@ public class ParcelServiceImpl implements ParcelService {
 
             }
 
-            return parcelRepository.save(parcel);
+            Parcel savedParcel = parcelRepository.save(parcel);
+
+            publishAssignable(savedParcel);
+
+            return savedParcel;
 
         } catch (Exception e) {
             // Handle any exceptions that occur during the delivery process
@@ -670,15 +852,24 @@ public class ParcelServiceImpl implements ParcelService {
         }
 
         try {
-            // Step 5: Find or create the storage in the destination city
+            // Step 5: Find or create the storage in the destination city, or in the hub
+            // the parcel was routed through
             String recipientCity = parcel.getRecipient().getUser().getCity();
-            Storage storage = storageService.findOrCreateStorageForCity(recipientCity);
+            boolean atHub = parcel.getNextHopCity() != null && !parcel.getNextHopCity().equals(recipientCity);
+            Storage storage = storageService
+                    .findOrCreateStorageForCity(atHub ? parcel.getNextHopCity() : recipientCity);
 
             // Step 6: Associate the parcel with the storage and update its status
             parcel.setStorage(storage);
-            // parcel.setStatus(ParcelStatus.AWAITING_INTRA_CITY_PICKUP);
-            parcel.setStatus(ParcelStatus.AWAITING_FINAL_DELIVERY); // New status indicating it's ready for final
-                                                                    // delivery
+            parcel.setNextHopCity(null);
+            if (atHub) {
+                // waits for its next inter-city leg, routed by the next batch run
+                parcel.setStatus(ParcelStatus.AWAITING_INTER_CITY_PICKUP);
+            } else {
+                // parcel.setStatus(ParcelStatus.AWAITING_INTRA_CITY_PICKUP);
+                parcel.setStatus(ParcelStatus.AWAITING_FINAL_DELIVERY); // New status indicating it's ready for
+                                                                        // final delivery
+            }
 
             // Step 7: disassociate the parcel from the driver
             parcel.setDriver(null); // inter driver is no longer associated with this parcel
@@ -693,18 +884,21 @@ public class ParcelServiceImpl implements ParcelService {
 
             // Step 9: For inter-city parcels, associate the held cabinet and generate the
             // recipient's transaction code
-            if (parcel.getDeliverToRecipientLocker()) {
+            if (!atHub && parcel.getDeliverToRecipientLocker()) {
                 Integer recipientTransactionCode = transactionCodeGenerator.generateTransactionCode();
                 parcel.setRecipientTransactionCode(recipientTransactionCode);
                 parcel.setRecipientTransactionCodeActive(true);
                 parcel.setRecipientTransactionCodeValidUntil(LocalDateTime.now().plusDays(5)); // Valid for 5 days
 
-                Cabinet heldCabinet = cabinetService.associateHeldCabinetWithParcel(parcel,
-                        parcel.getSelectedLockerLocation().getId());
+                Cabinet heldCabinet = cabinetService.associateHeldCabinetWithParcel(parcel);
                 parcel.setCabinet(heldCabinet);
             }
 
-            return parcelRepository.save(parcel);
+            Parcel savedParcel = parcelRepository.save(parcel);
+
+            publishAssignable(savedParcel);
+
+            return savedParcel;
 
         } catch (Exception e) {
             // Handle any exceptions that occur during the delivery process
@@ -828,7 +1022,11 @@ public class ParcelServiceImpl implements ParcelService {
 
             }
             // Save the updated parcel
-            return parcelRepository.save(parcel);
+            Parcel savedParcel = parcelRepository.save(parcel);
+
+            publishAssignable(savedParcel);
+
+            return savedParcel;
         } catch (Exception e) {
             // Handle any exceptions that occur during the direct delivery process
             throw new TendrilExExceptionHandler(HttpStatus.INTERNAL_SERVER_ERROR,
@@ -950,13 +1148,17 @@ public class ParcelServiceImpl implements ParcelService {
 
         try {
 
-            // Step 5: Determine the current status and update it accordingly
-            if (parcel.getStatus().equals(ParcelStatus.AWAITING_INTER_CITY_PICKUP)) {
+            // Step 5: Determine the current status and update it accordingly (the batch
+            // assignment leaves the parcels it gives to a driver in an ASSIGNED_ status)
+            if (parcel.getStatus().equals(ParcelStatus.AWAITING_INTER_CITY_PICKUP)
+                    || parcel.getStatus().equals(ParcelStatus.ASSIGNED_TO_INTER_CITY_DRIVER)) {
                 // The parcel is at the departure storage, ready to be picked up by an
                 // inter-city driver
                 parcel.setStatus(ParcelStatus.IN_TRANSIT_TO_DESTINATION_STORAGE);
 
-            } else if (parcel.getStatus().equals(ParcelStatus.AWAITING_FINAL_DELIVERY)) {
+            } else if (parcel.getStatus().equals(ParcelStatus.AWAITING_FINAL_DELIVERY)
+                    || parcel.getStatus().equals(ParcelStatus.ASSIGNED_TO_INTRA_CITY_DRIVER)
+                            && parcel.getStorage() != null) {
                 // The parcel has arrived at the destination storage and is ready for final
                 // delivery
                 parcel.setStatus(ParcelStatus.IN_TRANSIT_TO_RECIPIENT);
@@ -977,4 +1179,10 @@ public class ParcelServiceImpl implements ParcelService {
         }
     }
 
+    // one of the keyset page queries of ParcelRepo
+    @FunctionalInterface
+    private interface AssignablePageQuery {
+        List<AssignableParcel> find(String afterCity, Long afterId, Pageable pageable);
+    }
+
 }
\ No newline at end of file
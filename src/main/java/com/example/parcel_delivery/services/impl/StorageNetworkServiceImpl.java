@@ -0,0 +1,130 @@
+package com.example.parcel_delivery.services.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.parcel_delivery.models.assignment.HubParcel;
+import com.example.parcel_delivery.models.assignment.InterCityLaneIndex.Lane;
+import com.example.parcel_delivery.models.assignment.StorageNetwork;
+import com.example.parcel_delivery.models.entities.StorageLane;
+import com.example.parcel_delivery.repositories.ParcelAssignmentJdbcRepo;
+import com.example.parcel_delivery.repositories.StorageLaneRepo;
+import com.example.parcel_delivery.services.ParcelService;
+import com.example.parcel_delivery.services.StorageNetworkService;
+
+/**
+ * Routes the inter-city parcels over the storage network before the batch
+ * assignment, so a parcel can travel through hubs instead of always going
+ * straight from its departure storage to its destination storage.
+ *
+ * Each parcel waiting in a storage without a next hop gets one: the first
+ * storage of the cheapest path that still has room (see StorageNetwork). The
+ * inter-city drivers then carry it to that storage only, where it waits for
+ * its next leg. The biggest (storage, destination) flows are routed first so
+ * the small ones share their trips. Without lanes, or without a path with
+ * room, the parcel keeps no hop and goes straight to its destination as
+ * before.
+ */
+@Service
+public class StorageNetworkServiceImpl implements StorageNetworkService {
+
+    @Autowired
+    private StorageLaneRepo storageLaneRepo;
+
+    @Autowired
+    private ParcelService parcelService;
+
+    @Autowired
+    private ParcelAssignmentJdbcRepo parcelAssignmentJdbcRepo;
+
+    @Value("${tendrilex.network.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tendrilex.network.parcels-per-trip:5}")
+    private int parcelsPerTrip;
+
+    @Value("${tendrilex.network.hub-handling-km:10}")
+    private double hubHandlingKm;
+
+    private static final Logger logger = Logger.getLogger(StorageNetworkServiceImpl.class.getName());
+
+    /**
+     * Gives a next hop to the inter-city parcels waiting in a storage without one
+     * 
+     * @return number of parcels sent through a hub
+     */
+    @Override
+    @Transactional
+    public int routeWaitingParcels() {
+        if (!enabled) {
+            return 0;
+        }
+
+        List<StorageLane> lanes = storageLaneRepo.findAll();
+        if (lanes.isEmpty()) {
+            return 0;
+        }
+
+        StorageNetwork network = new StorageNetwork(parcelsPerTrip, hubHandlingKm);
+        for (StorageLane lane : lanes) {
+            network.addLane(lane.getFromStorage().getCity(), lane.getToStorage().getCity(), lane.getDistanceKm(),
+                    lane.getCapacity());
+        }
+
+        // parcels routed by an earlier run still take their room on the lanes
+        Map<Lane, List<Long>> unrouted = new HashMap<>();
+        for (HubParcel parcel : parcelService.findParcelsWaitingInStorages()) {
+            if (parcel.getNextHopCity() != null) {
+                network.preload(parcel.getCurrentCity(), parcel.getNextHopCity(), 1);
+            } else if (parcel.getDestinationCity() != null
+                    && !parcel.getDestinationCity().equals(parcel.getCurrentCity())) {
+                unrouted.computeIfAbsent(new Lane(parcel.getCurrentCity(), parcel.getDestinationCity()),
+                        lane -> new ArrayList<>()).add(parcel.getId());
+            }
+        }
+
+        List<Map.Entry<Lane, List<Long>>> flows = new ArrayList<>(unrouted.entrySet());
+        flows.sort((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()));
+
+        Map<String, List<Long>> parcelIdsByNextHop = new LinkedHashMap<>();
+        int viaHub = 0;
+
+        for (Map.Entry<Lane, List<Long>> flow : flows) {
+            Lane lane = flow.getKey();
+            List<Long> parcelIds = flow.getValue();
+
+            int from = 0;
+            for (Map.Entry<String, Integer> hop : network.route(lane.origin(), lane.destination(), parcelIds.size())
+                    .entrySet()) {
+                List<Long> routed = parcelIds.subList(from, from + hop.getValue());
+                from += hop.getValue();
+
+                // no path with room: straight to the destination as before
+                if (hop.getKey() == null) {
+                    continue;
+                }
+                parcelIdsByNextHop.computeIfAbsent(hop.getKey(), h -> new ArrayList<>()).addAll(routed);
+                if (!hop.getKey().equals(lane.destination())) {
+                    viaHub += routed.size();
+                }
+            }
+        }
+
+        parcelAssignmentJdbcRepo.routeParcels(parcelIdsByNextHop);
+
+        logger.info("Storage network (" + network.laneCount() + " lanes): " + flows.size() + " flows routed, "
+                + viaHub + " parcels through a hub");
+
+        return viaHub;
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.example.parcel_delivery.simulation;
+
+/**
+ * The steps of a parcel the load simulator times
+ */
+public enum LifecycleStep {
+    SEND, // sendNewParcel, timed from the planned send time
+
+    DROP_OFF, // sender puts the parcel in the cabinet
+
+    BATCH_ASSIGNMENT, // one whole batch assignment run
+
+    ASSIGNMENT_WAIT, // from waiting for a driver until seen assigned
+
+    LOCKER_PICKUP,
+
+    STORAGE_PICKUP, // inter-city driver at a departure / hub storage or intra-city driver at the
+                    // destination storage
+
+    STORAGE_DROP_OFF, // departure, hub or destination storage
+
+    DELIVERY, // to the recipient or the recipient's locker
+
+    END_TO_END, // from the planned send time until delivered
+}
@@ -0,0 +1,516 @@
+package com.example.parcel_delivery.simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.parcel_delivery.models.dtos.requests.ParcelReqDTO;
+import com.example.parcel_delivery.models.entities.Customer;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.entities.ParcelLocker;
+import com.example.parcel_delivery.models.entities.User;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+import com.example.parcel_delivery.models.enums.ServiceLevel;
+import com.example.parcel_delivery.repositories.CustomerRepo;
+import com.example.parcel_delivery.repositories.ParcelLockerRepo;
+import com.example.parcel_delivery.repositories.UserRepo;
+import com.example.parcel_delivery.services.BatchParcelAssignmentService;
+import com.example.parcel_delivery.services.ParcelService;
+
+/**
+ * Drives parcels through their whole lifecycle against the real services to
+ * see what a given load costs: send, drop-off, batch assignment, locker pickup,
+ * storage hops and delivery. Off by default (tendrilex.simulation.enabled).
+ *
+ * The workload comes from one seeded generator: the same seed and settings give
+ * the same parcels (cities, recipients, lockers, sizes, service levels) at the
+ * same planned send times. Sends are open loop, a parcel is due at its planned
+ * time however far behind the earlier ones are, and SEND is timed from that
+ * planned time, so a backlog shows up in the latencies instead of quietly
+ * lowering the load.
+ *
+ * A courier loop plays the drivers: every round runs the batch assignment and
+ * then moves every parcel on as far as it can go. Every step runs in its own
+ * transaction, like a request, authenticated as the sender or as the driver
+ * the parcel is assigned to.
+ */
+@Component
+@Order(2) // Lower will run after loader
+public class LoadSimulator {
+
+    @Autowired
+    private ParcelService parcelService;
+
+    @Autowired
+    private BatchParcelAssignmentService batchParcelAssignmentService;
+
+    @Autowired
+    private CustomerRepo customerRepo;
+
+    @Autowired
+    private ParcelLockerRepo parcelLockerRepo;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${tendrilex.simulation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${tendrilex.simulation.seed:42}")
+    private long seed;
+
+    @Value("${tendrilex.simulation.parcels:500}")
+    private int parcels;
+
+    // parcels per second, on average (exponential gaps)
+    @Value("${tendrilex.simulation.rate:5}")
+    private double rate;
+
+    @Value("${tendrilex.simulation.concurrency:8}")
+    private int concurrency;
+
+    // city:weight of the senders, the recipients of inter-city parcels follow the
+    // same weights
+    @Value("${tendrilex.simulation.cities:Helsinki:3,Oulu:2}")
+    private String cityMix;
+
+    @Value("${tendrilex.simulation.inter-city-share:0.3}")
+    private double interCityShare;
+
+    @Value("${tendrilex.simulation.express-share:0.1}")
+    private double expressShare;
+
+    @Value("${tendrilex.simulation.locker-delivery-share:0}")
+    private double lockerDeliveryShare;
+
+    @Value("${tendrilex.simulation.round-interval-ms:2000}")
+    private long roundIntervalMs;
+
+    @Value("${tendrilex.simulation.max-duration-minutes:30}")
+    private long maxDurationMinutes;
+
+    @Value("${tendrilex.simulation.report:simulation-report.txt}")
+    private String reportFile;
+
+    private static final Logger logger = Logger.getLogger(LoadSimulator.class.getName());
+
+    // a parcel is given up after this many failed steps
+    private static final int MAX_ERRORS_PER_PARCEL = 3;
+
+    /**
+     * Starts the simulation on its own thread once the application (and the
+     * Loader) is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startSimulation() {
+        if (!enabled) {
+            return;
+        }
+        Thread runner = new Thread(this::simulate, "load-simulator");
+        runner.setDaemon(true);
+        runner.start();
+    }
+
+    /**
+     * Runs one simulation and writes its report
+     *
+     * @return the report
+     */
+    public SimulationReport simulate() {
+        SimulationReport report = new SimulationReport();
+        List<PlannedParcel> plan = plan(new SplittableRandom(seed), System.currentTimeMillis());
+
+        if (plan.isEmpty()) {
+            logger.severe("Load simulation not started: no city of " + cityMix + " has a sender, recipients and lockers.");
+            return report;
+        }
+
+        Map<Long, TrackedParcel> inFlight = new ConcurrentHashMap<>();
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("simulator-"));
+        ScheduledExecutorService courier = Executors
+                .newSingleThreadScheduledExecutor(new CustomizableThreadFactory("simulator-courier-"));
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MINUTES.toNanos(maxDurationMinutes);
+
+        try {
+            courier.scheduleWithFixedDelay(() -> courierRound(workers, inFlight, report, delivered, failed),
+                    roundIntervalMs, roundIntervalMs, TimeUnit.MILLISECONDS);
+
+            List<Future<?>> sends = new ArrayList<>(plan.size());
+            for (PlannedParcel planned : plan) {
+                long plannedAt = start + planned.offsetNanos();
+                for (long wait = plannedAt - System.nanoTime(); wait > 0; wait = plannedAt - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                sends.add(workers.submit(() -> send(planned, plannedAt, inFlight, report)));
+            }
+            for (Future<?> send : sends) {
+                await(send);
+            }
+
+            while (!inFlight.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(roundIntervalMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            courier.shutdown();
+            awaitTermination(courier);
+            workers.shutdown();
+            awaitTermination(workers);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        report.addHeader("TendrilEx load simulation");
+        report.addHeader(String.format("seed=%d parcels=%d rate=%.2f/s concurrency=%d cities=%s", seed, plan.size(),
+                rate, concurrency, cityMix));
+        report.addHeader(String.format("inter-city-share=%.2f express-share=%.2f locker-delivery-share=%.2f "
+                + "round-interval-ms=%d", interCityShare, expressShare, lockerDeliveryShare, roundIntervalMs));
+        report.addHeader(String.format("duration=%.1fs sent=%d delivered=%d failed=%d unfinished=%s", seconds,
+                report.countOf(LifecycleStep.SEND), delivered.get(), failed.get(), statusesOf(inFlight.keySet())));
+
+        try {
+            report.write(Path.of(reportFile));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write the simulation report to " + reportFile, e);
+        }
+        logger.info("Load simulation done:\n" + report.render());
+        return report;
+    }
+
+    // builds the whole workload up front so it does not depend on timing
+    private List<PlannedParcel> plan(SplittableRandom random, long runId) {
+        return transactionTemplate.execute(status -> {
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            Map<String, User> senders = new HashMap<>();
+            Map<String, List<Customer>> recipients = new HashMap<>();
+            Map<String, List<ParcelLocker>> lockers = new HashMap<>();
+
+            for (String entry : cityMix.split(",")) {
+                String[] cityWeight = entry.trim().split(":");
+                String city = cityWeight[0].trim();
+
+                User sender = userRepo.findByUsername("robotUser" + city).orElse(null);
+                List<Customer> cityRecipients = customerRepo
+                        .findByUserCityAndRole(PageRequest.of(0, 1000, Sort.by("id")), city).getContent();
+                List<ParcelLocker> cityLockers = new ArrayList<>(parcelLockerRepo.findByCity(city));
+                cityLockers.sort(Comparator.comparing(ParcelLocker::getId));
+
+                if (sender == null || cityRecipients.isEmpty() || cityLockers.isEmpty()) {
+                    logger.warning("Load simulation skips " + city + ": no robot sender, recipients or lockers.");
+                    continue;
+                }
+                weights.put(city, cityWeight.length > 1 ? Integer.parseInt(cityWeight[1].trim()) : 1);
+                senders.put(city, sender);
+                recipients.put(city, cityRecipients);
+                lockers.put(city, cityLockers);
+            }
+
+            List<PlannedParcel> plan = new ArrayList<>(parcels);
+            if (weights.isEmpty()) {
+                return plan;
+            }
+
+            long offsetNanos = 0;
+            for (int i = 0; i < parcels; i++) {
+                offsetNanos += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+
+                String senderCity = pick(weights, null, random);
+                String recipientCity = random.nextDouble() < interCityShare && weights.size() > 1
+                        ? pick(weights, senderCity, random)
+                        : senderCity;
+
+                User sender = senders.get(senderCity);
+                User recipient = recipients.get(recipientCity)
+                        .get(random.nextInt(recipients.get(recipientCity).size())).getUser();
+                List<ParcelLocker> senderLockers = lockers.get(senderCity);
+                List<ParcelLocker> recipientLockers = lockers.get(recipientCity);
+
+                ParcelReqDTO request = new ParcelReqDTO();
+                request.setSenderName(sender.getUsername());
+                request.setSenderAddress(sender.getAddress() != null ? sender.getAddress() : "Robot Street 1");
+                request.setSenderPostcode(sender.getPostcode() != null ? sender.getPostcode() : "00100");
+                request.setSenderCity(senderCity);
+                request.setSenderPhoneNo(sender.getPhoneNumber() != null ? sender.getPhoneNumber() : "0401234567");
+                request.setSenderEmail(sender.getEmail() != null ? sender.getEmail() : "sender@example.com");
+
+                request.setRecipientName(recipient.getFirstName() + " " + recipient.getLastName());
+                request.setRecipientAddress(recipient.getAddress());
+                request.setRecipientPostcode(recipient.getPostcode());
+                request.setRecipientCity(recipient.getCity());
+                request.setRecipientPhoneNo(recipient.getPhoneNumber());
+                request.setRecipientEmail(recipient.getEmail());
+
+                request.setSelectedSenderLockerId(senderLockers.get(random.nextInt(senderLockers.size())).getId());
+                boolean toLocker = random.nextDouble() < lockerDeliveryShare;
+                request.setIsDeliverToRecipientLocker(toLocker);
+                if (toLocker) {
+                    request.setSelectedRecipientLockerId(
+                            recipientLockers.get(random.nextInt(recipientLockers.size())).getId());
+                }
+
+                request.setWidth(10.0 + random.nextInt(40));
+                request.setHeight(5.0 + random.nextInt(35));
+                request.setDepth(5.0 + random.nextInt(30));
+                request.setMass(0.5 + random.nextInt(200) / 10.0);
+                request.setWeight(request.getMass());
+                request.setServiceLevel(random.nextDouble() < expressShare ? ServiceLevel.EXPRESS : ServiceLevel.STANDARD);
+                request.setDescription("Simulated parcel " + i);
+                request.setIdempotencyKey("SIM-" + seed + "-" + runId + "-" + i);
+
+                plan.add(new PlannedParcel(offsetNanos, sender.getUsername(), request));
+            }
+            return plan;
+        });
+    }
+
+    private void send(PlannedParcel planned, long plannedAt, Map<Long, TrackedParcel> inFlight,
+            SimulationReport report) {
+        authenticate(planned.senderUsername());
+        try {
+            Parcel parcel;
+            try {
+                parcel = transactionTemplate.execute(status -> parcelService.sendNewParcel(planned.request()));
+                report.record(LifecycleStep.SEND, System.nanoTime() - plannedAt);
+            } catch (Exception e) {
+                report.recordError(LifecycleStep.SEND);
+                logger.log(Level.FINE, "Simulated send failed", e);
+                return;
+            }
+
+            long dropOffStart = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(
+                        status -> parcelService.dropOffParcelInCabinet(parcel.getId(), parcel.getSenderTransactionCode()));
+                report.record(LifecycleStep.DROP_OFF, System.nanoTime() - dropOffStart);
+            } catch (Exception e) {
+                report.recordError(LifecycleStep.DROP_OFF);
+                logger.log(Level.FINE, "Simulated drop-off failed for parcel " + parcel.getId(), e);
+                return;
+            }
+
+            inFlight.put(parcel.getId(), new TrackedParcel(parcel.getId(), plannedAt, System.nanoTime()));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void courierRound(ExecutorService workers, Map<Long, TrackedParcel> inFlight, SimulationReport report,
+            AtomicInteger delivered, AtomicInteger failed) {
+        long batchStart = System.nanoTime();
+        try {
+            batchParcelAssignmentService.batchAssignParcels();
+            report.record(LifecycleStep.BATCH_ASSIGNMENT, System.nanoTime() - batchStart);
+        } catch (Exception e) {
+            report.recordError(LifecycleStep.BATCH_ASSIGNMENT);
+            logger.log(Level.WARNING, "Simulated batch assignment failed", e);
+        }
+
+        List<Future<?>> moves = new ArrayList<>(inFlight.size());
+        for (TrackedParcel parcel : inFlight.values()) {
+            moves.add(workers.submit(() -> advance(parcel, inFlight, report, delivered, failed)));
+        }
+        for (Future<?> move : moves) {
+            await(move);
+        }
+    }
+
+    // performs the steps of a parcel until it waits for a driver or is delivered
+    private void advance(TrackedParcel tracked, Map<Long, TrackedParcel> inFlight, SimulationReport report,
+            AtomicInteger delivered, AtomicInteger failed) {
+        while (true) {
+            Move move = transactionTemplate.execute(status -> nextMoveOf(parcelService.getParcelById(tracked.id)));
+            long now = System.nanoTime();
+
+            if (move.delivered()) {
+                report.record(LifecycleStep.END_TO_END, now - tracked.plannedAt);
+                inFlight.remove(tracked.id);
+                delivered.incrementAndGet();
+                return;
+            }
+            if (move.step() == null) {
+                if (tracked.awaitingSince == 0) {
+                    tracked.awaitingSince = now;
+                }
+                return;
+            }
+            if (tracked.awaitingSince != 0) {
+                report.record(LifecycleStep.ASSIGNMENT_WAIT, now - tracked.awaitingSince);
+                tracked.awaitingSince = 0;
+            }
+
+            authenticate(move.username());
+            try {
+                transactionTemplate.executeWithoutResult(status -> perform(tracked.id, move));
+                report.record(move.step(), System.nanoTime() - now);
+            } catch (Exception e) {
+                report.recordError(move.step());
+                logger.log(Level.FINE, "Simulated " + move.step() + " failed for parcel " + tracked.id, e);
+                if (++tracked.errors >= MAX_ERRORS_PER_PARCEL) {
+                    inFlight.remove(tracked.id);
+                    failed.incrementAndGet();
+                }
+                return;
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+    }
+
+    private Move nextMoveOf(Parcel parcel) {
+        ParcelStatus status = parcel.getStatus();
+        String driver = parcel.getDriver() != null ? parcel.getDriver().getUser().getUsername() : null;
+
+        return switch (status) {
+            case ASSIGNED_TO_INTRA_CITY_DRIVER -> parcel.getStorage() == null
+                    ? new Move(LifecycleStep.LOCKER_PICKUP, status, driver, parcel.getSenderTransactionCode(), false)
+                    : new Move(LifecycleStep.STORAGE_PICKUP, status, driver, null, false);
+            case ASSIGNED_TO_INTER_CITY_DRIVER -> new Move(LifecycleStep.STORAGE_PICKUP, status, driver, null, false);
+            case IN_TRANSIT_TO_DEPARTURE_STORAGE, IN_TRANSIT_TO_DESTINATION_STORAGE ->
+                new Move(LifecycleStep.STORAGE_DROP_OFF, status, driver, null, false);
+            case IN_TRANSIT_TO_RECIPIENT -> new Move(LifecycleStep.DELIVERY, status, driver,
+                    Boolean.TRUE.equals(parcel.getDeliverToRecipientLocker()) ? parcel.getRecipientTransactionCode() : null,
+                    false);
+            case DELIVERED_TO_RECIPIENT, DELIVERED_TO_RECIPIENT_LOCKER -> new Move(null, status, null, null, true);
+            // waits for a driver
+            default -> new Move(null, status, null, null, false);
+        };
+    }
+
+    private void perform(Long parcelId, Move move) {
+        switch (move.step()) {
+            case LOCKER_PICKUP -> parcelService.pickUpParcelFromLocker(parcelId, move.code());
+            case STORAGE_PICKUP -> parcelService.pickUpParcelFromStorage(parcelId);
+            case STORAGE_DROP_OFF -> {
+                if (move.status() == ParcelStatus.IN_TRANSIT_TO_DEPARTURE_STORAGE) {
+                    parcelService.deliverToDepartureStorage(parcelId);
+                } else {
+                    parcelService.deliverToDestinationStorage(parcelId);
+                }
+            }
+            case DELIVERY -> {
+                if (move.code() != null) {
+                    parcelService.deliverToRecipientPickupPoint(parcelId, move.code());
+                } else {
+                    parcelService.deliverToRecipient(parcelId);
+                }
+            }
+            default -> throw new IllegalStateException("Not a driver step: " + move.step());
+        }
+    }
+
+    private Map<ParcelStatus, Integer> statusesOf(Iterable<Long> parcelIds) {
+        return transactionTemplate.execute(status -> {
+            Map<ParcelStatus, Integer> byStatus = new TreeMap<>();
+            for (Long parcelId : parcelIds) {
+                byStatus.merge(parcelService.getParcelById(parcelId).getStatus(), 1, Integer::sum);
+            }
+            return byStatus;
+        });
+    }
+
+    // weighted draw, optionally leaving one city out
+    private String pick(Map<String, Integer> weights, String excluded, SplittableRandom random) {
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            total += entry.getKey().equals(excluded) ? 0 : entry.getValue();
+        }
+        int draw = random.nextInt(total);
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            if (entry.getKey().equals(excluded)) {
+                continue;
+            }
+            draw -= entry.getValue();
+            if (draw < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty city mix");
+    }
+
+    // the services only read the name of the authenticated user
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Simulation task failed", e.getCause());
+        }
+    }
+
+    private void awaitTermination(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record PlannedParcel(long offsetNanos, String senderUsername, ParcelReqDTO request) {
+    }
+
+    private record Move(LifecycleStep step, ParcelStatus status, String username, Integer code, boolean delivered) {
+    }
+
+    private static class TrackedParcel {
+
+        private final Long id;
+        private final long plannedAt;
+        private volatile long awaitingSince;
+        private int errors;
+
+        TrackedParcel(Long id, long plannedAt, long awaitingSince) {
+            this.id = id;
+            this.plannedAt = plannedAt;
+            this.awaitingSince = awaitingSince;
+        }
+    }
+
+}
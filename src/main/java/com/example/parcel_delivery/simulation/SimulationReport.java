@@ -0,0 +1,117 @@
+package com.example.parcel_delivery.simulation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and errors of one simulation run, per lifecycle step. Latencies
+ * are kept in microseconds in HdrHistograms (3 significant digits), which any
+ * number of threads can record into.
+ */
+public class SimulationReport {
+
+    private static final double[] PERCENTILES = { 50, 90, 95, 99, 99.9 };
+
+    private final Map<LifecycleStep, Histogram> latencies = new EnumMap<>(LifecycleStep.class);
+
+    private final Map<LifecycleStep, LongAdder> errors = new EnumMap<>(LifecycleStep.class);
+
+    private final List<String> header = new ArrayList<>();
+
+    public SimulationReport() {
+        for (LifecycleStep step : LifecycleStep.values()) {
+            latencies.put(step, new ConcurrentHistogram(3));
+            errors.put(step, new LongAdder());
+        }
+    }
+
+    public void record(LifecycleStep step, long nanos) {
+        latencies.get(step).recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    public void recordError(LifecycleStep step) {
+        errors.get(step).increment();
+    }
+
+    public long countOf(LifecycleStep step) {
+        return latencies.get(step).getTotalCount();
+    }
+
+    public long errorsOf(LifecycleStep step) {
+        return errors.get(step).sum();
+    }
+
+    /**
+     * Adds a line above the latency table (configuration, outcome)
+     *
+     * @param line
+     */
+    public void addHeader(String line) {
+        header.add(line);
+    }
+
+    /**
+     * @return the report as a fixed width text table, latencies in ms
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder();
+        header.forEach(line -> out.append(line).append('\n'));
+        out.append('\n');
+
+        out.append(String.format("%-18s %8s %7s", "step", "count", "errors"));
+        for (double percentile : PERCENTILES) {
+            out.append(String.format(" %10s", "p" + format(percentile)));
+        }
+        out.append(String.format(" %10s%n", "max"));
+
+        for (LifecycleStep step : LifecycleStep.values()) {
+            Histogram histogram = latencies.get(step);
+            out.append(String.format("%-18s %8d %7d", step, histogram.getTotalCount(), errorsOf(step)));
+            for (double percentile : PERCENTILES) {
+                out.append(String.format(" %10.2f", histogram.getValueAtPercentile(percentile) / 1000.0));
+            }
+            out.append(String.format(" %10.2f%n", histogram.getMaxValue() / 1000.0));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the table, followed by the full percentile distribution of every
+     * step that has samples (HdrHistogram format, values in ms)
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void write(Path file) throws IOException {
+        StringBuilder out = new StringBuilder(render());
+
+        for (LifecycleStep step : LifecycleStep.values()) {
+            Histogram histogram = latencies.get(step);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            ByteArrayOutputStream distribution = new ByteArrayOutputStream();
+            histogram.outputPercentileDistribution(new PrintStream(distribution, true), 5, 1000.0);
+            out.append('\n').append(step).append('\n').append(distribution);
+        }
+
+        Files.writeString(file, out);
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+    }
+
+}
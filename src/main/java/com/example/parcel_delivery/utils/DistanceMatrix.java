@@ -0,0 +1,195 @@
+package com.example.parcel_delivery.utils;
+
+import java.util.Arrays;
+
+/**
+ * Distances in km between all sites (lockers) of one city, kept in one float
+ * array. The distances are symmetric, so only the lower triangle is stored:
+ * n * (n - 1) / 2 floats, about 8 MB for 2000 lockers. A site is added with its
+ * id and position and gets the next index; its row is computed right away and
+ * appended after the rows of the sites before it, the other rows are not
+ * touched.
+ *
+ * Reads are lock-free and allocate nothing: indexOf goes through a primitive
+ * open addressing table and km reads the array. Adds are serialised; when the
+ * arrays are full they are copied into a quarter bigger ones (the triangle
+ * keeps its layout, so it is one array copy) and published in one volatile
+ * write, so a reader always sees a complete snapshot.
+ */
+public final class DistanceMatrix {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final double roadFactor;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param roadFactor multiplier on the haversine distance (1 = straight line)
+     */
+    public DistanceMatrix(double roadFactor) {
+        this(roadFactor, INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param roadFactor    multiplier on the haversine distance (1 = straight line)
+     * @param expectedSites number of sites the arrays are sized for
+     */
+    public DistanceMatrix(double roadFactor, int expectedSites) {
+        this.roadFactor = roadFactor;
+        this.snapshot = new Snapshot(Math.max(2, expectedSites));
+    }
+
+    /**
+     * @param id
+     * @return the index of the site, -1 when it is not in the matrix
+     */
+    public int indexOf(long id) {
+        return snapshot.indexOf(id);
+    }
+
+    /**
+     * @param from index of a site
+     * @param to   index of a site
+     * @return distance in km
+     */
+    public float km(int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        return snapshot.km[from > to ? cell(from, to) : cell(to, from)];
+    }
+
+    public int size() {
+        return snapshot.size;
+    }
+
+    public double getRoadFactor() {
+        return roadFactor;
+    }
+
+    /**
+     * Adds a site, or returns its index when it is already there
+     *
+     * @param id
+     * @param lat
+     * @param lon
+     * @return the index of the site
+     */
+    public synchronized int add(long id, double lat, double lon) {
+        Snapshot current = snapshot;
+        int existing = current.indexOf(id);
+        if (existing >= 0) {
+            return existing;
+        }
+
+        if (current.size == current.capacity) {
+            current = current.grow();
+        }
+
+        int index = current.size;
+        current.ids[index] = id;
+        current.lat[index] = lat;
+        current.lon[index] = lon;
+
+        int row = cell(index, 0);
+        for (int other = 0; other < index; other++) {
+            current.km[row + other] = (float) (roadFactor
+                    * GeoUtils.haversineKm(lat, lon, current.lat[other], current.lon[other]));
+        }
+        current.put(id, index);
+
+        // publishes the new row together with the size
+        snapshot = current.withSize(index + 1);
+        return index;
+    }
+
+    // position of (row, column) in the lower triangle, column < row
+    private static int cell(int row, int column) {
+        return row * (row - 1) / 2 + column;
+    }
+
+    private static final class Snapshot {
+
+        private final int capacity;
+        private final int size;
+
+        private final long[] ids;
+        private final double[] lat;
+        private final double[] lon;
+        private final float[] km;
+
+        // open addressing id -> index + 1 (0 = empty slot)
+        private final long[] slotIds;
+        private final int[] slotIndexes;
+
+        Snapshot(int capacity) {
+            this(capacity, 0, new long[capacity], new double[capacity], new double[capacity],
+                    new float[cell(capacity, 0)], new long[slotsFor(capacity)], new int[slotsFor(capacity)]);
+        }
+
+        private Snapshot(int capacity, int size, long[] ids, double[] lat, double[] lon, float[] km,
+                long[] slotIds, int[] slotIndexes) {
+            this.capacity = capacity;
+            this.size = size;
+            this.ids = ids;
+            this.lat = lat;
+            this.lon = lon;
+            this.km = km;
+            this.slotIds = slotIds;
+            this.slotIndexes = slotIndexes;
+        }
+
+        int indexOf(long id) {
+            int mask = slotIds.length - 1;
+            for (int slot = hash(id) & mask;; slot = (slot + 1) & mask) {
+                int index = slotIndexes[slot] - 1;
+                if (index < 0) {
+                    return -1;
+                }
+                // an index past size is an add still in progress
+                if (slotIds[slot] == id) {
+                    return index < size ? index : -1;
+                }
+            }
+        }
+
+        void put(long id, int index) {
+            int mask = slotIds.length - 1;
+            int slot = hash(id) & mask;
+            while (slotIndexes[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slotIds[slot] = id;
+            slotIndexes[slot] = index + 1;
+        }
+
+        Snapshot withSize(int newSize) {
+            return new Snapshot(capacity, newSize, ids, lat, lon, km, slotIds, slotIndexes);
+        }
+
+        Snapshot grow() {
+            int newCapacity = capacity + capacity / 4 + 1;
+
+            Snapshot grown = new Snapshot(newCapacity, size, Arrays.copyOf(ids, newCapacity),
+                    Arrays.copyOf(lat, newCapacity), Arrays.copyOf(lon, newCapacity),
+                    Arrays.copyOf(km, cell(newCapacity, 0)),
+                    new long[slotsFor(newCapacity)], new int[slotsFor(newCapacity)]);
+            for (int index = 0; index < size; index++) {
+                grown.put(ids[index], index);
+            }
+            return grown;
+        }
+
+        // a power of two, at most half full
+        private static int slotsFor(int capacity) {
+            return Integer.highestOneBit(capacity - 1) << 2;
+        }
+
+        private static int hash(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.example.parcel_delivery.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.jts.geom.Point;
+
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+
+/**
+ * Plain distance helpers used by the assignment. Points are EPSG:4326, so x is
+ * the longitude and y the latitude.
+ */
+public final class GeoUtils {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private GeoUtils() {
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public static double haversineKm(Point from, Point to) {
+        return haversineKm(from.getY(), from.getX(), to.getY(), to.getX());
+    }
+
+    /**
+     * Where an intra-city driver collects the parcel. Null when it is picked up
+     * from a storage (storages have no location yet).
+     * 
+     * @param parcel
+     * @return
+     */
+    public static Point pickupPointOf(Parcel parcel) {
+        if (parcel.getStatus() == ParcelStatus.AWAITING_FINAL_DELIVERY) {
+            return null;
+        }
+        return parcel.getSelectedLockerLocation() != null ? parcel.getSelectedLockerLocation().getGeoLocation()
+                : null;
+    }
+
+    /**
+     * Where an intra-city driver drops the parcel. Null when it goes to a storage
+     * or the recipient has no known location.
+     * 
+     * @param parcel
+     * @return
+     */
+    public static Point deliveryPointOf(Parcel parcel) {
+        if (parcel.getStatus() == ParcelStatus.AWAITING_DEPARTURE_STORAGE_PICKUP) {
+            return null;
+        }
+        return parcel.getRecipient() != null && parcel.getRecipient().getUser() != null
+                ? parcel.getRecipient().getUser().getUserPoint()
+                : null;
+    }
+
+    /**
+     * First stop of an intra-city driver for the parcel: the pickup, or the
+     * delivery when the parcel is collected from a storage
+     * 
+     * @param parcel
+     * @return
+     */
+    public static Point firstStopOf(Parcel parcel) {
+        Point pickup = pickupPointOf(parcel);
+        return pickup != null ? pickup : deliveryPointOf(parcel);
+    }
+
+    /**
+     * Rough length of a driver route: all pickups in the given order, then all
+     * deliveries in the given order. Stops without a location are skipped.
+     * 
+     * @param parcels
+     * @return the length in km
+     */
+    public static double estimateRouteKm(List<Parcel> parcels) {
+        List<Point> stops = new ArrayList<>();
+        for (Parcel parcel : parcels) {
+            Point pickup = pickupPointOf(parcel);
+            if (pickup != null) {
+                stops.add(pickup);
+            }
+        }
+        for (Parcel parcel : parcels) {
+            Point delivery = deliveryPointOf(parcel);
+            if (delivery != null) {
+                stops.add(delivery);
+            }
+        }
+
+        double km = 0;
+        for (int i = 1; i < stops.size(); i++) {
+            km += haversineKm(stops.get(i - 1), stops.get(i));
+        }
+        return km;
+    }
+
+}
@@ -30,6 +30,11 @@ public class LocationUtils {
 
     private static final GeometryFactory geometryFactory = new GeometryFactory();
 
+    // both are thread-safe and costly to build, one per application
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final HttpClient httpClient = HttpClient.newHttpClient();
+
     public Point geocodeLocation(CustomerLocationReqDTO lockerReqDTO) {
         try {
 
@@ -40,7 +45,6 @@ public class LocationUtils {
 
             String requestUri = GEOCODING_RESOURCE + "?key=" + API_KEY + "&address=" + encodedAddress;
 
-            HttpClient httpClient = HttpClient.newHttpClient();
             HttpRequest httpRequest = HttpRequest.newBuilder()
                     .uri(URI.create(requestUri))
                     .timeout(Duration.ofMillis(2000))
@@ -55,29 +59,40 @@ public class LocationUtils {
                         "Geocoding API request failed with status code: " + httpResponse.statusCode());
             }
 
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode responseJson = mapper.readTree(response);
-            JsonNode results = responseJson.get("results");
-
-            if (results != null && results.isArray() && results.size() > 0) {
-                // Check for partial match
-                if (results.get(0).has("partial_match") && results.get(0).get("partial_match").asBoolean()) {
-                    throw new TendrilExExceptionHandler(HttpStatus.BAD_REQUEST,
-                            "Geocoding API returned a partial match for the address: " + addressStr);
-                }
-                JsonNode location = results.get(0).get("geometry").get("location");
-                double latitude = location.get("lat").asDouble();
-                double longitude = location.get("lng").asDouble();
-                Point point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
-                point.setSRID(4326);
-                return point;
-            } else {
-                throw new TendrilExExceptionHandler(HttpStatus.NOT_FOUND,
-                        "Geocoding API returned no results for the address: " + addressStr);
-            }
+            return parseGeocodingResponse(response, addressStr);
         } catch (InterruptedException | IOException e) {
             throw new TendrilExExceptionHandler(HttpStatus.INTERNAL_SERVER_ERROR,
                     "Error while geocoding: " + e.getMessage());
         }
     }
+
+    /**
+     * Reads the first result of a geocoding API response
+     * 
+     * @param response   body of the response
+     * @param addressStr the address that was looked up, for the error messages
+     * @return the location as an EPSG:4326 point
+     * @throws IOException when the body is not JSON
+     */
+    public Point parseGeocodingResponse(String response, String addressStr) throws IOException {
+        JsonNode responseJson = objectMapper.readTree(response);
+        JsonNode results = responseJson.get("results");
+
+        if (results != null && results.isArray() && results.size() > 0) {
+            // Check for partial match
+            if (results.get(0).has("partial_match") && results.get(0).get("partial_match").asBoolean()) {
+                throw new TendrilExExceptionHandler(HttpStatus.BAD_REQUEST,
+                        "Geocoding API returned a partial match for the address: " + addressStr);
+            }
+            JsonNode location = results.get(0).get("geometry").get("location");
+            double latitude = location.get("lat").asDouble();
+            double longitude = location.get("lng").asDouble();
+            Point point = geometryFactory.createPoint(new Coordinate(longitude, latitude));
+            point.setSRID(4326);
+            return point;
+        } else {
+            throw new TendrilExExceptionHandler(HttpStatus.NOT_FOUND,
+                    "Geocoding API returned no results for the address: " + addressStr);
+        }
+    }
 }
@@ -0,0 +1,199 @@
+package com.example.parcel_delivery.utils;
+
+import java.util.Arrays;
+
+import com.example.parcel_delivery.models.enums.CabinetSize;
+import com.example.parcel_delivery.models.enums.CabinetStatus;
+
+/**
+ * Statuses of the cabinets of one locker as bitsets: the cabinet ids are kept
+ * sorted and bit i is the cabinet at index i. Free cabinets are kept in one set
+ * per size class, so the best fit is the first set bit from the class of the
+ * parcel upwards; reserved and occupied cabinets in one set each (an
+ * OUT_OF_SERVICE cabinet is in none of them).
+ *
+ * The free count is read without locking; picking a cabinet, changing a status
+ * and the per class counts lock the locker. Nothing here allocates after
+ * construction.
+ */
+public final class LockerCabinets {
+
+    private static final CabinetSize[] SIZES = CabinetSize.values();
+
+    private final long[] cabinetIds;
+    private final CabinetSize[] sizes;
+
+    private final long[][] freeBySize;
+    private final long[] reserved;
+    private final long[] occupied;
+
+    // [size][status]
+    private final int[][] counts;
+
+    private volatile int freeCount;
+
+    // where the next pick of each size starts, so concurrent sends get
+    // different cabinets
+    private final int[] cursors;
+
+    /**
+     * @param cabinetIds ids sorted ascending, only the first size are used
+     * @param sizes      size class of each cabinet
+     * @param statuses   status of each cabinet
+     * @param size
+     */
+    public LockerCabinets(long[] cabinetIds, CabinetSize[] sizes, CabinetStatus[] statuses, int size) {
+        this.cabinetIds = Arrays.copyOf(cabinetIds, size);
+        this.sizes = Arrays.copyOf(sizes, size);
+        int words = (size + 63) >>> 6;
+        this.freeBySize = new long[SIZES.length][words];
+        this.reserved = new long[words];
+        this.occupied = new long[words];
+        this.counts = new int[SIZES.length][CabinetStatus.values().length];
+        this.cursors = new int[SIZES.length];
+
+        for (int i = 0; i < size; i++) {
+            add(i, statuses[i]);
+        }
+    }
+
+    public int size() {
+        return cabinetIds.length;
+    }
+
+    public int freeCount() {
+        return freeCount;
+    }
+
+    public boolean hasFree() {
+        return freeCount > 0;
+    }
+
+    /**
+     * @param size
+     * @param status
+     * @return number of cabinets of the size class in the status
+     */
+    public synchronized int count(CabinetSize size, CabinetStatus status) {
+        return counts[size.ordinal()][status.ordinal()];
+    }
+
+    /**
+     * The smallest free cabinet of at least the given size class, within a class
+     * the next one after the last one picked. The cabinet stays FREE here, the
+     * claim in the database decides and its status change comes back through set
+     *
+     * @param minSize size class of the parcel
+     * @return the cabinet id, -1 when no free cabinet is large enough
+     */
+    public synchronized long pickFree(CabinetSize minSize) {
+        if (freeCount == 0) {
+            return -1;
+        }
+        for (int s = minSize.ordinal(); s < SIZES.length; s++) {
+            if (counts[s][CabinetStatus.FREE.ordinal()] == 0) {
+                continue;
+            }
+            long[] free = freeBySize[s];
+            int index = nextSetBit(free, cursors[s]);
+            if (index < 0) {
+                index = nextSetBit(free, 0);
+            }
+            if (index >= 0) {
+                cursors[s] = index + 1 < cabinetIds.length ? index + 1 : 0;
+                return cabinetIds[index];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param cabinetId
+     * @param status
+     * @return false when the cabinet is not one of this locker
+     */
+    public synchronized boolean set(long cabinetId, CabinetStatus status) {
+        int index = Arrays.binarySearch(cabinetIds, cabinetId);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        add(index, status);
+        return true;
+    }
+
+    /**
+     * @param cabinetId
+     * @return null when the cabinet is not one of this locker
+     */
+    public synchronized CabinetStatus statusOf(long cabinetId) {
+        int index = Arrays.binarySearch(cabinetIds, cabinetId);
+        if (index < 0) {
+            return null;
+        }
+        if (isSet(freeBySize[sizes[index].ordinal()], index)) {
+            return CabinetStatus.FREE;
+        }
+        if (isSet(reserved, index)) {
+            return CabinetStatus.RESERVED;
+        }
+        return isSet(occupied, index) ? CabinetStatus.OCCUPIED : CabinetStatus.OUT_OF_SERVICE;
+    }
+
+    private void add(int index, CabinetStatus status) {
+        long bit = 1L << index;
+        int word = index >>> 6;
+        if (status == CabinetStatus.FREE) {
+            freeBySize[sizes[index].ordinal()][word] |= bit;
+            freeCount++;
+        } else if (status == CabinetStatus.RESERVED) {
+            reserved[word] |= bit;
+        } else if (status == CabinetStatus.OCCUPIED) {
+            occupied[word] |= bit;
+        }
+        counts[sizes[index].ordinal()][status.ordinal()]++;
+    }
+
+    private void remove(int index) {
+        long bit = 1L << index;
+        int word = index >>> 6;
+        long[] free = freeBySize[sizes[index].ordinal()];
+        CabinetStatus status;
+        if ((free[word] & bit) != 0) {
+            free[word] &= ~bit;
+            freeCount--;
+            status = CabinetStatus.FREE;
+        } else if ((reserved[word] & bit) != 0) {
+            reserved[word] &= ~bit;
+            status = CabinetStatus.RESERVED;
+        } else if ((occupied[word] & bit) != 0) {
+            occupied[word] &= ~bit;
+            status = CabinetStatus.OCCUPIED;
+        } else {
+            status = CabinetStatus.OUT_OF_SERVICE;
+        }
+        counts[sizes[index].ordinal()][status.ordinal()]--;
+    }
+
+    private static boolean isSet(long[] words, int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static int nextSetBit(long[] words, int from) {
+        int word = from >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.example.parcel_delivery.utils;
+
+import java.util.Arrays;
+
+/**
+ * Min-cost max-flow on a small directed graph with integer capacities and
+ * non-negative integer costs.
+ *
+ * Primal-dual: a Dijkstra on the reduced costs updates the node potentials, then
+ * every shortest path of that round is augmented at once with a blocking flow
+ * (Dinic) over the zero reduced cost edges. On assignment graphs this needs far
+ * fewer Dijkstra runs than one augmenting path at a time.
+ */
+public final class MinCostFlow {
+
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private final int nodes;
+
+    private int edges;
+    private int[] head;
+    private int[] next;
+    private int[] to;
+    private int[] cap;
+    private long[] cost;
+
+    private long[] potential;
+    private long[] dist;
+    private int[] level;
+    private int[] currentEdge;
+
+    public MinCostFlow(int nodes, int expectedEdges) {
+        this.nodes = nodes;
+        this.head = new int[nodes];
+        Arrays.fill(head, -1);
+        int capacity = Math.max(2, expectedEdges * 2);
+        this.next = new int[capacity];
+        this.to = new int[capacity];
+        this.cap = new int[capacity];
+        this.cost = new long[capacity];
+    }
+
+    /**
+     * Adds an edge and its residual twin
+     * 
+     * @return id of the edge, to read its flow later
+     */
+    public int addEdge(int from, int target, int capacity, long edgeCost) {
+        if (edgeCost < 0) {
+            throw new IllegalArgumentException("Negative cost on edge " + from + " -> " + target);
+        }
+        ensureCapacity(edges + 2);
+        int id = edges;
+        link(from, target, capacity, edgeCost);
+        link(target, from, 0, -edgeCost);
+        return id;
+    }
+
+    public int flowOn(int edgeId) {
+        return cap[edgeId ^ 1];
+    }
+
+    /**
+     * Sends as much flow as possible from source to sink at minimum cost
+     * 
+     * @return { flow, cost }
+     */
+    public long[] run(int source, int sink) {
+        potential = new long[nodes];
+        dist = new long[nodes];
+        level = new int[nodes];
+        currentEdge = new int[nodes];
+
+        long flow = 0;
+        long totalCost = 0;
+
+        while (dijkstra(source, sink)) {
+            for (int v = 0; v < nodes; v++) {
+                potential[v] += Math.min(dist[v], dist[sink]);
+            }
+
+            while (levels(source, sink)) {
+                System.arraycopy(head, 0, currentEdge, 0, nodes);
+                long pushed;
+                while ((pushed = augment(source, sink, Integer.MAX_VALUE)) > 0) {
+                    flow += pushed;
+                    totalCost += pushed * (potential[sink] - potential[source]);
+                }
+            }
+        }
+        return new long[] { flow, totalCost };
+    }
+
+    private boolean dijkstra(int source, int sink) {
+        Arrays.fill(dist, INF);
+        dist[source] = 0;
+
+        // (distance << 20 | node), nodes stay far below 2^20
+        LongHeap heap = new LongHeap(nodes);
+        heap.push(source);
+
+        while (!heap.isEmpty()) {
+            long top = heap.pop();
+            int u = (int) (top & 0xFFFFF);
+            long d = top >>> 20;
+            if (d > dist[u]) {
+                continue;
+            }
+            for (int e = head[u]; e != -1; e = next[e]) {
+                if (cap[e] == 0) {
+                    continue;
+                }
+                int v = to[e];
+                long candidate = d + cost[e] + potential[u] - potential[v];
+                if (candidate < dist[v]) {
+                    dist[v] = candidate;
+                    heap.push(candidate << 20 | v);
+                }
+            }
+        }
+        return dist[sink] < INF;
+    }
+
+    // BFS over the edges that lie on a shortest path (zero reduced cost)
+    private boolean levels(int source, int sink) {
+        Arrays.fill(level, -1);
+        int[] queue = new int[nodes];
+        int read = 0;
+        int write = 0;
+        level[source] = 0;
+        queue[write++] = source;
+
+        while (read < write) {
+            int u = queue[read++];
+            for (int e = head[u]; e != -1; e = next[e]) {
+                int v = to[e];
+                if (cap[e] > 0 && level[v] < 0 && isTight(u, e)) {
+                    level[v] = level[u] + 1;
+                    queue[write++] = v;
+                }
+            }
+        }
+        return level[sink] >= 0;
+    }
+
+    private long augment(int u, int sink, int limit) {
+        if (u == sink) {
+            return limit;
+        }
+        for (; currentEdge[u] != -1; currentEdge[u] = next[currentEdge[u]]) {
+            int e = currentEdge[u];
+            int v = to[e];
+            if (cap[e] > 0 && level[v] == level[u] + 1 && isTight(u, e)) {
+                long pushed = augment(v, sink, Math.min(limit, cap[e]));
+                if (pushed > 0) {
+                    cap[e] -= pushed;
+                    cap[e ^ 1] += pushed;
+                    return pushed;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private boolean isTight(int u, int e) {
+        return cost[e] + potential[u] - potential[to[e]] == 0;
+    }
+
+    private void link(int from, int target, int capacity, long edgeCost) {
+        to[edges] = target;
+        cap[edges] = capacity;
+        cost[edges] = edgeCost;
+        next[edges] = head[from];
+        head[from] = edges++;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= to.length) {
+            return;
+        }
+        int capacity = Math.max(size, to.length * 2);
+        next = Arrays.copyOf(next, capacity);
+        to = Arrays.copyOf(to, capacity);
+        cap = Arrays.copyOf(cap, capacity);
+        cost = Arrays.copyOf(cost, capacity);
+    }
+
+    /**
+     * Binary min-heap of primitive longs
+     */
+    private static final class LongHeap {
+
+        private long[] values;
+        private int size;
+
+        LongHeap(int capacity) {
+            values = new long[Math.max(16, capacity)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (values[parent] <= value) {
+                    break;
+                }
+                values[i] = values[parent];
+                i = parent;
+            }
+            values[i] = value;
+        }
+
+        long pop() {
+            long top = values[0];
+            long last = values[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && values[child + 1] < values[child]) {
+                    child++;
+                }
+                if (values[child] >= last) {
+                    break;
+                }
+                values[i] = values[child];
+                i = child;
+            }
+            values[i] = last;
+            return top;
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package com.example.parcel_delivery.utils;
+
+import java.util.Arrays;
+
+/**
+ * Orders the stops of a driver route: nearest neighbour construction, then
+ * 2-opt and Or-opt moves until no move shortens the route.
+ *
+ * The route is open, it starts at node 0 (the driver) and ends at the last stop.
+ * Distances come as a flat n x n matrix. A stop can require another stop to be
+ * visited before it (the pickup of a parcel before its delivery), moves that
+ * break such a pair are not taken.
+ */
+public final class RouteSequencer {
+
+    private static final double EPSILON = 1e-9;
+
+    // longest segment Or-opt moves as a block
+    private static final int OR_OPT_SEGMENT = 3;
+
+    private final int n;
+    private final double[] dist;
+    private final int[] before;
+
+    private final int[] route;
+    private final int[] position;
+
+    /**
+     * @param n      number of nodes, node 0 being the start
+     * @param dist   n x n distances, row major
+     * @param before for every node the node that has to be visited earlier, or -1
+     */
+    public RouteSequencer(int n, double[] dist, int[] before) {
+        this.n = n;
+        this.dist = dist;
+        this.before = before;
+        this.route = new int[n];
+        this.position = new int[n];
+    }
+
+    /**
+     * @param maxPasses upper bound on the improvement passes
+     * @return the node order, starting with 0
+     */
+    public int[] solve(int maxPasses) {
+        nearestNeighbour();
+
+        for (int pass = 0; pass < maxPasses; pass++) {
+            boolean improved = twoOpt();
+            improved |= orOpt();
+            if (!improved) {
+                break;
+            }
+        }
+        return route.clone();
+    }
+
+    /**
+     * @param order node order starting with 0
+     * @return length of the open route
+     */
+    public double lengthOf(int[] order) {
+        double length = 0;
+        for (int i = 1; i < order.length; i++) {
+            length += d(order[i - 1], order[i]);
+        }
+        return length;
+    }
+
+    private void nearestNeighbour() {
+        boolean[] visited = new boolean[n];
+        route[0] = 0;
+        visited[0] = true;
+
+        for (int i = 1; i < n; i++) {
+            int last = route[i - 1];
+            int nearest = -1;
+            for (int node = 1; node < n; node++) {
+                if (!visited[node] && (before[node] < 0 || visited[before[node]])
+                        && (nearest < 0 || d(last, node) < d(last, nearest))) {
+                    nearest = node;
+                }
+            }
+            route[i] = nearest;
+            visited[nearest] = true;
+        }
+        updatePositions();
+    }
+
+    // reverses route[i..j]; the start never moves
+    private boolean twoOpt() {
+        boolean improved = false;
+
+        for (int i = 1; i < n - 1; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int a = route[i - 1];
+                int b = route[i];
+                int c = route[j];
+                double delta = d(a, c) - d(a, b);
+                if (j + 1 < n) {
+                    int e = route[j + 1];
+                    delta += d(b, e) - d(c, e);
+                }
+
+                if (delta < -EPSILON && canReverse(i, j)) {
+                    reverse(i, j);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    // a reversed segment must not hold both stops of a pair
+    private boolean canReverse(int i, int j) {
+        for (int k = i; k <= j; k++) {
+            int required = before[route[k]];
+            if (required >= 0 && position[required] >= i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // moves route[i..i+len-1] between two other stops, keeping its direction
+    private boolean orOpt() {
+        boolean improved = false;
+
+        for (int len = 1; len <= OR_OPT_SEGMENT; len++) {
+            for (int i = 1; i + len <= n; i++) {
+                int j = i + len - 1;
+                int first = route[i];
+                int last = route[j];
+                int prev = route[i - 1];
+                int next = j + 1 < n ? route[j + 1] : -1;
+
+                double removed = d(prev, first) + (next >= 0 ? d(last, next) - d(prev, next) : 0);
+
+                int bestAfter = -1;
+                double bestDelta = -EPSILON;
+
+                // insert between route[k] and route[k + 1], outside of the segment
+                for (int k = 0; k < n; k++) {
+                    if (k >= i - 1 && k <= j) {
+                        continue;
+                    }
+                    int left = route[k];
+                    int right = k + 1 < n ? route[k + 1] : -1;
+                    double added = d(left, first) + (right >= 0 ? d(last, right) - d(left, right) : 0);
+
+                    if (added - removed < bestDelta && canMove(i, j, k)) {
+                        bestDelta = added - removed;
+                        bestAfter = k;
+                    }
+                }
+
+                if (bestAfter >= 0) {
+                    move(i, j, bestAfter);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    // nothing the segment needs may come after the new place, nothing that needs
+    // the segment may come before it
+    private boolean canMove(int i, int j, int after) {
+        if (after < i) {
+            for (int k = i; k <= j; k++) {
+                int required = before[route[k]];
+                if (required >= 0 && position[required] > after && position[required] < i) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        for (int k = j + 1; k <= after; k++) {
+            int required = before[route[k]];
+            if (required >= 0 && position[required] >= i && position[required] <= j) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void reverse(int i, int j) {
+        while (i < j) {
+            int tmp = route[i];
+            route[i] = route[j];
+            route[j] = tmp;
+            position[route[i]] = i;
+            position[route[j]] = j;
+            i++;
+            j--;
+        }
+    }
+
+    private void move(int i, int j, int after) {
+        int len = j - i + 1;
+        int[] segment = Arrays.copyOfRange(route, i, j + 1);
+
+        if (after < i) {
+            System.arraycopy(route, after + 1, route, after + 1 + len, i - after - 1);
+            System.arraycopy(segment, 0, route, after + 1, len);
+        } else {
+            System.arraycopy(route, j + 1, route, i, after - j);
+            System.arraycopy(segment, 0, route, after - len + 1, len);
+        }
+        updatePositions();
+    }
+
+    private void updatePositions() {
+        for (int i = 0; i < n; i++) {
+            position[route[i]] = i;
+        }
+    }
+
+    private double d(int from, int to) {
+        return dist[from * n + to];
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.example.parcel_delivery.models.assignment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Routing on the lanes the Loader seeds, with the default parcels-per-trip and
+ * hub handling of StorageNetworkServiceImpl.
+ */
+class StorageNetworkTests {
+
+    private final StorageNetwork network = seededNetwork();
+
+    @Test
+    void theSeededLanesGoBothWays() {
+        assertEquals(14, network.laneCount());
+    }
+
+    @Test
+    void aSingleParcelTakesTheCheapestDetour() {
+        // Espoo - Vantaa - Tampere (207) beats Espoo - Helsinki - Tampere (220)
+        assertEquals(Map.of("Vantaa", 1), network.route("Espoo", "Tampere", 1));
+        // the direct lane (620) beats going through Tampere (690)
+        assertEquals(Map.of("Oulu", 1), seededNetwork().route("Helsinki", "Oulu", 1));
+        // but with a trip running Vantaa - Tampere, Helsinki - Vantaa - Tampere - Oulu
+        // is 28 + 10 + 500
+        assertEquals(Map.of("Vantaa", 1), network.route("Helsinki", "Oulu", 1));
+    }
+
+    @Test
+    void aFullLaneSplitsTheParcels() {
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("Oulu", 100);
+        expected.put("Tampere", 50);
+
+        assertEquals(expected, network.route("Helsinki", "Oulu", 150));
+    }
+
+    @Test
+    void parcelsWithoutRoomAreCountedUnderNull() {
+        // 100 on the direct lane and 200 through Tampere reach Oulu
+        Map<String, Integer> byNextHop = network.route("Helsinki", "Oulu", 400);
+
+        assertEquals(100, byNextHop.get(null));
+        assertEquals(400, byNextHop.values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void aParcelRidesAlongATripAlreadyRunning() {
+        network.preload("Helsinki", "Tampere", 3);
+
+        assertEquals(Map.of("Helsinki", 1), network.route("Espoo", "Tampere", 1));
+    }
+
+    @Test
+    void unknownOrSameStoragesAreNotRouted() {
+        Map<String, Integer> notRouted = new LinkedHashMap<>();
+        notRouted.put(null, 3);
+
+        assertEquals(notRouted, network.route("Helsinki", "Turku", 3));
+        assertEquals(notRouted, network.route("Oulu", "Oulu", 3));
+    }
+
+    private static StorageNetwork seededNetwork() {
+        StorageNetwork network = new StorageNetwork(5, 10);
+        List<Object[]> roads = List.of(
+                new Object[] { "Helsinki", "Espoo", 20.0, 400 },
+                new Object[] { "Helsinki", "Vantaa", 18.0, 400 },
+                new Object[] { "Espoo", "Vantaa", 22.0, 200 },
+                new Object[] { "Helsinki", "Tampere", 180.0, 300 },
+                new Object[] { "Vantaa", "Tampere", 165.0, 150 },
+                new Object[] { "Tampere", "Oulu", 490.0, 200 },
+                new Object[] { "Helsinki", "Oulu", 610.0, 100 });
+        for (Object[] road : roads) {
+            network.addLane((String) road[0], (String) road[1], (Double) road[2], (Integer) road[3]);
+            network.addLane((String) road[1], (String) road[0], (Double) road[2], (Integer) road[3]);
+        }
+        return network;
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.example.parcel_delivery.models.enums;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class CabinetSizeTests {
+
+    private static final String SHORT_SIDE = "LEAST(width, height, depth)";
+    private static final String LONG_SIDE = "GREATEST(width, height, depth)";
+    private static final String MIDDLE_SIDE = "(width + height + depth - " + SHORT_SIDE + " - " + LONG_SIDE + ")";
+
+    private static final Pattern WHEN = Pattern.compile(" WHEN " + Pattern.quote(SHORT_SIDE) + " >= ([0-9.]+)"
+            + " AND " + Pattern.quote(MIDDLE_SIDE) + " >= ([0-9.]+)"
+            + " AND " + Pattern.quote(LONG_SIDE) + " >= ([0-9.]+) THEN ([0-9]+)");
+
+    @Test
+    void aParcelFitsInAnyRotation() {
+        assertEquals(CabinetSize.SMALL, CabinetSize.ofParcel(50, 10, 35));
+        assertEquals(CabinetSize.SMALL, CabinetSize.ofParcel(35, 50, 10));
+        assertEquals(CabinetSize.MEDIUM, CabinetSize.ofParcel(11, 35, 50));
+        assertEquals(CabinetSize.LARGE, CabinetSize.ofParcel(50, 50, 26));
+        assertNull(CabinetSize.ofParcel(50, 50, 51));
+    }
+
+    @Test
+    void aCabinetIsTheLargestClassItHolds() {
+        assertEquals(CabinetSize.LARGE, CabinetSize.ofCabinet(50, 50, 50));
+        assertEquals(CabinetSize.MEDIUM, CabinetSize.ofCabinet(60, 40, 25));
+        assertEquals(CabinetSize.MEDIUM, CabinetSize.ofCabinet(50, 49, 60));
+        assertEquals(CabinetSize.SMALL, CabinetSize.ofCabinet(24, 100, 100));
+        // below every class still counts as small
+        assertEquals(CabinetSize.SMALL, CabinetSize.ofCabinet(5, 5, 5));
+    }
+
+    @Test
+    void everyParcelFitsTheCabinetsOfItsClass() {
+        Random random = new Random(9);
+        for (int i = 0; i < 10_000; i++) {
+            double[] parcel = { 1 + random.nextInt(60), 1 + random.nextInt(60), 1 + random.nextInt(60) };
+            double[] cabinet = { 1 + random.nextInt(70), 1 + random.nextInt(70), 1 + random.nextInt(70) };
+
+            CabinetSize parcelSize = CabinetSize.ofParcel(parcel[0], parcel[1], parcel[2]);
+            CabinetSize cabinetSize = CabinetSize.ofCabinet(cabinet[0], cabinet[1], cabinet[2]);
+            // a cabinet below the small box is still classed small, the claim checks its sides
+            if (parcelSize == null || cabinetSize.compareTo(parcelSize) < 0 || !holds(cabinet, cabinetSize)) {
+                continue;
+            }
+            double[] p = CabinetSize.sortedSides(parcel[0], parcel[1], parcel[2]);
+            double[] c = CabinetSize.sortedSides(cabinet[0], cabinet[1], cabinet[2]);
+            assertTrue(p[0] <= c[0] && p[1] <= c[1] && p[2] <= c[2]);
+        }
+    }
+
+    @Test
+    void theSqlClassifiesLikeOfCabinet() {
+        String sql = CabinetSize.sqlOfCabinet();
+        assertTrue(sql.startsWith("CASE") && sql.endsWith(" ELSE 0 END"));
+
+        Matcher when = WHEN.matcher(sql);
+        int clauses = 0;
+        while (when.find()) {
+            int ordinal = Integer.parseInt(when.group(4));
+            CabinetSize size = CabinetSize.values()[ordinal];
+            assertEquals(size.getShortSide(), Double.parseDouble(when.group(1)));
+            assertEquals(size.getMiddleSide(), Double.parseDouble(when.group(2)));
+            assertEquals(size.getLongSide(), Double.parseDouble(when.group(3)));
+            // largest class first, as ofCabinet
+            assertEquals(CabinetSize.values().length - 1 - clauses, ordinal);
+            clauses++;
+        }
+        assertEquals(CabinetSize.values().length - 1, clauses);
+
+        Random random = new Random(13);
+        for (int i = 0; i < 10_000; i++) {
+            double width = 1 + random.nextInt(70);
+            double height = 1 + random.nextInt(70);
+            double depth = 1 + random.nextInt(70);
+            assertEquals(CabinetSize.ofCabinet(width, height, depth).ordinal(),
+                    evaluate(sql, width, height, depth));
+        }
+    }
+
+    private static boolean holds(double[] cabinet, CabinetSize size) {
+        double[] sides = CabinetSize.sortedSides(cabinet[0], cabinet[1], cabinet[2]);
+        return sides[0] >= size.getShortSide() && sides[1] >= size.getMiddleSide()
+                && sides[2] >= size.getLongSide();
+    }
+
+    // what the database does with the CASE expression of sqlOfCabinet
+    private static int evaluate(String sql, double width, double height, double depth) {
+        double shortSide = Math.min(width, Math.min(height, depth));
+        double longSide = Math.max(width, Math.max(height, depth));
+        double middleSide = width + height + depth - shortSide - longSide;
+
+        Matcher when = WHEN.matcher(sql);
+        while (when.find()) {
+            if (shortSide >= Double.parseDouble(when.group(1)) && middleSide >= Double.parseDouble(when.group(2))
+                    && longSide >= Double.parseDouble(when.group(3))) {
+                return Integer.parseInt(when.group(4));
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.example.parcel_delivery.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The cabinet claims of CabinetRepo run by many threads at once against a real
+ * PostGIS: with FOR UPDATE SKIP LOCKED no cabinet may be handed out twice.
+ * Skipped when there is no docker.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CabinetClaimConcurrencyTests {
+
+    private static final int THREADS = 16;
+
+    private static final int LOCKERS = 2;
+
+    private static final int CABINETS_PER_LOCKER = 200;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            DockerImageName.parse("postgis/postgis:16-3.4").asCompatibleSubstituteFor("postgres"));
+
+    private static HikariDataSource dataSource;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgres.getJdbcUrl());
+        config.setUsername(postgres.getUsername());
+        config.setPassword(postgres.getPassword());
+        config.setMaximumPoolSize(THREADS);
+        dataSource = new HikariDataSource(config);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+
+        jdbcTemplate.execute("CREATE TABLE cabinets (id bigserial PRIMARY KEY, status varchar(255) NOT NULL, "
+                + "parcel_locker_id bigint, width float8 NOT NULL, height float8 NOT NULL, depth float8 NOT NULL, "
+                + "size_class smallint, held_for_parcel_id bigint, hold_expires_at timestamp)");
+        jdbcTemplate.execute("CREATE INDEX ON cabinets (parcel_locker_id, status, size_class, id)");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        dataSource.close();
+    }
+
+    @BeforeEach
+    void fillLockers() {
+        jdbcTemplate.execute("TRUNCATE cabinets RESTART IDENTITY");
+        jdbcTemplate.update("INSERT INTO cabinets (status, parcel_locker_id, width, height, depth, size_class) "
+                + "SELECT 'FREE', locker, 50, 50, 50, 2 FROM generate_series(1, ?) locker, generate_series(1, ?)",
+                LOCKERS, CABINETS_PER_LOCKER);
+    }
+
+    @Test
+    void claimCabinetNeverHandsOutACabinetTwice() throws Exception {
+        List<Long> claimed = runConcurrently(thread -> {
+            List<Long> ids = new ArrayList<>();
+            // every thread claims until the lockers are empty
+            for (long lockerId = thread % LOCKERS + 1;; lockerId = lockerId % LOCKERS + 1) {
+                Long id = claimFrom(lockerId);
+                if (id == null) {
+                    id = claimFrom(lockerId % LOCKERS + 1);
+                }
+                if (id == null) {
+                    return ids;
+                }
+                ids.add(id);
+            }
+        });
+
+        assertEquals(LOCKERS * CABINETS_PER_LOCKER, claimed.size());
+        assertEquals(claimed.size(), new HashSet<>(claimed).size(), "a cabinet was claimed twice");
+        assertEquals(claimed.size(), occupiedCabinets());
+    }
+
+    @Test
+    void claimCabinetByIdHasOneWinner() throws Exception {
+        List<Long> claimed = runConcurrently(thread -> {
+            List<Map<String, Object>> rows = namedJdbcTemplate.queryForList(CabinetRepo.CLAIM_CABINET_BY_ID_SQL,
+                    claimParameters().addValue("cabinetId", 1L));
+            return rows.stream().map(row -> ((Number) row.get("id")).longValue()).toList();
+        });
+
+        assertEquals(List.of(1L), claimed);
+        assertEquals(1, occupiedCabinets());
+    }
+
+    private Long claimFrom(long lockerId) {
+        List<Map<String, Object>> rows = namedJdbcTemplate.queryForList(CabinetRepo.CLAIM_CABINET_SQL,
+                claimParameters().addValue("lockerId", lockerId).addValue("minSize", 0));
+        return rows.isEmpty() ? null : ((Number) rows.get(0).get("id")).longValue();
+    }
+
+    private static MapSqlParameterSource claimParameters() {
+        return new MapSqlParameterSource()
+                .addValue("fromStatus", "FREE")
+                .addValue("toStatus", "OCCUPIED")
+                .addValue("shortSide", 10.0)
+                .addValue("middleSide", 10.0)
+                .addValue("longSide", 10.0)
+                .addValue("holdExpiresAt", LocalDateTime.now());
+    }
+
+    private long occupiedCabinets() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM cabinets WHERE status = 'OCCUPIED'", Long.class);
+    }
+
+    // all threads start together, the claims of all of them are returned
+    private static List<Long> runConcurrently(ThreadClaims claims) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<Long>>> runs = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                Callable<List<Long>> run = () -> {
+                    start.await();
+                    return claims.claim(thread);
+                };
+                runs.add(executor.submit(run));
+            }
+            start.countDown();
+
+            List<Long> claimed = new ArrayList<>();
+            for (Future<List<Long>> run : runs) {
+                claimed.addAll(run.get());
+            }
+            return claimed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadClaims {
+        List<Long> claim(int thread) throws Exception;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.example.parcel_delivery.services.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.parcel_delivery.models.assignment.VehicleLoad;
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.enums.DriverType;
+import com.example.parcel_delivery.models.enums.ServiceLevel;
+
+class BinPackingAssignmentStrategyTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    private final BinPackingAssignmentStrategy strategy = new BinPackingAssignmentStrategy();
+
+    @Test
+    void agedParcelShipsBeforeAFresherBiggerOne() {
+        Driver driver = van(1_000_000, 100);
+        Parcel aged = parcel(1, 80, ServiceLevel.STANDARD, NOW.minusDays(3));
+        Parcel fresh = parcel(2, 90, ServiceLevel.STANDARD, NOW);
+        List<Parcel> pending = new ArrayList<>(List.of(fresh, aged));
+
+        List<Parcel> load = strategy.nextLoad(driver, new VehicleLoad(), pending, 4);
+
+        assertEquals(List.of(aged), load);
+        assertEquals(List.of(fresh), pending);
+    }
+
+    @Test
+    void expressGoesFirstAndSmallerParcelsFillTheRest() {
+        Driver driver = van(1_000_000, 100);
+        Parcel standard = parcel(1, 80, ServiceLevel.STANDARD, NOW.minusDays(3));
+        Parcel express = parcel(2, 90, ServiceLevel.EXPRESS, NOW);
+        Parcel small = parcel(3, 40, ServiceLevel.STANDARD, NOW);
+        List<Parcel> pending = new ArrayList<>(List.of(standard, small, express));
+
+        List<Parcel> load = strategy.nextLoad(driver, new VehicleLoad(), pending, 4);
+
+        assertEquals(List.of(express, small), load);
+        assertEquals(List.of(standard), pending);
+    }
+
+    @Test
+    void volumeOnlyBreaksTiesBetweenEquallyUrgentParcels() {
+        Driver driver = van(1_000_000, 100);
+        Parcel smaller = parcel(1, 70, ServiceLevel.STANDARD, NOW);
+        Parcel bigger = parcel(2, 90, ServiceLevel.STANDARD, NOW);
+        List<Parcel> pending = new ArrayList<>(List.of(smaller, bigger));
+
+        assertEquals(List.of(bigger), strategy.nextLoad(driver, new VehicleLoad(), pending, 4));
+    }
+
+    @Test
+    void massAndWhatIsAlreadyLoadedCount() {
+        Driver driver = van(1_000_000, 10);
+        Parcel heavy = parcel(1, 10, ServiceLevel.STANDARD, NOW.minusDays(1));
+        heavy.setMass(9.0);
+        Parcel light = parcel(2, 10, ServiceLevel.STANDARD, NOW);
+        light.setMass(2.0);
+        List<Parcel> pending = new ArrayList<>(List.of(heavy, light));
+
+        List<Parcel> load = strategy.nextLoad(driver, new VehicleLoad(1, 0, 3.0), pending, 4);
+
+        assertEquals(List.of(light), load);
+        assertFalse(strategy.isLoaded(driver, 0, new VehicleLoad(), 4));
+        assertTrue(strategy.isLoaded(driver, 1, new VehicleLoad(1, 1000, 2.0), 4));
+    }
+
+    @Test
+    void driversWithoutVehicleGetTheDefaultCapacityOfTheirType() {
+        Driver intra = new Driver();
+        intra.setDriverType(DriverType.INTRA_CITY);
+        Driver inter = new Driver();
+        inter.setDriverType(DriverType.INTER_CITY);
+
+        assertEquals(BinPackingAssignmentStrategy.DEFAULT_INTRA_CITY_VOLUME,
+                BinPackingAssignmentStrategy.volumeCapacityOf(intra));
+        assertEquals(BinPackingAssignmentStrategy.DEFAULT_INTRA_CITY_MASS,
+                BinPackingAssignmentStrategy.massCapacityOf(intra));
+        assertEquals(BinPackingAssignmentStrategy.DEFAULT_INTER_CITY_VOLUME,
+                BinPackingAssignmentStrategy.volumeCapacityOf(inter));
+        assertEquals(BinPackingAssignmentStrategy.DEFAULT_INTER_CITY_MASS,
+                BinPackingAssignmentStrategy.massCapacityOf(inter));
+        assertEquals(1_000_000, BinPackingAssignmentStrategy.volumeCapacityOf(van(1_000_000, 100)));
+    }
+
+    @Test
+    void aFullVanLeavesEverythingPending() {
+        Driver driver = van(1_000_000, 100);
+        Parcel parcel = parcel(1, 10, ServiceLevel.STANDARD, NOW);
+        List<Parcel> pending = new ArrayList<>(List.of(parcel));
+
+        assertTrue(strategy.nextLoad(driver, new VehicleLoad(10, 1_000_000, 50.0), pending, 4).isEmpty());
+        assertEquals(List.of(parcel), pending);
+    }
+
+    private static Driver van(double volume, double mass) {
+        Driver driver = new Driver();
+        driver.setDriverType(DriverType.INTRA_CITY);
+        driver.setVehicleVolumeCapacity(volume);
+        driver.setVehicleMassCapacity(mass);
+        return driver;
+    }
+
+    // a cube of side x side x side cm, 1 kg
+    private static Parcel parcel(long id, double side, ServiceLevel serviceLevel, LocalDateTime statusUpdatedAt) {
+        Parcel parcel = new Parcel();
+        parcel.setId(id);
+        parcel.setWidth(side);
+        parcel.setHeight(side);
+        parcel.setDepth(side);
+        parcel.setMass(1.0);
+        parcel.setServiceLevel(serviceLevel);
+        parcel.setStatusUpdatedAt(statusUpdatedAt);
+        return parcel;
+    }
+
+}
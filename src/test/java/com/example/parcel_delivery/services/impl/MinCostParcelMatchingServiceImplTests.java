@@ -0,0 +1,108 @@
+package com.example.parcel_delivery.services.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import com.example.parcel_delivery.models.entities.Driver;
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.entities.ParcelLocker;
+import com.example.parcel_delivery.models.entities.User;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+
+class MinCostParcelMatchingServiceImplTests {
+
+    private static final GeometryFactory GEOMETRY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private final MinCostParcelMatchingServiceImpl matching = new MinCostParcelMatchingServiceImpl();
+
+    @Test
+    void driversWithoutHomeStillTakeEveryFreeSlot() {
+        // more drivers than candidates per parcel, all tie without a home
+        List<Driver> drivers = new ArrayList<>();
+        for (int d = 0; d < 40; d++) {
+            drivers.add(driver(d, null));
+        }
+        List<Parcel> pending = new ArrayList<>();
+        for (int p = 0; p < 200; p++) {
+            pending.add(parcel(p, point(60.17, 24.94)));
+        }
+        int[] freeSlots = new int[drivers.size()];
+        Arrays.fill(freeSlots, 4);
+
+        List<List<Parcel>> matched = matching.matchToDrivers(drivers, freeSlots, pending);
+
+        assertEquals(160, matched.stream().mapToInt(List::size).sum());
+        assertTrue(matched.stream().allMatch(load -> load.size() == 4));
+        assertEquals(40, pending.size());
+    }
+
+    @Test
+    void everyParcelGoesToItsNearestDriverWhenSlotsAllow() {
+        List<Driver> drivers = List.of(driver(0, point(60.0, 24.0)), driver(1, point(61.0, 25.0)));
+        Parcel nearFirst = parcel(0, point(60.01, 24.01));
+        Parcel nearSecond = parcel(1, point(61.01, 25.01));
+        List<Parcel> pending = new ArrayList<>(List.of(nearSecond, nearFirst));
+
+        List<List<Parcel>> matched = matching.matchToDrivers(drivers, new int[] { 1, 1 }, pending);
+
+        assertEquals(List.of(nearFirst), matched.get(0));
+        assertEquals(List.of(nearSecond), matched.get(1));
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    void parcelsBeyondTheNearestCandidatesAreStillMatched() {
+        // 17 drivers of one slot, every parcel only links to the 16 nearest at first
+        List<Driver> drivers = new ArrayList<>();
+        for (int d = 0; d <= 16; d++) {
+            drivers.add(driver(d, point(60.0 + d * 0.01, 24.0)));
+        }
+        int[] freeSlots = new int[drivers.size()];
+        Arrays.fill(freeSlots, 1);
+
+        List<Parcel> pending = new ArrayList<>();
+        for (int p = 0; p < 17; p++) {
+            pending.add(parcel(p, point(60.0, 24.0)));
+        }
+
+        List<List<Parcel>> matched = matching.matchToDrivers(drivers, freeSlots, pending);
+
+        assertTrue(matched.stream().allMatch(load -> load.size() == 1));
+        assertTrue(pending.isEmpty());
+        assertEquals(1, freeSlots[16], "the slots of the caller are left alone");
+    }
+
+    private static Driver driver(long id, Point home) {
+        User user = new User();
+        user.setUserPoint(home);
+        Driver driver = new Driver();
+        driver.setId(id);
+        driver.setUser(user);
+        return driver;
+    }
+
+    private static Parcel parcel(long id, Point locker) {
+        ParcelLocker parcelLocker = new ParcelLocker();
+        parcelLocker.setGeoLocation(locker);
+        Parcel parcel = new Parcel();
+        parcel.setId(id);
+        parcel.setStatus(ParcelStatus.AWAITING_INTRA_CITY_PICKUP);
+        parcel.setSelectedLockerLocation(parcelLocker);
+        return parcel;
+    }
+
+    private static Point point(double lat, double lon) {
+        return GEOMETRY.createPoint(new Coordinate(lon, lat));
+    }
+
+}
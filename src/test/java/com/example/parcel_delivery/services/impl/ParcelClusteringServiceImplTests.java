@@ -0,0 +1,130 @@
+package com.example.parcel_delivery.services.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.parcel_delivery.models.entities.Parcel;
+import com.example.parcel_delivery.models.entities.ParcelLocker;
+import com.example.parcel_delivery.models.enums.ParcelStatus;
+
+class ParcelClusteringServiceImplTests {
+
+    private static final GeometryFactory GEOMETRY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private final ParcelClusteringServiceImpl clustering = new ParcelClusteringServiceImpl();
+
+    @BeforeEach
+    void sweep() {
+        ReflectionTestUtils.setField(clustering, "clustering", "sweep");
+    }
+
+    @Test
+    void parcelsOfOneAreaComeOneAfterTheOther() {
+        // three areas around Helsinki, given interleaved
+        List<Parcel> north = new ArrayList<>();
+        List<Parcel> east = new ArrayList<>();
+        List<Parcel> west = new ArrayList<>();
+        List<Parcel> parcels = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            north.add(parcel(60.30 + i * 0.001, 24.94));
+            east.add(parcel(60.17, 25.10 + i * 0.001));
+            // around the latitude of the centre (60.236), where the angles jump from
+            // pi to -pi
+            west.add(parcel(60.236 + (i - 2) * 0.001, 24.70));
+            parcels.add(north.get(i));
+            parcels.add(east.get(i));
+            parcels.add(west.get(i));
+        }
+
+        List<Parcel> ordered = clustering.orderForIntraDrivers(parcels);
+
+        assertEquals(new HashSet<>(parcels), new HashSet<>(ordered));
+        assertContiguous(ordered, north);
+        assertContiguous(ordered, east);
+        assertContiguous(ordered, west);
+    }
+
+    @Test
+    void theSweepStartsAfterTheWidestEmptySector() {
+        // a half circle: the empty half is the widest gap, so the sweep runs from
+        // one end of the arc to the other
+        List<Parcel> arc = new ArrayList<>();
+        for (int i = 0; i <= 8; i++) {
+            double angle = Math.PI / 8 * i;
+            arc.add(parcel(60.17 + 0.05 * Math.sin(angle), 24.94 + 0.1 * Math.cos(angle)));
+        }
+        List<Parcel> shuffled = new ArrayList<>(arc);
+        Collections.shuffle(shuffled, new Random(1));
+
+        List<Parcel> ordered = clustering.orderForIntraDrivers(shuffled);
+
+        assertTrue(ordered.equals(arc) || ordered.equals(reversed(arc)));
+    }
+
+    @Test
+    void parcelsWithoutLocationGoLastInTheirOrder() {
+        Parcel first = parcel(60.17, 24.94);
+        Parcel second = parcel(60.18, 24.95);
+        Parcel unlocatedA = new Parcel();
+        unlocatedA.setStatus(ParcelStatus.AWAITING_INTRA_CITY_PICKUP);
+        Parcel unlocatedB = new Parcel();
+        unlocatedB.setStatus(ParcelStatus.AWAITING_INTRA_CITY_PICKUP);
+
+        List<Parcel> ordered = clustering.orderForIntraDrivers(List.of(unlocatedA, first, unlocatedB, second));
+
+        assertEquals(List.of(unlocatedA, unlocatedB), ordered.subList(2, 4));
+    }
+
+    @Test
+    void noneKeepsTheOrder() {
+        ReflectionTestUtils.setField(clustering, "clustering", "none");
+        List<Parcel> parcels = List.of(parcel(60.30, 24.94), parcel(60.17, 25.10), parcel(60.30, 24.95));
+
+        assertEquals(parcels, clustering.orderForIntraDrivers(parcels));
+    }
+
+    private static void assertContiguous(List<Parcel> ordered, List<Parcel> area) {
+        Set<Integer> positions = new HashSet<>();
+        for (Parcel parcel : area) {
+            positions.add(ordered.indexOf(parcel));
+        }
+        int first = positions.stream().min(Integer::compare).orElseThrow();
+        int last = positions.stream().max(Integer::compare).orElseThrow();
+        assertEquals(area.size() - 1, last - first, "the area is cut in two: " + positions);
+    }
+
+    private static List<Parcel> reversed(List<Parcel> parcels) {
+        List<Parcel> reversed = new ArrayList<>(parcels);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+
+    private static Parcel parcel(double lat, double lon) {
+        ParcelLocker locker = new ParcelLocker();
+        locker.setGeoLocation(point(lat, lon));
+        Parcel parcel = new Parcel();
+        parcel.setStatus(ParcelStatus.AWAITING_INTRA_CITY_PICKUP);
+        parcel.setSelectedLockerLocation(locker);
+        return parcel;
+    }
+
+    private static Point point(double lat, double lon) {
+        return GEOMETRY.createPoint(new Coordinate(lon, lat));
+    }
+
+}
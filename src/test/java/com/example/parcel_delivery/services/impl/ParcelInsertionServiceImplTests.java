@@ -0,0 +1,155 @@
+package com.example.parcel_delivery.services.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.parcel_delivery.repositories.ParcelAssignmentJdbcRepo;
+import com.example.parcel_delivery.services.ParcelService;
+import com.example.parcel_delivery.utils.GeoUtils;
+
+class ParcelInsertionServiceImplTests {
+
+    private static final GeometryFactory GEOMETRY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    @Test
+    void cheapestInsertionMatchesTryingEveryPair() {
+        Random random = new Random(17);
+        for (int round = 0; round < 2000; round++) {
+            Point start = round % 4 == 0 ? null : randomPoint(random);
+            List<Point> stops = new ArrayList<>();
+            int n = random.nextInt(9);
+            for (int i = 0; i < n; i++) {
+                stops.add(randomPoint(random));
+            }
+            Point pickup = randomPoint(random);
+            Point delivery = randomPoint(random);
+
+            assertEquals(bruteForceKm(start, stops, pickup, delivery),
+                    ParcelInsertionServiceImpl.insertionCostKm(start, stops, pickup, delivery), 1e-9);
+        }
+    }
+
+    @Test
+    void aSingleStopTakesItsCheapestPlace() {
+        Random random = new Random(19);
+        for (int round = 0; round < 500; round++) {
+            Point start = randomPoint(random);
+            List<Point> stops = new ArrayList<>();
+            for (int i = random.nextInt(6); i > 0; i--) {
+                stops.add(randomPoint(random));
+            }
+            Point stop = randomPoint(random);
+
+            double expected = bruteForceSingleKm(start, stops, stop);
+            assertEquals(expected, ParcelInsertionServiceImpl.insertionCostKm(start, stops, stop, null), 1e-9);
+            assertEquals(expected, ParcelInsertionServiceImpl.insertionCostKm(start, stops, null, stop), 1e-9);
+        }
+        assertEquals(0, ParcelInsertionServiceImpl.insertionCostKm(null, List.of(), null, null));
+    }
+
+    @Test
+    void aBusyCityIsTriedAgainBeforeGivingUp() {
+        ParcelAssignmentJdbcRepo repo = mock(ParcelAssignmentJdbcRepo.class);
+        ParcelService parcelService = mock(ParcelService.class);
+        ParcelInsertionServiceImpl insertion = insertionService(repo, parcelService);
+        when(repo.tryLockCity("Helsinki")).thenReturn(false, false, true);
+
+        assertFalse(insertion.tryInsert(1L, "Helsinki"));
+
+        verify(repo, times(3)).tryLockCity("Helsinki");
+        verify(parcelService).findParcelsForDriverAssignment(anyList());
+    }
+
+    @Test
+    void aCityThatStaysBusyLeavesTheParcelToTheQueue() {
+        ParcelAssignmentJdbcRepo repo = mock(ParcelAssignmentJdbcRepo.class);
+        ParcelService parcelService = mock(ParcelService.class);
+        ParcelInsertionServiceImpl insertion = insertionService(repo, parcelService);
+        when(repo.tryLockCity("Helsinki")).thenReturn(false);
+
+        assertFalse(insertion.tryInsert(1L, "Helsinki"));
+
+        verify(repo, times(4)).tryLockCity("Helsinki");
+        verify(parcelService, never()).findParcelsForDriverAssignment(anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ParcelInsertionServiceImpl insertionService(ParcelAssignmentJdbcRepo repo,
+            ParcelService parcelService) {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+
+        ParcelInsertionServiceImpl insertion = new ParcelInsertionServiceImpl();
+        ReflectionTestUtils.setField(insertion, "parcelAssignmentJdbcRepo", repo);
+        ReflectionTestUtils.setField(insertion, "parcelService", parcelService);
+        ReflectionTestUtils.setField(insertion, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(insertion, "enabled", true);
+        ReflectionTestUtils.setField(insertion, "lockRetries", 3);
+        ReflectionTestUtils.setField(insertion, "lockRetryDelayMs", 1L);
+        return insertion;
+    }
+
+    // every pickup position, every delivery position after it
+    private static double bruteForceKm(Point start, List<Point> stops, Point pickup, Point delivery) {
+        double before = lengthKm(start, stops);
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i <= stops.size(); i++) {
+            for (int j = i + 1; j <= stops.size() + 1; j++) {
+                List<Point> route = new ArrayList<>(stops);
+                route.add(i, pickup);
+                route.add(j, delivery);
+                best = Math.min(best, lengthKm(start, route) - before);
+            }
+        }
+        return best;
+    }
+
+    private static double bruteForceSingleKm(Point start, List<Point> stops, Point stop) {
+        double before = lengthKm(start, stops);
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i <= stops.size(); i++) {
+            List<Point> route = new ArrayList<>(stops);
+            route.add(i, stop);
+            best = Math.min(best, lengthKm(start, route) - before);
+        }
+        return best;
+    }
+
+    private static double lengthKm(Point start, List<Point> route) {
+        double km = 0;
+        Point previous = start;
+        for (Point point : route) {
+            if (previous != null) {
+                km += GeoUtils.haversineKm(previous, point);
+            }
+            previous = point;
+        }
+        return km;
+    }
+
+    private static Point randomPoint(Random random) {
+        return GEOMETRY.createPoint(new Coordinate(24.8 + random.nextDouble() * 0.3, 60.1 + random.nextDouble() * 0.2));
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.example.parcel_delivery.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DistanceMatrixTests {
+
+    @Test
+    void distancesAreTheHaversineTimesTheRoadFactor() {
+        DistanceMatrix matrix = new DistanceMatrix(1.3);
+        int helsinki = matrix.add(1, 60.1699, 24.9384);
+        int tampere = matrix.add(2, 61.4978, 23.7610);
+
+        double km = 1.3 * GeoUtils.haversineKm(60.1699, 24.9384, 61.4978, 23.7610);
+        assertEquals(km, matrix.km(helsinki, tampere), 1e-3);
+        assertEquals(matrix.km(helsinki, tampere), matrix.km(tampere, helsinki));
+        assertEquals(0, matrix.km(tampere, tampere));
+    }
+
+    @Test
+    void growingKeepsEveryDistanceAndIndex() {
+        Random random = new Random(5);
+        int sites = 300;
+        long[] ids = new long[sites];
+        double[] lat = new double[sites];
+        double[] lon = new double[sites];
+
+        // sized for 2 sites, so the arrays grow many times
+        DistanceMatrix matrix = new DistanceMatrix(1, 2);
+        for (int i = 0; i < sites; i++) {
+            ids[i] = random.nextLong();
+            lat[i] = 60 + random.nextDouble();
+            lon[i] = 24 + random.nextDouble();
+            assertEquals(i, matrix.add(ids[i], lat[i], lon[i]));
+        }
+
+        assertEquals(sites, matrix.size());
+        for (int i = 0; i < sites; i++) {
+            assertEquals(i, matrix.indexOf(ids[i]));
+            for (int j = 0; j < sites; j++) {
+                double km = i == j ? 0 : GeoUtils.haversineKm(lat[i], lon[i], lat[j], lon[j]);
+                assertEquals(km, matrix.km(i, j), 1e-3);
+            }
+        }
+    }
+
+    @Test
+    void addingAKnownSiteReturnsItsIndex() {
+        DistanceMatrix matrix = new DistanceMatrix(1);
+        matrix.add(10, 60, 24);
+        matrix.add(20, 61, 25);
+
+        assertEquals(0, matrix.add(10, 65, 25));
+        assertEquals(2, matrix.size());
+        assertEquals(-1, matrix.indexOf(30));
+    }
+
+}
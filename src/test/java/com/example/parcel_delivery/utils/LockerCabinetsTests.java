@@ -0,0 +1,150 @@
+package com.example.parcel_delivery.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.parcel_delivery.models.enums.CabinetSize;
+import com.example.parcel_delivery.models.enums.CabinetStatus;
+
+class LockerCabinetsTests {
+
+    @Test
+    void picksTheSmallestFreeClassThatFits() {
+        // ids 10, 20, 30: small occupied, medium free, large free
+        LockerCabinets cabinets = locker(new long[] { 10, 20, 30 },
+                new CabinetSize[] { CabinetSize.SMALL, CabinetSize.MEDIUM, CabinetSize.LARGE },
+                new CabinetStatus[] { CabinetStatus.OCCUPIED, CabinetStatus.FREE, CabinetStatus.FREE });
+
+        assertEquals(20, cabinets.pickFree(CabinetSize.SMALL));
+        assertEquals(20, cabinets.pickFree(CabinetSize.MEDIUM));
+        assertEquals(30, cabinets.pickFree(CabinetSize.LARGE));
+
+        assertTrue(cabinets.set(30, CabinetStatus.RESERVED));
+        assertEquals(-1, cabinets.pickFree(CabinetSize.LARGE));
+        assertEquals(1, cabinets.freeCount());
+    }
+
+    @Test
+    void picksGoRoundTheCabinetsOfAClass() {
+        LockerCabinets cabinets = locker(new long[] { 1, 2, 3 },
+                new CabinetSize[] { CabinetSize.SMALL, CabinetSize.SMALL, CabinetSize.SMALL },
+                new CabinetStatus[] { CabinetStatus.FREE, CabinetStatus.FREE, CabinetStatus.FREE });
+
+        assertEquals(1, cabinets.pickFree(CabinetSize.SMALL));
+        assertEquals(2, cabinets.pickFree(CabinetSize.SMALL));
+        assertEquals(3, cabinets.pickFree(CabinetSize.SMALL));
+        assertEquals(1, cabinets.pickFree(CabinetSize.SMALL));
+
+        cabinets.set(2, CabinetStatus.OCCUPIED);
+        assertEquals(3, cabinets.pickFree(CabinetSize.SMALL));
+        assertEquals(1, cabinets.pickFree(CabinetSize.SMALL));
+    }
+
+    @Test
+    void cabinetsBeyondTheFirstWordAreFound() {
+        int size = 130;
+        long[] ids = new long[size];
+        CabinetSize[] sizes = new CabinetSize[size];
+        CabinetStatus[] statuses = new CabinetStatus[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = 1000 + i;
+            sizes[i] = CabinetSize.MEDIUM;
+            statuses[i] = i == 100 || i == 129 ? CabinetStatus.FREE : CabinetStatus.OCCUPIED;
+        }
+        LockerCabinets cabinets = new LockerCabinets(ids, sizes, statuses, size);
+
+        assertEquals(1100, cabinets.pickFree(CabinetSize.SMALL));
+        assertEquals(1129, cabinets.pickFree(CabinetSize.SMALL));
+        // the cursor passed the end, the next pick starts over
+        assertEquals(1100, cabinets.pickFree(CabinetSize.SMALL));
+
+        cabinets.set(1100, CabinetStatus.OCCUPIED);
+        cabinets.set(1129, CabinetStatus.OUT_OF_SERVICE);
+        assertEquals(-1, cabinets.pickFree(CabinetSize.SMALL));
+        assertFalse(cabinets.hasFree());
+        assertEquals(CabinetStatus.OUT_OF_SERVICE, cabinets.statusOf(1129));
+        assertEquals(129, cabinets.count(CabinetSize.MEDIUM, CabinetStatus.OCCUPIED));
+    }
+
+    @Test
+    void unknownCabinetsAreNotTouched() {
+        LockerCabinets cabinets = locker(new long[] { 5 }, new CabinetSize[] { CabinetSize.SMALL },
+                new CabinetStatus[] { CabinetStatus.FREE });
+
+        assertFalse(cabinets.set(6, CabinetStatus.OCCUPIED));
+        assertNull(cabinets.statusOf(6));
+        assertEquals(1, cabinets.freeCount());
+    }
+
+    @Test
+    void countsFollowEveryStatusChange() {
+        Random random = new Random(3);
+        CabinetSize[] allSizes = CabinetSize.values();
+        CabinetStatus[] allStatuses = CabinetStatus.values();
+
+        int size = 200;
+        long[] ids = new long[size];
+        CabinetSize[] sizes = new CabinetSize[size];
+        CabinetStatus[] statuses = new CabinetStatus[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = 3L * i + 1;
+            sizes[i] = allSizes[random.nextInt(allSizes.length)];
+            statuses[i] = allStatuses[random.nextInt(allStatuses.length)];
+        }
+        // the constructor copies, the arrays stay the reference
+        LockerCabinets cabinets = new LockerCabinets(ids, sizes, statuses, size);
+
+        for (int change = 0; change < 5000; change++) {
+            int i = random.nextInt(size);
+            statuses[i] = allStatuses[random.nextInt(allStatuses.length)];
+            assertTrue(cabinets.set(ids[i], statuses[i]));
+
+            if (change % 100 == 0) {
+                assertMatches(cabinets, ids, sizes, statuses);
+            }
+            CabinetSize minSize = allSizes[random.nextInt(allSizes.length)];
+            long picked = cabinets.pickFree(minSize);
+            if (picked >= 0) {
+                int index = Arrays.binarySearch(ids, picked);
+                assertEquals(CabinetStatus.FREE, statuses[index]);
+                assertTrue(sizes[index].compareTo(minSize) >= 0);
+            } else {
+                for (int k = 0; k < size; k++) {
+                    assertFalse(statuses[k] == CabinetStatus.FREE && sizes[k].compareTo(minSize) >= 0);
+                }
+            }
+        }
+        assertMatches(cabinets, ids, sizes, statuses);
+    }
+
+    private static void assertMatches(LockerCabinets cabinets, long[] ids, CabinetSize[] sizes,
+            CabinetStatus[] statuses) {
+        int free = 0;
+        int[][] counts = new int[CabinetSize.values().length][CabinetStatus.values().length];
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(statuses[i], cabinets.statusOf(ids[i]));
+            counts[sizes[i].ordinal()][statuses[i].ordinal()]++;
+            if (statuses[i] == CabinetStatus.FREE) {
+                free++;
+            }
+        }
+        assertEquals(free, cabinets.freeCount());
+        for (CabinetSize size : CabinetSize.values()) {
+            for (CabinetStatus status : CabinetStatus.values()) {
+                assertEquals(counts[size.ordinal()][status.ordinal()], cabinets.count(size, status));
+            }
+        }
+    }
+
+    private static LockerCabinets locker(long[] ids, CabinetSize[] sizes, CabinetStatus[] statuses) {
+        return new LockerCabinets(ids, sizes, statuses, ids.length);
+    }
+
+}
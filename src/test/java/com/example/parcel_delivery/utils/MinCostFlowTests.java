@@ -0,0 +1,86 @@
+package com.example.parcel_delivery.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MinCostFlowTests {
+
+    @Test
+    void assignmentTakesTheCheapestPerfectMatching() {
+        // 3 workers x 3 jobs, optimum 1 + 2 + 2 = 5 (not the greedy 1 + 3 + 9)
+        long[][] costs = {
+                { 1, 2, 9 },
+                { 3, 9, 2 },
+                { 9, 2, 9 } };
+        assertArrayEquals(new long[] { 3, 5 }, solveAssignment(costs));
+    }
+
+    @Test
+    void flowIsLimitedByTheCapacities() {
+        MinCostFlow flow = new MinCostFlow(4, 4);
+        flow.addEdge(0, 1, 5, 1);
+        flow.addEdge(0, 2, 5, 3);
+        flow.addEdge(1, 3, 2, 0);
+        int overflow = flow.addEdge(2, 3, 10, 0);
+
+        assertArrayEquals(new long[] { 7, 2 * 1 + 5 * 3 }, flow.run(0, 3));
+        assertEquals(5, flow.flowOn(overflow));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomAssignments() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int n = 2 + random.nextInt(5);
+            long[][] costs = new long[n][n];
+            for (long[] row : costs) {
+                for (int j = 0; j < n; j++) {
+                    row[j] = random.nextInt(20);
+                }
+            }
+            assertEquals(bruteForce(costs, 0, new boolean[n]), solveAssignment(costs)[1]);
+        }
+    }
+
+    @Test
+    void rejectsNegativeCosts() {
+        MinCostFlow flow = new MinCostFlow(2, 1);
+        assertThrows(IllegalArgumentException.class, () -> flow.addEdge(0, 1, 1, -1));
+    }
+
+    // source 0, rows 1..n, columns n+1..2n, sink 2n+1
+    private static long[] solveAssignment(long[][] costs) {
+        int n = costs.length;
+        int sink = 2 * n + 1;
+        MinCostFlow flow = new MinCostFlow(sink + 1, n * n + 2 * n);
+        for (int i = 0; i < n; i++) {
+            flow.addEdge(0, 1 + i, 1, 0);
+            flow.addEdge(1 + n + i, sink, 1, 0);
+            for (int j = 0; j < n; j++) {
+                flow.addEdge(1 + i, 1 + n + j, 1, costs[i][j]);
+            }
+        }
+        return flow.run(0, sink);
+    }
+
+    private static long bruteForce(long[][] costs, int row, boolean[] used) {
+        if (row == costs.length) {
+            return 0;
+        }
+        long best = Long.MAX_VALUE;
+        for (int j = 0; j < costs.length; j++) {
+            if (!used[j]) {
+                used[j] = true;
+                best = Math.min(best, costs[row][j] + bruteForce(costs, row + 1, used));
+                used[j] = false;
+            }
+        }
+        return best;
+    }
+
+}
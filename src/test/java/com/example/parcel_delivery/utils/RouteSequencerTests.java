@@ -0,0 +1,141 @@
+package com.example.parcel_delivery.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RouteSequencerTests {
+
+    @Test
+    void improvementNeverMakesTheRouteLonger() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int n = 2 + random.nextInt(30);
+            double[] dist = euclidean(randomPoints(n, random));
+            int[] before = noPrecedence(n);
+
+            RouteSequencer constructed = new RouteSequencer(n, dist, before);
+            double nearestNeighbourLength = constructed.lengthOf(constructed.solve(0));
+
+            RouteSequencer improved = new RouteSequencer(n, dist, before);
+            int[] order = improved.solve(50);
+
+            assertPermutationFromStart(order, n);
+            assertTrue(improved.lengthOf(order) <= nearestNeighbourLength + 1e-9);
+        }
+    }
+
+    @Test
+    void pickupsStayBeforeTheirDeliveries() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            // node 2k - 1 is a pickup, node 2k its delivery
+            int parcels = 1 + random.nextInt(8);
+            int n = 1 + 2 * parcels;
+            double[] dist = euclidean(randomPoints(n, random));
+            int[] before = noPrecedence(n);
+            for (int k = 1; k <= parcels; k++) {
+                before[2 * k] = 2 * k - 1;
+            }
+
+            int[] order = new RouteSequencer(n, dist, before).solve(50);
+
+            assertPermutationFromStart(order, n);
+            int[] position = new int[n];
+            for (int i = 0; i < n; i++) {
+                position[order[i]] = i;
+            }
+            for (int k = 1; k <= parcels; k++) {
+                assertTrue(position[2 * k - 1] < position[2 * k]);
+            }
+        }
+    }
+
+    @Test
+    void smallRoutesReachTheOptimum() {
+        // points on a line visited out of order by nearest neighbour
+        double[][] points = { { 0, 0 }, { 1, 0 }, { -1.5, 0 }, { 3, 0 }, { -4, 0 } };
+        int n = points.length;
+        RouteSequencer sequencer = new RouteSequencer(n, euclidean(points), noPrecedence(n));
+
+        int[] order = sequencer.solve(50);
+
+        assertEquals(bruteForceLength(n, euclidean(points)), sequencer.lengthOf(order), 1e-9);
+    }
+
+    @Test
+    void aSingleNodeIsItsOwnRoute() {
+        RouteSequencer sequencer = new RouteSequencer(1, new double[] { 0 }, new int[] { -1 });
+
+        assertArrayEquals(new int[] { 0 }, sequencer.solve(10));
+    }
+
+    private static void assertPermutationFromStart(int[] order, int n) {
+        assertEquals(n, order.length);
+        assertEquals(0, order[0]);
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, sorted[i]);
+        }
+    }
+
+    private static double bruteForceLength(int n, double[] dist) {
+        int[] rest = new int[n - 1];
+        for (int i = 0; i < rest.length; i++) {
+            rest[i] = i + 1;
+        }
+        return bruteForce(0, rest, 0, dist, n);
+    }
+
+    private static double bruteForce(int last, int[] rest, int from, double[] dist, int n) {
+        if (from == rest.length) {
+            return 0;
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = from; i < rest.length; i++) {
+            swap(rest, from, i);
+            best = Math.min(best, dist[last * n + rest[from]] + bruteForce(rest[from], rest, from + 1, dist, n));
+            swap(rest, from, i);
+        }
+        return best;
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+
+    private static double[][] randomPoints(int n, Random random) {
+        double[][] points = new double[n][2];
+        for (double[] point : points) {
+            point[0] = random.nextDouble() * 10;
+            point[1] = random.nextDouble() * 10;
+        }
+        return points;
+    }
+
+    private static double[] euclidean(double[][] points) {
+        int n = points.length;
+        double[] dist = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                dist[i * n + j] = Math.hypot(points[i][0] - points[j][0], points[i][1] - points[j][1]);
+            }
+        }
+        return dist;
+    }
+
+    private static int[] noPrecedence(int n) {
+        int[] before = new int[n];
+        Arrays.fill(before, -1);
+        return before;
+    }
+
+}